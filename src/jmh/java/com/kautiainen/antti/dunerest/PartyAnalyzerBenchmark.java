@@ -0,0 +1,118 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.dunerest.PartyAnalyzer.Analysis;
+import com.kautiainen.antti.dunerest.PartyAnalyzer.Party;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the sequential and the parallel party analysis.
+ *
+ * Run with:
+ * <code>mvn -P benchmark test-compile exec:exec -Djmh.args="PartyAnalyzerBenchmark"</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PartyAnalyzerBenchmark {
+
+  /**
+   * The number of the characters of the party.
+   */
+  @Param({ "8", "1000", "30000" })
+  public int partySize;
+
+  /**
+   * The number of the skills and the drives.
+   */
+  private static final int RATINGS = 5;
+
+  /**
+   * The analyzed party.
+   */
+  private Party party;
+
+  /**
+   * The reference data of the skills and the drives.
+   */
+  private ReferenceData.Snapshot reference;
+
+  /**
+   * The analyzer evaluating the characters sequentially.
+   */
+  private PartyAnalyzer sequential;
+
+  /**
+   * The analyzer evaluating the characters in parallel.
+   */
+  private PartyAnalyzer parallel;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42L);
+    Party.Builder builder = Party.builder(1, "Roster");
+    for (int id = 1; id <= partySize; id++) {
+      builder.character(id, "NPC " + id);
+      for (int rating = 1; rating <= RATINGS; rating++) {
+        builder.skill(id, rating, 4 + random.nextInt(5));
+        builder.drive(id, rating, 4 + random.nextInt(5));
+      }
+    }
+    party = builder.build();
+    reference =
+      new ReferenceData.Snapshot(
+        ReferenceDictionary.EMPTY,
+        ReferenceDictionary.of(
+          null,
+          "Battle",
+          "Communicate",
+          "Discipline",
+          "Move",
+          "Understand"
+        ),
+        ReferenceDictionary.of(
+          null,
+          "Duty",
+          "Faith",
+          "Justice",
+          "Power",
+          "Truth"
+        )
+      );
+    SkillTestOdds odds = new SkillTestOdds();
+    sequential = new PartyAnalyzer(odds, Integer.MAX_VALUE);
+    parallel = new PartyAnalyzer(odds, 1);
+  }
+
+  /**
+   * Analyze the party in the calling thread.
+   * @return The analysis.
+   */
+  @Benchmark
+  public Analysis analyzeSequential() {
+    return sequential.analyze(party, reference, 2, 2, false, 3);
+  }
+
+  /**
+   * Analyze the party in the common fork/join pool.
+   * @return The analysis.
+   */
+  @Benchmark
+  public Analysis analyzeParallel() {
+    return parallel.analyze(party, reference, 2, 2, false, 3);
+  }
+}
@@ -0,0 +1,172 @@
+package com.kautiainen.antti.utils.db;
+
+import com.kautiainen.antti.utils.db.CreateDatabase.ViewDefinition;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark of the SQL validation and the view building of the database
+ * creator.
+ *
+ * Run with the GC profiler to get the allocation rates:
+ * <code>mvn -P benchmark test-compile exec:exec -Djmh.args="CreateDatabaseBenchmark"</code>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CreateDatabaseBenchmark {
+
+  /**
+   * The number of the constraints of the built view.
+   */
+  @Param({ "1", "4", "16" })
+  public int constraintCount;
+
+  /**
+   * The table creation commands.
+   */
+  private List<String> tables;
+
+  /**
+   * The view creation commands.
+   */
+  private List<String> views;
+
+  /**
+   * The table initialization commands.
+   */
+  private List<String> initializations;
+
+  /**
+   * The column definitions of the built view.
+   */
+  private List<String> columns;
+
+  /**
+   * The tables of the built view.
+   */
+  private List<String> viewTables;
+
+  /**
+   * The constraints of the built view.
+   */
+  private List<String> constraints;
+
+  /**
+   * The entries joined by the prefixed string.
+   */
+  private List<String> entries;
+
+  @Setup
+  public void setup() {
+    tables =
+      Arrays.asList(
+        "CREATE TABLE IF NOT EXISTS skills (id SMALLSERIAL PRIMARY KEY, name VARCHAR(40) NOT NULL UNIQUE)",
+        "CREATE TABLE IF NOT EXISTS drives (id SMALLSERIAL PRIMARY KEY, name VARCHAR(40) NOT NULL UNIQUE)",
+        "CREATE TABLE IF NOT EXISTS characters (id SMALLSERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL)",
+        "DROP TABLE IF EXISTS ticks;"
+      );
+    views =
+      Arrays.asList(
+        "CREATE OR REPLACE VIEW skill_names AS SELECT id, name FROM skills",
+        "DROP VIEW IF EXISTS skill_names ;"
+      );
+    initializations =
+      Arrays.asList(
+        "INSERT INTO skills (name) VALUES ('Battle')",
+        "INSERT INTO skills (name) VALUES ('Move')"
+      );
+    columns = Arrays.asList("cid", "sum(value) AS total");
+    viewTables = Arrays.asList("character_skills");
+    constraints = new ArrayList<>();
+    List<String> kinds = Arrays.asList(
+      "WHERE value > 0",
+      "GROUP BY cid",
+      "HAVING sum(value) > 4",
+      "WHERE cid > 0"
+    );
+    for (int i = 0; i < constraintCount; i++) {
+      constraints.add(kinds.get(i % kinds.size()));
+    }
+    entries = new ArrayList<>();
+    for (int i = 0; i < constraintCount; i++) {
+      entries.add(i % 3 == 2 ? null : "value" + i);
+    }
+  }
+
+  /**
+   * Validate the creation commands by constructing a database creator.
+   * @param blackhole The consumer of the result.
+   */
+  @Benchmark
+  public void constructorValidation(Blackhole blackhole) {
+    blackhole.consume(new CreateDatabase(tables, views, initializations));
+  }
+
+  /**
+   * Classify a table creation command and extract its name.
+   * @param blackhole The consumer of the result.
+   */
+  @Benchmark
+  public void classify(Blackhole blackhole) {
+    blackhole.consume(SqlClassifier.classify(tables.get(0)));
+    blackhole.consume(SqlClassifier.getNames(tables.get(0)));
+  }
+
+  /**
+   * Build a view definition with the constraints.
+   * @param blackhole The consumer of the result.
+   */
+  @Benchmark
+  public void viewDefinitionCreate(Blackhole blackhole) {
+    ViewDefinition view = ViewDefinition.create(
+      "character_totals",
+      columns,
+      viewTables,
+      constraints
+    );
+    blackhole.consume(view.getCreateView());
+  }
+
+  /**
+   * Validate an unquoted and a quoted query name.
+   * @param blackhole The consumer of the result.
+   */
+  @Benchmark
+  public void validQueryName(Blackhole blackhole) {
+    blackhole.consume(ViewDefinition.validQueryName("character_totals"));
+    blackhole.consume(ViewDefinition.validQueryName("\"Character \"\"Totals\"\"\""));
+  }
+
+  /**
+   * Join the entries with a prefix.
+   * @return The prefixed string.
+   */
+  @Benchmark
+  public String prefixedToStringOrEmpty() {
+    return ViewDefinition.prefixedToStringOrEmpty(
+      "WHERE ",
+      " AND ",
+      Optional.of("TRUE"),
+      entries
+    );
+  }
+}
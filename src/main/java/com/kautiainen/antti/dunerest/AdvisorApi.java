@@ -0,0 +1,156 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.dunerest.CharacterStore.Match;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * The JSON API of the campaign advisor.
+ *
+ * The queries are answered from the in-memory character store, so a recent
+ * change of a character may not yet be visible.
+ */
+@RestController
+@RequestMapping("/api/advisor")
+public class AdvisorApi {
+
+  /**
+   * The maximal number of the returned characters.
+   */
+  public static final int MAX_LIMIT = 100;
+
+  /**
+   * The in-memory store of the character ratings.
+   */
+  private final CharacterStore store;
+
+  /**
+   * The reference data resolving the skill and drive names.
+   */
+  private final ReferenceData referenceData;
+
+  /**
+   * The probabilities of the skill tests.
+   */
+  private final SkillTestOdds odds;
+
+  /**
+   * The odds of a skill test of a character.
+   * @param id The identifier of the character.
+   * @param name The name of the character.
+   * @param target The target number.
+   * @param critical The critical number.
+   * @param dice The size of the dice pool.
+   * @param difficulty The difficulty.
+   * @param success The probability of the success.
+   * @param criticalChance The probability of at least one critical.
+   * @param complication The probability of at least one complication.
+   */
+  public static record Odds(
+    short id,
+    String name,
+    int target,
+    int critical,
+    int dice,
+    int difficulty,
+    double success,
+    double criticalChance,
+    double complication
+  ) {}
+
+  @Autowired
+  public AdvisorApi(
+    CharacterStore store,
+    ReferenceData referenceData,
+    SkillTestOdds odds
+  ) {
+    this.store = store;
+    this.referenceData = referenceData;
+    this.odds = odds;
+  }
+
+  /**
+   * Find the best characters for a skill and a drive.
+   * @param skill The name of the skill.
+   * @param drive The name of the drive.
+   * @param limit The maximal number of the characters.
+   * @return The characters with the highest sum of the skill and the drive,
+   *  or <code>400 Bad Request</code>, if the skill or the drive is unknown.
+   */
+  @GetMapping("/best")
+  public ResponseEntity<List<Match>> best(
+    @RequestParam(name = "skill") String skill,
+    @RequestParam(name = "drive") String drive,
+    @RequestParam(name = "limit", required = false) Integer limit
+  ) {
+    ReferenceData.Snapshot reference = referenceData.get();
+    int skillId = reference.skills().getId(skill);
+    int driveId = reference.drives().getId(drive);
+    if (skillId < 0 || driveId < 0) {
+      return ResponseEntity.badRequest().build();
+    }
+    int count = limit == null ? 10 : Math.max(1, Math.min(MAX_LIMIT, limit));
+    return ResponseEntity.ok(store.get().best(skillId, driveId, count));
+  }
+
+  /**
+   * Get the odds of a skill test of a character.
+   * @param id The identifier of the character.
+   * @param skill The name of the skill.
+   * @param drive The name of the drive.
+   * @param difficulty The difficulty.
+   * @param dice The size of the dice pool.
+   * @param focus Does a focus apply to the test.
+   * @return The odds of the test, <code>400 Bad Request</code>, if the
+   *  skill, the drive, the difficulty or the pool size is invalid, or
+   *  <code>404 Not Found</code>, if the character does not have the skill
+   *  and the drive.
+   */
+  @GetMapping("/odds")
+  public ResponseEntity<Odds> getOdds(
+    @RequestParam(name = "character") short id,
+    @RequestParam(name = "skill") String skill,
+    @RequestParam(name = "drive") String drive,
+    @RequestParam(name = "difficulty", defaultValue = "1") int difficulty,
+    @RequestParam(name = "dice", defaultValue = "2") int dice,
+    @RequestParam(name = "focus", defaultValue = "false") boolean focus
+  ) {
+    ReferenceData.Snapshot reference = referenceData.get();
+    int skillId = reference.skills().getId(skill);
+    int driveId = reference.drives().getId(drive);
+    if (
+      skillId < 0 ||
+      driveId < 0 ||
+      !SkillTestOdds.isValidDifficulty(difficulty) ||
+      !SkillTestOdds.isValidPool(dice)
+    ) {
+      return ResponseEntity.badRequest().build();
+    }
+    CharacterStore.Snapshot snapshot = store.get();
+    int skillValue = snapshot.getSkill(id, skillId);
+    int driveValue = snapshot.getDrive(id, driveId);
+    if (skillValue < 0 || driveValue < 0) {
+      return ResponseEntity.notFound().build();
+    }
+    int target = SkillTestOdds.getTarget(skillValue, driveValue);
+    int critical = SkillTestOdds.getCritical(skillValue, focus);
+    return ResponseEntity.ok(
+      new Odds(
+        id,
+        snapshot.getName(id),
+        target,
+        critical,
+        dice,
+        difficulty,
+        odds.getSuccess(target, critical, dice, difficulty),
+        odds.getCritical(critical, dice),
+        odds.getComplication(dice)
+      )
+    );
+  }
+}
@@ -0,0 +1,152 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.dunerest.PartyAnalyzer.Analysis;
+import com.kautiainen.antti.dunerest.PartyAnalyzer.Party;
+import java.net.URI;
+import java.sql.SQLException;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * The JSON resource API of the campaigns and the party analysis.
+ */
+@RestController
+@RequestMapping("/api/campaigns")
+public class CampaignApi {
+
+  /**
+   * The maximal number of the candidates of a challenge.
+   */
+  public static final int MAX_LIMIT = 100;
+
+  /**
+   * The repository of the campaigns.
+   */
+  private final CampaignRepository repository;
+
+  /**
+   * The analyzer of the parties.
+   */
+  private final PartyAnalyzer analyzer;
+
+  /**
+   * The reference data of the skills and the drives.
+   */
+  private final ReferenceData referenceData;
+
+  @Autowired
+  public CampaignApi(
+    CampaignRepository repository,
+    PartyAnalyzer analyzer,
+    ReferenceData referenceData
+  ) {
+    this.repository = repository;
+    this.analyzer = analyzer;
+    this.referenceData = referenceData;
+  }
+
+  /**
+   * Create a campaign.
+   * @param name The name of the campaign.
+   * @return The location of the created campaign, or
+   *  <code>400 Bad Request</code>, if the name is blank.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @PostMapping
+  public ResponseEntity<Void> create(@RequestParam(name = "name") String name)
+    throws SQLException {
+    if (name.isBlank()) {
+      return ResponseEntity.badRequest().build();
+    }
+    int id = repository.create(name);
+    return ResponseEntity.created(URI.create("/api/campaigns/" + id)).build();
+  }
+
+  /**
+   * Add a character to a campaign.
+   * @param id The identifier of the campaign.
+   * @param characterId The identifier of the character.
+   * @return <code>204 No Content</code>, or <code>404 Not Found</code>, if
+   *  the campaign or the character does not exist.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @PutMapping("/{id}/characters/{characterId}")
+  public ResponseEntity<Void> addCharacter(
+    @PathVariable("id") int id,
+    @PathVariable("characterId") short characterId
+  ) throws SQLException {
+    return repository.addCharacter(id, characterId)
+      ? ResponseEntity.noContent().build()
+      : ResponseEntity.notFound().build();
+  }
+
+  /**
+   * Remove a character from a campaign.
+   * @param id The identifier of the campaign.
+   * @param characterId The identifier of the character.
+   * @return <code>204 No Content</code>, or <code>404 Not Found</code>, if
+   *  the character is not in the campaign.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @DeleteMapping("/{id}/characters/{characterId}")
+  public ResponseEntity<Void> removeCharacter(
+    @PathVariable("id") int id,
+    @PathVariable("characterId") short characterId
+  ) throws SQLException {
+    return repository.removeCharacter(id, characterId)
+      ? ResponseEntity.noContent().build()
+      : ResponseEntity.notFound().build();
+  }
+
+  /**
+   * Analyze the party of a campaign.
+   * @param id The identifier of the campaign.
+   * @param difficulty The difficulty of the tests.
+   * @param dice The size of the dice pools.
+   * @param focus Does a focus apply to the tests.
+   * @param limit The maximal number of the candidates of each skill and
+   *  drive.
+   * @return The ranked characters of each skill and drive,
+   *  <code>400 Bad Request</code>, if the difficulty or the pool size is
+   *  invalid, or <code>404 Not Found</code>, if the campaign does not exist.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @GetMapping("/{id}/analysis")
+  public ResponseEntity<Analysis> analyze(
+    @PathVariable("id") int id,
+    @RequestParam(name = "difficulty", defaultValue = "1") int difficulty,
+    @RequestParam(name = "dice", defaultValue = "2") int dice,
+    @RequestParam(name = "focus", defaultValue = "false") boolean focus,
+    @RequestParam(name = "limit", defaultValue = "3") int limit
+  ) throws SQLException {
+    if (
+      !SkillTestOdds.isValidDifficulty(difficulty) ||
+      !SkillTestOdds.isValidPool(dice)
+    ) {
+      return ResponseEntity.badRequest().build();
+    }
+    Optional<Party> party = repository.findParty(id);
+    if (party.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity.ok(
+      analyzer.analyze(
+        party.get(),
+        referenceData.get(),
+        difficulty,
+        dice,
+        focus,
+        Math.max(1, Math.min(MAX_LIMIT, limit))
+      )
+    );
+  }
+}
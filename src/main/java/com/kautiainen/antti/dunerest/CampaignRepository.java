@@ -0,0 +1,213 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.dunerest.PartyAnalyzer.Party;
+import com.kautiainen.antti.utils.db.RepeatableRead;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The repository of the campaigns and their characters.
+ */
+@Component
+public class CampaignRepository {
+
+  /**
+   * The query of a campaign.
+   */
+  private static final String CAMPAIGN_SQL =
+    "SELECT name FROM campaigns WHERE id = ?";
+
+  /**
+   * The insert of a campaign.
+   */
+  private static final String INSERT_CAMPAIGN_SQL =
+    "INSERT INTO campaigns (name) VALUES (?) RETURNING id";
+
+  /**
+   * The insert of a character of a campaign. The insert of an existing
+   * character of the campaign succeeds without a change.
+   */
+  private static final String INSERT_CAMPAIGN_CHARACTER_SQL =
+    "INSERT INTO campaign_characters (campaign_id, cid)" +
+    " SELECT ca.id, c.id FROM campaigns ca, characters c" +
+    " WHERE ca.id = ? AND c.id = ?" +
+    " ON CONFLICT (campaign_id, cid) DO UPDATE SET cid = EXCLUDED.cid";
+
+  /**
+   * The delete of a character of a campaign.
+   */
+  private static final String DELETE_CAMPAIGN_CHARACTER_SQL =
+    "DELETE FROM campaign_characters WHERE campaign_id = ? AND cid = ?";
+
+  /**
+   * The query of the characters of a campaign.
+   */
+  private static final String PARTY_SQL =
+    "SELECT c.id, c.name FROM campaign_characters cc" +
+    " JOIN characters c ON c.id = cc.cid" +
+    " WHERE cc.campaign_id = ? ORDER BY c.id";
+
+  /**
+   * The query of the skills of the characters of a campaign.
+   */
+  private static final String PARTY_SKILLS_SQL =
+    "SELECT cs.cid, cs.sid, cs.value FROM campaign_characters cc" +
+    " JOIN character_skills cs ON cs.cid = cc.cid" +
+    " WHERE cc.campaign_id = ?";
+
+  /**
+   * The query of the drives of the characters of a campaign.
+   */
+  private static final String PARTY_DRIVES_SQL =
+    "SELECT cd.cid, cd.did, cd.value FROM campaign_characters cc" +
+    " JOIN character_drives cd ON cd.cid = cc.cid" +
+    " WHERE cc.campaign_id = ?";
+
+  private final DataSource dataSource;
+
+  @Autowired
+  public CampaignRepository(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Create a new campaign without characters.
+   * @param name The name of the campaign.
+   * @return The identifier of the created campaign.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public int create(String name) throws SQLException {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement insert = connection.prepareStatement(
+        INSERT_CAMPAIGN_SQL
+      )
+    ) {
+      insert.setString(1, name);
+      try (ResultSet result = insert.executeQuery()) {
+        result.next();
+        return result.getInt(1);
+      }
+    }
+  }
+
+  /**
+   * Add a character to a campaign.
+   * @param campaignId The identifier of the campaign.
+   * @param characterId The identifier of the character.
+   * @return True, if and only if both the campaign and the character exist.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public boolean addCharacter(int campaignId, short characterId)
+    throws SQLException {
+    return update(INSERT_CAMPAIGN_CHARACTER_SQL, campaignId, characterId);
+  }
+
+  /**
+   * Remove a character from a campaign.
+   * @param campaignId The identifier of the campaign.
+   * @param characterId The identifier of the character.
+   * @return True, if and only if the character was in the campaign.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public boolean removeCharacter(int campaignId, short characterId)
+    throws SQLException {
+    return update(DELETE_CAMPAIGN_CHARACTER_SQL, campaignId, characterId);
+  }
+
+  /**
+   * Execute an update of a character of a campaign.
+   * @param sql The update with the campaign and the character parameters.
+   * @param campaignId The identifier of the campaign.
+   * @param characterId The identifier of the character.
+   * @return True, if and only if a row was updated.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private boolean update(String sql, int campaignId, short characterId)
+    throws SQLException {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement update = connection.prepareStatement(sql)
+    ) {
+      update.setInt(1, campaignId);
+      update.setShort(2, characterId);
+      return update.executeUpdate() > 0;
+    }
+  }
+
+  /**
+   * Load the party of a campaign in a single transaction.
+   * @param campaignId The identifier of the campaign.
+   * @return The party of the campaign, or an empty value, if no campaign has
+   *  the identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public Optional<Party> findParty(int campaignId) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      return RepeatableRead.read(
+        connection,
+        (Connection transaction) -> findParty(transaction, campaignId)
+      );
+    }
+  }
+
+  /**
+   * Load the party of a campaign.
+   * @param connection The connection in a repeatable read transaction.
+   * @param campaignId The identifier of the campaign.
+   * @return The party of the campaign, or an empty value, if no campaign has
+   *  the identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private static Optional<Party> findParty(
+    Connection connection,
+    int campaignId
+  ) throws SQLException {
+    Party.Builder builder;
+    try (PreparedStatement query = connection.prepareStatement(CAMPAIGN_SQL)) {
+      query.setInt(1, campaignId);
+      try (ResultSet result = query.executeQuery()) {
+        if (!result.next()) {
+          return Optional.empty();
+        }
+        builder = Party.builder(campaignId, result.getString(1));
+      }
+    }
+    try (
+      ResultSet rows = RepeatableRead.stream(connection, PARTY_SQL, campaignId)
+    ) {
+      while (rows.next()) {
+        builder.character(rows.getShort(1), rows.getString(2));
+      }
+    }
+    try (
+      ResultSet rows = RepeatableRead.stream(
+        connection,
+        PARTY_SKILLS_SQL,
+        campaignId
+      )
+    ) {
+      while (rows.next()) {
+        builder.skill(rows.getShort(1), rows.getShort(2), rows.getShort(3));
+      }
+    }
+    try (
+      ResultSet rows = RepeatableRead.stream(
+        connection,
+        PARTY_DRIVES_SQL,
+        campaignId
+      )
+    ) {
+      while (rows.next()) {
+        builder.drive(rows.getShort(1), rows.getShort(2), rows.getShort(3));
+      }
+    }
+    return Optional.of(builder.build());
+  }
+}
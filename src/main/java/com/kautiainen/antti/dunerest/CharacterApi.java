@@ -0,0 +1,454 @@
+package com.kautiainen.antti.dunerest;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * The JSON resource API of the characters.
+ *
+ * The characters carry a strong entity tag derived from their identifier and
+ * version. A conditional read with a matching <code>If-None-Match</code> is
+ * answered with <code>304 Not Modified</code>, and a conditional update with
+ * a stale <code>If-Match</code> with <code>412 Precondition Failed</code>.
+ * The version of a conditional update is tested by the database, so of the
+ * concurrent updates with the same entity tag only one succeeds.
+ */
+@RestController
+@RequestMapping("/api/characters")
+public class CharacterApi {
+
+  /**
+   * The repository of the characters.
+   */
+  private final CharacterRepository repository;
+
+  /**
+   * The read-through cache of the characters.
+   */
+  private final CharacterCache cache;
+
+  /**
+   * The precomputed summaries of the characters.
+   */
+  private final CharacterSummaries summaries;
+
+  /**
+   * The streaming importer of the characters.
+   */
+  private final CharacterImporter importer;
+
+  /**
+   * The streaming exporter of the characters.
+   */
+  private final CharacterExporter exporter;
+
+  /**
+   * The writer of the import progress leaving the response open after each
+   * progress line.
+   */
+  private final ObjectWriter progressWriter;
+
+  @Autowired
+  public CharacterApi(
+    CharacterRepository repository,
+    CharacterCache cache,
+    CharacterSummaries summaries,
+    CharacterImporter importer,
+    CharacterExporter exporter,
+    ObjectMapper mapper
+  ) {
+    this.repository = repository;
+    this.cache = cache;
+    this.summaries = summaries;
+    this.importer = importer;
+    this.exporter = exporter;
+    this.progressWriter =
+      mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+  }
+
+  /**
+   * Get the entity tag of a character.
+   * @param id The identifier of the character.
+   * @param version The version of the character.
+   * @return The strong entity tag of the character version.
+   */
+  public static String getETag(short id, int version) {
+    return "\"" + id + "-" + version + "\"";
+  }
+
+  /**
+   * Get the versions of a character matched by an <code>If-Match</code>
+   * header.
+   *
+   * The header is a comma separated list of entity tags. The entity tags are
+   * compared with the strong comparison, so a weak entity tag never matches.
+   *
+   * @param id The identifier of the character.
+   * @param ifMatch The value of the <code>If-Match</code> header.
+   * @return The list of the matched versions, or an undefined value, if the
+   *  header matches any version.
+   */
+  static List<Integer> getMatchedVersions(short id, String ifMatch) {
+    List<Integer> result = new ArrayList<>();
+    final String prefix = "\"" + id + "-";
+    for (String tag : ifMatch.split(",")) {
+      tag = tag.trim();
+      if (tag.equals("*")) {
+        return null;
+      } else if (
+        tag.startsWith(prefix) &&
+        tag.endsWith("\"") &&
+        tag.length() > prefix.length() + 1
+      ) {
+        try {
+          int version = Integer.parseInt(
+            tag.substring(prefix.length(), tag.length() - 1)
+          );
+          if (tag.equals(getETag(id, version))) {
+            result.add(version);
+          }
+        } catch (NumberFormatException nfe) {
+          // The entity tag of another resource.
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Get the entity tag of the list of the characters.
+   * @param marker The change marker of the characters.
+   * @return The weak entity tag of the list.
+   */
+  static String getListETag(CharacterRepository.ChangeMarker marker) {
+    return (
+      "W/\"" +
+      marker.count() +
+      "-" +
+      marker.versions() +
+      "-" +
+      marker.maxId() +
+      "\""
+    );
+  }
+
+  /**
+   * List the summaries of the characters.
+   *
+   * The entity tag of the list is derived from the change marker of the
+   * characters, so a conditional request matching the current list is
+   * answered without reading the characters.
+   *
+   * @param request The request.
+   * @return The list of the character summaries.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @GetMapping
+  public ResponseEntity<List<CharacterRepository.Summary>> list(
+    WebRequest request
+  ) throws SQLException {
+    String etag = getListETag(repository.findChangeMarker());
+    if (request.checkNotModified(etag)) {
+      return null;
+    }
+    return ResponseEntity.ok().eTag(etag).body(repository.findAll());
+  }
+
+  /**
+   * List the precomputed summaries of the characters.
+   *
+   * The summaries are refreshed shortly after the characters change, so a
+   * recent change may not yet be visible.
+   *
+   * @return The list of the character summaries.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @GetMapping("/summaries")
+  public List<CharacterSummaries.Summary> listSummaries() throws SQLException {
+    return summaries.findAll();
+  }
+
+  /**
+   * Get a character.
+   *
+   * In the snapshot mode the stored JSON document of the character sheet is
+   * sent, otherwise the character is read through the cache.
+   *
+   * @param id The identifier of the character.
+   * @param request The request.
+   * @return The character, or <code>404 Not Found</code>.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @GetMapping("/{id}")
+  public ResponseEntity<?> get(
+    @PathVariable("id") short id,
+    WebRequest request
+  ) throws SQLException {
+    if (repository.isSnapshotEnabled()) {
+      // The stored document is sent as is without mapping it to an object.
+      Optional<CharacterRepository.Snapshot> snapshot = repository.findSnapshot(
+        id
+      );
+      if (snapshot.isEmpty()) {
+        return ResponseEntity.notFound().build();
+      }
+      String etag = getETag(id, snapshot.get().version());
+      if (request.checkNotModified(etag)) {
+        return null;
+      }
+      return ResponseEntity
+        .ok()
+        .eTag(etag)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(snapshot.get().json());
+    }
+    Optional<CharacterSheet> character = cache.get(id);
+    if (character.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    String etag = getETag(id, character.get().version());
+    if (request.checkNotModified(etag)) {
+      return null;
+    }
+    return ResponseEntity.ok().eTag(etag).body(character.get());
+  }
+
+  /**
+   * Create a character.
+   * @param character The created character. The identifier and the version
+   *  are ignored.
+   * @return The created character with its location.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @PostMapping
+  public ResponseEntity<CharacterSheet> create(
+    @RequestBody CharacterSheet character
+  ) throws SQLException {
+    if (!valid(character)) {
+      return ResponseEntity.badRequest().build();
+    }
+    short id = repository.create(character);
+    Optional<CharacterSheet> created = cache.get(id);
+    if (created.isEmpty()) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+    return ResponseEntity
+      .created(URI.create("/api/characters/" + id))
+      .eTag(getETag(id, created.get().version()))
+      .body(created.get());
+  }
+
+  /**
+   * Import characters from a streamed body.
+   *
+   * The body is either newline delimited JSON, or CSV with a header row. The
+   * body is read while the characters are written, and the progress of each
+   * written batch is sent as a newline delimited JSON line. If too many
+   * imports are in progress, the request is answered with
+   * <code>503 Service Unavailable</code>.
+   *
+   * @param request The request with the imported body.
+   * @param response The response receiving the progress.
+   * @throws IOException The reading of the body, or the writing of the
+   *  progress failed.
+   */
+  @PostMapping(
+    path = "/import",
+    consumes = { "application/x-ndjson", "text/csv" },
+    produces = "application/x-ndjson"
+  )
+  public void importCharacters(
+    HttpServletRequest request,
+    HttpServletResponse response
+  ) throws IOException {
+    CharacterImporter.Format format = MediaType
+        .parseMediaType(request.getContentType())
+        .isCompatibleWith(MediaType.parseMediaType("text/csv"))
+      ? CharacterImporter.Format.CSV
+      : CharacterImporter.Format.NDJSON;
+    response.setContentType("application/x-ndjson");
+    OutputStream out = response.getOutputStream();
+    if (
+      importer
+        .importCharacters(
+          request.getInputStream(),
+          format,
+          progress -> {
+            progressWriter.writeValue(out, progress);
+            out.write('\n');
+            out.flush();
+          }
+        )
+        .isEmpty()
+    ) {
+      response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    }
+  }
+
+  /**
+   * Export all characters as CSV in the import format.
+   *
+   * The CSV is streamed from the database to the response. If the client
+   * accepts the gzip encoding, the CSV is compressed with gzip.
+   *
+   * @param acceptEncoding The encodings the client accepts.
+   * @param response The response receiving the CSV.
+   * @throws IOException The writing of the response failed.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @GetMapping(path = "/export", produces = "text/csv")
+  public void exportCharacters(
+    @RequestHeader(
+      name = HttpHeaders.ACCEPT_ENCODING,
+      required = false
+    ) String acceptEncoding,
+    HttpServletResponse response
+  ) throws IOException, SQLException {
+    boolean gzip = acceptsGzip(acceptEncoding);
+    response.setContentType("text/csv;charset=UTF-8");
+    response.setHeader(
+      HttpHeaders.CONTENT_DISPOSITION,
+      "attachment; filename=\"characters.csv\""
+    );
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    exporter.export(response.getOutputStream(), gzip);
+  }
+
+  /**
+   * Test whether an <code>Accept-Encoding</code> header accepts gzip.
+   *
+   * The gzip coding is accepted, if it, or the wildcard coding when gzip is
+   * not listed, has a positive quality value.
+   *
+   * @param acceptEncoding The value of the <code>Accept-Encoding</code>
+   *  header.
+   * @return True, if and only if the gzip coding is accepted.
+   */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    Double gzip = null;
+    Double any = null;
+    for (String element : acceptEncoding.split(",")) {
+      String[] parts = element.split(";");
+      String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+      double quality = 1.0;
+      for (int i = 1; i < parts.length; i++) {
+        String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+        if (parameter.startsWith("q=")) {
+          try {
+            quality = Double.parseDouble(parameter.substring(2).trim());
+          } catch (NumberFormatException nfe) {
+            quality = 0.0;
+          }
+        }
+      }
+      if (coding.equals("gzip") || coding.equals("x-gzip")) {
+        gzip = quality;
+      } else if (coding.equals("*")) {
+        any = quality;
+      }
+    }
+    return gzip != null ? gzip > 0 : any != null && any > 0;
+  }
+
+  /**
+   * Replace a character.
+   * @param id The identifier of the character.
+   * @param ifMatch The entity tag the client expects the character to have.
+   * @param character The new content of the character. The identifier and
+   *  the version are ignored.
+   * @return The updated character, <code>404 Not Found</code>, or
+   *  <code>412 Precondition Failed</code>, if the character does not have
+   *  any of the versions matched by the <code>If-Match</code> header.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @PutMapping("/{id}")
+  public ResponseEntity<CharacterSheet> update(
+    @PathVariable("id") short id,
+    @RequestHeader(name = "If-Match", required = false) String ifMatch,
+    @RequestBody CharacterSheet character
+  ) throws SQLException {
+    if (!valid(character)) {
+      return ResponseEntity.badRequest().build();
+    }
+    List<Integer> versions = null;
+    if (ifMatch != null) {
+      versions = getMatchedVersions(id, ifMatch);
+      if (versions != null && versions.isEmpty()) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+      }
+    }
+    if (
+      !repository.update(
+        new CharacterSheet(
+          id,
+          character.name(),
+          character.creator(),
+          character.version(),
+          character.skills(),
+          character.drives(),
+          character.statements()
+        ),
+        versions
+      )
+    ) {
+      return ifMatch == null
+        ? ResponseEntity.notFound().build()
+        : ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
+    Optional<CharacterSheet> updated = cache.get(id);
+    if (updated.isEmpty()) {
+      return ResponseEntity.notFound().build();
+    }
+    return ResponseEntity
+      .ok()
+      .eTag(getETag(id, updated.get().version()))
+      .body(updated.get());
+  }
+
+  /**
+   * Test validity of a received character.
+   * @param character The tested character.
+   * @return True, if and only if the character has a name and a creator.
+   */
+  private static boolean valid(CharacterSheet character) {
+    return (
+      character != null &&
+      character.name() != null &&
+      !character.name().isBlank() &&
+      character.creator() != null &&
+      !character.creator().isBlank()
+    );
+  }
+}
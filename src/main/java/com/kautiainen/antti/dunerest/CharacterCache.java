@@ -0,0 +1,378 @@
+package com.kautiainen.antti.dunerest;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * The read-through cache of the character aggregates.
+ *
+ * The cache holds at most the maximal number of characters, evicting the least
+ * recently used character when full, and the cached characters expire after
+ * the time to live. A character is invalidated whenever the repository
+ * publishes a change of the character.
+ *
+ * The change events are only published within the application instance
+ * performing the change. A cached character not validated within the
+ * validation interval is therefore compared against the version of the
+ * character in the database before it is served, and reloaded if the version
+ * differs. A change performed by another application instance is thus served
+ * stale for at most the validation interval.
+ *
+ * Concurrent reads of the same uncached character share a single load.
+ */
+@Component
+public class CharacterCache {
+
+  /**
+   * The default interval in milliseconds after which a cached character is
+   * validated against the database.
+   */
+  public static final long DEFAULT_VALIDATE_AFTER = 1000L;
+
+  /**
+   * A cached character.
+   * @param character The cached character.
+   * @param expires The nano time the entry expires.
+   * @param validated The nano time the version of the character was last
+   *  confirmed by the database.
+   */
+  private static record Entry(
+    CharacterSheet character,
+    long expires,
+    long validated
+  ) {}
+
+  /**
+   * The repository loading the characters.
+   */
+  private final CharacterRepository repository;
+
+  /**
+   * The time to live of the cached characters in nanoseconds.
+   */
+  private final long ttlNanos;
+
+  /**
+   * The interval in nanoseconds after which a cached character is validated
+   * against the database.
+   */
+  private final long validateAfterNanos;
+
+  /**
+   * The cached characters in the least recently used order.
+   */
+  private final Map<Short, Entry> entries;
+
+  /**
+   * The loads in progress shared by the concurrent reads of a character.
+   */
+  private final SingleFlight<Short, Optional<CharacterSheet>> loads =
+    new SingleFlight<>();
+
+  /**
+   * The number of reads served from the cache.
+   */
+  private final AtomicLong hits = new AtomicLong();
+
+  /**
+   * The number of reads loaded from the repository.
+   */
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * The number of characters evicted due size or expiration.
+   */
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * The number of cached characters found stale by the validation.
+   */
+  private final AtomicLong stale = new AtomicLong();
+
+  /**
+   * The number of invalidations. A character loaded before an invalidation
+   * is not cached, as it may predate the change. The invalidation also
+   * forgets the loads in progress, so the reads following the invalidation
+   * do not share a load predating the change.
+   */
+  private long generation = 0;
+
+  /**
+   * Create a cache with the default validation interval.
+   * @param repository The repository loading the characters.
+   * @param registry The registry of the cache metrics.
+   * @param maxSize The maximal number of cached characters.
+   * @param ttl The time to live of the cached characters in milliseconds.
+   */
+  public CharacterCache(
+    CharacterRepository repository,
+    MeterRegistry registry,
+    int maxSize,
+    long ttl
+  ) {
+    this(repository, registry, maxSize, ttl, DEFAULT_VALIDATE_AFTER);
+  }
+
+  /**
+   * Create a cache.
+   * @param repository The repository loading the characters.
+   * @param registry The registry of the cache metrics.
+   * @param maxSize The maximal number of cached characters.
+   * @param ttl The time to live of the cached characters in milliseconds.
+   * @param validateAfter The interval in milliseconds after which a cached
+   *  character is validated against the database.
+   */
+  @Autowired
+  public CharacterCache(
+    CharacterRepository repository,
+    MeterRegistry registry,
+    @Value("${dune.characters.cache.max-size:1000}") int maxSize,
+    @Value("${dune.characters.cache.ttl:300000}") long ttl,
+    @Value("${dune.characters.cache.validate-after:1000}") long validateAfter
+  ) {
+    this.repository = repository;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+    this.validateAfterNanos = TimeUnit.MILLISECONDS.toNanos(validateAfter);
+    this.entries =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Short, Entry> eldest) {
+          if (size() > maxSize) {
+            evictions.incrementAndGet();
+            return true;
+          }
+          return false;
+        }
+      };
+    FunctionCounter
+      .builder("dune.characters.cache.hits", hits, AtomicLong::get)
+      .register(registry);
+    FunctionCounter
+      .builder("dune.characters.cache.misses", misses, AtomicLong::get)
+      .register(registry);
+    FunctionCounter
+      .builder("dune.characters.cache.evictions", evictions, AtomicLong::get)
+      .register(registry);
+    FunctionCounter
+      .builder("dune.characters.cache.stale", stale, AtomicLong::get)
+      .register(registry);
+    FunctionCounter
+      .builder(
+        "dune.characters.cache.shared.loads",
+        loads,
+        SingleFlight::getShared
+      )
+      .register(registry);
+    Gauge
+      .builder("dune.characters.cache.size", this, CharacterCache::size)
+      .register(registry);
+  }
+
+  /**
+   * Get a character.
+   *
+   * A cached character not validated within the validation interval is
+   * served only if the database still has the same version of the
+   * character.
+   *
+   * @param id The identifier of the character.
+   * @return The character, or an empty value, if no character has the
+   *  identifier.
+   * @throws SQLException The loading of the character failed.
+   */
+  public Optional<CharacterSheet> get(short id) throws SQLException {
+    Optional<Entry> cached = getEntry(id);
+    if (cached.isPresent() && validate(id, cached.get())) {
+      hits.incrementAndGet();
+      return Optional.of(cached.get().character());
+    }
+    misses.incrementAndGet();
+    return loads.load(
+      id,
+      (Short key) -> {
+        final long loadGeneration = getGeneration();
+        Optional<CharacterSheet> loaded = repository.find(key);
+        loaded.ifPresent(character -> put(character, loadGeneration));
+        return loaded;
+      }
+    );
+  }
+
+  /**
+   * Get a cached character without loading it.
+   * @param id The identifier of the character.
+   * @return The cached character, or an empty value, if the character is not
+   *  cached.
+   */
+  public Optional<CharacterSheet> getCached(short id) {
+    return getEntry(id).map(Entry::character);
+  }
+
+  /**
+   * Get an unexpired cache entry.
+   * @param id The identifier of the character.
+   * @return The cache entry, or an empty value, if the character is not
+   *  cached.
+   */
+  private synchronized Optional<Entry> getEntry(short id) {
+    Entry entry = entries.get(id);
+    if (entry == null) {
+      return Optional.empty();
+    } else if (System.nanoTime() - entry.expires() >= 0) {
+      entries.remove(id);
+      evictions.incrementAndGet();
+      return Optional.empty();
+    }
+    return Optional.of(entry);
+  }
+
+  /**
+   * Validate a cache entry against the version of the character in the
+   * database. A stale entry is removed.
+   * @param id The identifier of the character.
+   * @param entry The validated entry.
+   * @return True, if and only if the entry may be served.
+   * @throws SQLException The query of the version failed.
+   */
+  private boolean validate(short id, Entry entry) throws SQLException {
+    final long now = System.nanoTime();
+    if (now - entry.validated() < validateAfterNanos) {
+      return true;
+    }
+    Optional<Integer> version = repository.findVersion(id);
+    synchronized (this) {
+      if (
+        version.isPresent() && version.get() == entry.character().version()
+      ) {
+        entries.replace(
+          id,
+          entry,
+          new Entry(entry.character(), entry.expires(), now)
+        );
+        return true;
+      }
+      entries.remove(id, entry);
+    }
+    stale.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Store a character into the cache.
+   * @param character The cached character.
+   */
+  public synchronized void put(CharacterSheet character) {
+    final long now = System.nanoTime();
+    entries.put(character.id(), new Entry(character, now + ttlNanos, now));
+  }
+
+  /**
+   * Store a character loaded at the given generation into the cache, unless
+   * the cache has been invalidated after the load began.
+   * @param character The cached character.
+   * @param loadGeneration The generation at the start of the load.
+   */
+  private synchronized void put(CharacterSheet character, long loadGeneration) {
+    if (generation == loadGeneration) {
+      put(character);
+    }
+  }
+
+  /**
+   * Get the current generation of the cache.
+   * @return The number of invalidations performed.
+   */
+  private synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Remove a character from the cache.
+   * @param id The identifier of the removed character.
+   */
+  public synchronized void invalidate(short id) {
+    generation++;
+    entries.remove(id);
+    loads.forget(id);
+  }
+
+  /**
+   * Remove all characters from the cache.
+   */
+  public synchronized void invalidateAll() {
+    generation++;
+    entries.clear();
+    loads.forgetAll();
+  }
+
+  /**
+   * Invalidate the changed character.
+   * @param event The character change event.
+   */
+  @EventListener
+  public void onCharacterChanged(CharacterChangedEvent event) {
+    // The cached characters have identifiers within the range of the keys.
+    if (event.id() >= Short.MIN_VALUE && event.id() <= Short.MAX_VALUE) {
+      invalidate((short) event.id());
+    }
+  }
+
+  /**
+   * Get the number of cached characters.
+   * @return The number of characters in the cache.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Get the number of reads served from the cache.
+   * @return The hit count.
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Get the number of reads loaded from the repository.
+   * @return The miss count.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Get the number of reads sharing the load of another read.
+   * @return The shared load count.
+   */
+  public long getSharedLoads() {
+    return loads.getShared();
+  }
+
+  /**
+   * Get the number of cached characters found stale by the validation.
+   * @return The stale count.
+   */
+  public long getStale() {
+    return stale.get();
+  }
+
+  /**
+   * Get the number of evicted characters.
+   * @return The eviction count.
+   */
+  public long getEvictions() {
+    return evictions.get();
+  }
+}
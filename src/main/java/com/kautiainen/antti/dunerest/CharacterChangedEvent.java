@@ -0,0 +1,9 @@
+package com.kautiainen.antti.dunerest;
+
+/**
+ * The event published after a character has been created, updated, or
+ * deleted.
+ *
+ * @param id The identifier of the changed character.
+ */
+public record CharacterChangedEvent(int id) {}
@@ -0,0 +1,153 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.utils.db.BulkLoader;
+import com.kautiainen.antti.utils.db.Query;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.zip.GZIPOutputStream;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The streaming bulk exporter of the characters.
+ *
+ * The characters are exported as CSV in the format accepted by the
+ * {@link CharacterImporter}: the columns <code>name</code> and
+ * <code>creator</code> followed by a column for each skill and drive with the
+ * value of the rating, or an empty field, if the character does not have the
+ * rating. The CSV is copied from the database with <code>COPY TO
+ * STDOUT</code> through a fixed-size buffer to the output, so the memory used
+ * does not depend on the number of the characters.
+ */
+@Component
+public class CharacterExporter {
+
+  private final DataSource dataSource;
+
+  /**
+   * The reference data providing the skill and drive columns.
+   */
+  private final ReferenceData referenceData;
+
+  /**
+   * The size of the output buffer in bytes.
+   */
+  private final int bufferSize;
+
+  @Autowired
+  public CharacterExporter(
+    DataSource dataSource,
+    ReferenceData referenceData,
+    @Value("${dune.export.buffer-size:65536}") int bufferSize
+  ) {
+    this.dataSource = dataSource;
+    this.referenceData = referenceData;
+    this.bufferSize = Math.max(512, bufferSize);
+  }
+
+  /**
+   * Create the export query of the characters.
+   * @param reference The reference data providing the rating columns.
+   * @return The query of the characters in the order of their identifiers.
+   */
+  public static Query getQuery(ReferenceData.Snapshot reference) {
+    Query.Builder builder = Query
+      .builder()
+      .select("c.name AS name", "c.creator AS creator")
+      .from("characters c")
+      .orderBy("c.id");
+    addRatings(builder, reference.skills(), "character_skills", "sid");
+    addRatings(builder, reference.drives(), "character_drives", "did");
+    return builder.build();
+  }
+
+  /**
+   * Add a column for each rating of the dictionary.
+   * @param builder The builder of the query.
+   * @param dictionary The dictionary of the ratings.
+   * @param table The table of the character ratings.
+   * @param column The column of the rating identifier.
+   */
+  private static void addRatings(
+    Query.Builder builder,
+    ReferenceDictionary dictionary,
+    String table,
+    String column
+  ) {
+    for (int id = 0; id <= dictionary.getMaxId(); id++) {
+      if (dictionary.contains(id)) {
+        builder.select(
+          "(SELECT value FROM " +
+          table +
+          " WHERE cid = c.id AND " +
+          column +
+          " = " +
+          id +
+          ") AS " +
+          quoteIdentifier(dictionary.getName(id))
+        );
+      }
+    }
+  }
+
+  /**
+   * Quote an identifier.
+   * @param name The name.
+   * @return The quoted identifier of the name.
+   */
+  private static String quoteIdentifier(String name) {
+    return "\"" + name.replace("\"", "\"\"") + "\"";
+  }
+
+  /**
+   * Export the characters.
+   *
+   * The compressed output is finished before the output is flushed, so the
+   * output ends with the complete gzip trailer.
+   *
+   * @param out The output of the export. The output is not closed.
+   * @param gzip Is the CSV compressed with gzip.
+   * @return The number of the exported characters.
+   * @throws IOException The writing of the export failed.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public long export(OutputStream out, boolean gzip)
+    throws IOException, SQLException {
+    final String query = getQuery(referenceData.get()).getSql();
+    try (Connection connection = dataSource.getConnection()) {
+      GZIPOutputStream compressed = gzip
+        ? new GZIPOutputStream(out, bufferSize)
+        : null;
+      BufferedOutputStream buffered = new BufferedOutputStream(
+        compressed == null ? out : compressed,
+        bufferSize
+      );
+      long result = copy(connection, query, buffered);
+      buffered.flush();
+      if (compressed != null) {
+        compressed.finish();
+      }
+      out.flush();
+      return result;
+    }
+  }
+
+  /**
+   * Copy the CSV of the export query to the output.
+   * @param connection The connection to the database.
+   * @param query The export query.
+   * @param out The output of the CSV.
+   * @return The number of the exported characters.
+   * @throws IOException The writing of the CSV failed.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  protected long copy(Connection connection, String query, OutputStream out)
+    throws IOException, SQLException {
+    return BulkLoader.export(connection, query, out);
+  }
+}
@@ -0,0 +1,668 @@
+package com.kautiainen.antti.dunerest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kautiainen.antti.dunerest.CharacterSheet.Rating;
+import com.kautiainen.antti.utils.db.BulkLoader;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * The streaming bulk importer of the characters.
+ *
+ * The imported characters are read one record at a time from either
+ * newline delimited JSON, or CSV. The skill and drive names are resolved with
+ * the reference data. The valid characters are written in batches, each batch
+ * in its own transaction, and the progress is reported after every batch.
+ *
+ * The importer reads the next records only after the previous batch has been
+ * written, so a client sending faster than the database writes is slowed
+ * down by the flow control of the connection. The number of concurrent
+ * imports is limited.
+ */
+@Component
+public class CharacterImporter {
+
+  /**
+   * The formats of the imported data.
+   */
+  public static enum Format {
+    /**
+     * Newline delimited JSON with a character object per line. The skills
+     * and the drives are objects from the names to the values.
+     */
+    NDJSON,
+    /**
+     * CSV with a header row. The columns <code>name</code> and
+     * <code>creator</code> are required, and the other columns are skill or
+     * drive names with the values of the ratings.
+     */
+    CSV,
+  }
+
+  /**
+   * The progress of an import after a batch.
+   * @param batch The number of the batches processed.
+   * @param records The number of the records read.
+   * @param imported The number of the characters imported.
+   * @param failed The number of the records not imported.
+   * @param errors The errors of the batch.
+   * @param done Has the import completed.
+   */
+  public static record Progress(
+    int batch,
+    long records,
+    long imported,
+    long failed,
+    List<String> errors,
+    boolean done
+  ) {}
+
+  /**
+   * The listener of the import progress.
+   */
+  @FunctionalInterface
+  public static interface ProgressListener {
+    /**
+     * Report the progress after a batch.
+     * @param progress The progress.
+     * @throws IOException The reporting failed. The import is aborted.
+     */
+    public void onProgress(Progress progress) throws IOException;
+  }
+
+  /**
+   * A parsed record.
+   * @param number The number of the record starting from one.
+   * @param character The parsed character, or an undefined value, if the
+   *  record was invalid.
+   * @param error The error of an invalid record.
+   */
+  protected static record Parsed(
+    long number,
+    CharacterSheet character,
+    String error
+  ) {}
+
+  /**
+   * The insert of a character.
+   */
+  private static final String INSERT_CHARACTER_SQL =
+    "INSERT INTO characters (name, creator) VALUES (?, ?)";
+
+  /**
+   * The insert of a skill rating.
+   */
+  private static final String INSERT_SKILL_SQL =
+    "INSERT INTO character_skills (cid, sid, value) VALUES (?, ?, ?)";
+
+  /**
+   * The insert of a drive rating.
+   */
+  private static final String INSERT_DRIVE_SQL =
+    "INSERT INTO character_drives (cid, did, value) VALUES (?, ?, ?)";
+
+  private final DataSource dataSource;
+
+  /**
+   * The reference data resolving the skill and drive names.
+   */
+  private final ReferenceData referenceData;
+
+  /**
+   * The publisher of the character change events.
+   */
+  private final ApplicationEventPublisher publisher;
+
+  /**
+   * The mapper parsing the JSON records.
+   */
+  private final ObjectMapper mapper;
+
+  /**
+   * The maximal number of records in a batch.
+   */
+  private final int batchSize;
+
+  /**
+   * The permits of the concurrent imports.
+   */
+  private final Semaphore imports;
+
+  /**
+   * Are the sheet documents of the imported characters stored.
+   */
+  private final boolean snapshots;
+
+  @Autowired
+  public CharacterImporter(
+    DataSource dataSource,
+    ReferenceData referenceData,
+    ApplicationEventPublisher publisher,
+    ObjectMapper mapper,
+    @Value("${dune.import.batch-size:500}") int batchSize,
+    @Value("${dune.import.max-concurrent:2}") int maxConcurrent,
+    @Value("${dune.characters.snapshot.enabled:false}") boolean snapshots
+  ) {
+    this.dataSource = dataSource;
+    this.referenceData = referenceData;
+    this.publisher = publisher;
+    this.mapper = mapper;
+    this.batchSize = Math.max(1, batchSize);
+    this.imports = new Semaphore(Math.max(1, maxConcurrent));
+    this.snapshots = snapshots;
+  }
+
+  /**
+   * Import the characters.
+   * @param data The stream of the imported data.
+   * @param format The format of the data.
+   * @param listener The listener of the progress.
+   * @return The final progress, or an empty value, if the maximal number of
+   *  imports is already in progress.
+   * @throws IOException The reading of the data, or the reporting of the
+   *  progress failed.
+   */
+  public Optional<Progress> importCharacters(
+    InputStream data,
+    Format format,
+    ProgressListener listener
+  ) throws IOException {
+    if (!imports.tryAcquire()) {
+      return Optional.empty();
+    }
+    try {
+      BufferedReader reader = new BufferedReader(
+        new InputStreamReader(data, StandardCharsets.UTF_8)
+      );
+      ReferenceData.Snapshot reference = referenceData.get();
+      return Optional.of(
+        importRecords(
+          format == Format.CSV
+            ? readCsv(reader, reference)
+            : readJson(reader, reference),
+          listener
+        )
+      );
+    } finally {
+      imports.release();
+    }
+  }
+
+  /**
+   * Import the parsed records in batches.
+   * @param records The parsed records.
+   * @param listener The listener of the progress.
+   * @return The final progress.
+   * @throws IOException The reading of the records, or the reporting of the
+   *  progress failed.
+   */
+  protected Progress importRecords(
+    Iterator<Parsed> records,
+    ProgressListener listener
+  ) throws IOException {
+    List<CharacterSheet> batch = new ArrayList<>(batchSize);
+    List<String> errors = new ArrayList<>();
+    int batches = 0;
+    long read = 0;
+    long imported = 0;
+    long failed = 0;
+    try {
+      while (records.hasNext()) {
+        Parsed parsed = records.next();
+        read++;
+        if (parsed.error() != null) {
+          errors.add("Record " + parsed.number() + ": " + parsed.error());
+          failed++;
+        } else {
+          batch.add(parsed.character());
+        }
+        if (batch.size() + errors.size() >= batchSize) {
+          int written = writeBatch(batch, errors);
+          imported += written;
+          failed += batch.size() - written;
+          listener.onProgress(
+            new Progress(++batches, read, imported, failed, errors, false)
+          );
+          batch = new ArrayList<>(batchSize);
+          errors = new ArrayList<>();
+        }
+      }
+    } catch (UncheckedIOException uioe) {
+      throw uioe.getCause();
+    }
+    int written = writeBatch(batch, errors);
+    imported += written;
+    failed += batch.size() - written;
+    Progress result = new Progress(
+      ++batches,
+      read,
+      imported,
+      failed,
+      errors,
+      true
+    );
+    listener.onProgress(result);
+    return result;
+  }
+
+  /**
+   * Write a batch, and report its failure as an error.
+   * @param batch The written characters.
+   * @param errors The list into which the error of the batch is added.
+   * @return The number of the written characters.
+   */
+  private int writeBatch(List<CharacterSheet> batch, List<String> errors) {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    try {
+      List<Integer> ids = write(batch);
+      ids.forEach(id -> publisher.publishEvent(new CharacterChangedEvent(id)));
+      return ids.size();
+    } catch (SQLException sqle) {
+      errors.add(
+        "Batch of " + batch.size() + " characters failed: " + sqle.getMessage()
+      );
+      return 0;
+    }
+  }
+
+  /**
+   * Write the characters in a single transaction.
+   * @param batch The written characters.
+   * @return The identifiers of the created characters in the order of the
+   *  characters.
+   * @throws SQLException The operation failed due SQL exception. Nothing was
+   *  written.
+   */
+  protected List<Integer> write(List<CharacterSheet> batch)
+    throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        List<Integer> ids = new ArrayList<>(batch.size());
+        try (
+          PreparedStatement insert = connection.prepareStatement(
+            INSERT_CHARACTER_SQL,
+            new String[] { "id" }
+          )
+        ) {
+          for (CharacterSheet character : batch) {
+            insert.setString(1, character.name());
+            insert.setString(2, character.creator());
+            insert.addBatch();
+          }
+          insert.executeBatch();
+          try (ResultSet keys = insert.getGeneratedKeys()) {
+            while (keys.next()) {
+              ids.add(keys.getInt(1));
+            }
+          }
+        }
+        if (ids.size() != batch.size()) {
+          throw new SQLException("Missing generated character identifiers");
+        }
+        insertRatings(
+          connection,
+          INSERT_SKILL_SQL,
+          ids,
+          batch,
+          CharacterSheet::skills
+        );
+        insertRatings(
+          connection,
+          INSERT_DRIVE_SQL,
+          ids,
+          batch,
+          CharacterSheet::drives
+        );
+        if (snapshots) {
+          int[] created = new int[ids.size()];
+          for (int i = 0; i < created.length; i++) {
+            created[i] = ids.get(i);
+          }
+          CharacterRepository.updateSheets(connection, created);
+        }
+        connection.commit();
+        return ids;
+      } catch (SQLException sqle) {
+        connection.rollback();
+        throw sqle;
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    }
+  }
+
+  /**
+   * Insert the ratings of the characters as a single batch.
+   * @param connection The connection to the database.
+   * @param sql The insert with the character identifier, the rating
+   *  identifier, and the rating value as parameters.
+   * @param ids The identifiers of the characters.
+   * @param batch The characters.
+   * @param ratings The function returning the inserted ratings of a
+   *  character.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private static void insertRatings(
+    Connection connection,
+    String sql,
+    List<Integer> ids,
+    List<CharacterSheet> batch,
+    Function<CharacterSheet, List<Rating>> ratings
+  ) throws SQLException {
+    try (PreparedStatement insert = connection.prepareStatement(sql)) {
+      for (int i = 0; i < batch.size(); i++) {
+        for (Rating rating : ratings.apply(batch.get(i))) {
+          insert.setInt(1, ids.get(i));
+          insert.setShort(2, rating.id());
+          insert.setShort(3, rating.value());
+          insert.addBatch();
+        }
+      }
+      insert.executeBatch();
+    }
+  }
+
+  /**
+   * The iterator reading a record at a time.
+   */
+  private abstract static class RecordIterator implements Iterator<Parsed> {
+
+    /**
+     * The next record, or an undefined value, if the next record has not
+     * been read.
+     */
+    private Parsed next = null;
+
+    /**
+     * Has the end of the data been reached.
+     */
+    private boolean end = false;
+
+    /**
+     * The number of the records read.
+     */
+    protected long count = 0;
+
+    /**
+     * Read the next record.
+     * @return The next record, or an undefined value at the end of the data.
+     * @throws IOException The reading failed.
+     */
+    protected abstract Parsed read() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+      if (next == null && !end) {
+        try {
+          next = read();
+        } catch (IOException ioe) {
+          throw new UncheckedIOException(ioe);
+        }
+        end = next == null;
+      }
+      return next != null;
+    }
+
+    @Override
+    public Parsed next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Parsed result = next;
+      next = null;
+      return result;
+    }
+  }
+
+  /**
+   * Create the iterator of the newline delimited JSON records.
+   * @param reader The reader of the data.
+   * @param reference The reference data resolving the names.
+   * @return The iterator of the records. Empty lines are skipped.
+   */
+  protected Iterator<Parsed> readJson(
+    BufferedReader reader,
+    ReferenceData.Snapshot reference
+  ) {
+    return new RecordIterator() {
+      @Override
+      protected Parsed read() throws IOException {
+        String line;
+        do {
+          line = reader.readLine();
+        } while (line != null && line.isBlank());
+        if (line == null) {
+          return null;
+        }
+        final long number = ++count;
+        try {
+          JsonNode node = mapper.readTree(line);
+          if (!node.isObject()) {
+            return new Parsed(number, null, "Not a JSON object");
+          }
+          List<Rating> skills = new ArrayList<>();
+          List<Rating> drives = new ArrayList<>();
+          String error = readRatings(
+            node.get("skills"),
+            reference.skills(),
+            "skill",
+            skills
+          );
+          if (error == null) {
+            error =
+              readRatings(
+                node.get("drives"),
+                reference.drives(),
+                "drive",
+                drives
+              );
+          }
+          return create(
+            number,
+            node.path("name").asText(null),
+            node.path("creator").asText(null),
+            skills,
+            drives,
+            error
+          );
+        } catch (JsonProcessingException jpe) {
+          return new Parsed(
+            number,
+            null,
+            "Invalid JSON: " + jpe.getOriginalMessage()
+          );
+        }
+      }
+    };
+  }
+
+  /**
+   * Read the ratings of a JSON object from names to values.
+   * @param ratings The JSON object, or an undefined value.
+   * @param dictionary The dictionary resolving the names.
+   * @param type The type of the ratings in the error messages.
+   * @param result The list into which the ratings are added.
+   * @return The error, or an undefined value, if the ratings were valid.
+   */
+  private static String readRatings(
+    JsonNode ratings,
+    ReferenceDictionary dictionary,
+    String type,
+    List<Rating> result
+  ) {
+    if (ratings == null || ratings.isNull()) {
+      return null;
+    } else if (!ratings.isObject()) {
+      return "The " + type + "s are not an object";
+    }
+    Iterator<Map.Entry<String, JsonNode>> fields = ratings.fields();
+    while (fields.hasNext()) {
+      Map.Entry<String, JsonNode> field = fields.next();
+      int id = dictionary.getId(field.getKey());
+      if (id < 0) {
+        return "Unknown " + type + " " + field.getKey();
+      } else if (!field.getValue().canConvertToInt()) {
+        return "Invalid " + type + " value of " + field.getKey();
+      }
+      int value = field.getValue().asInt();
+      if (value < 0 || value > Short.MAX_VALUE) {
+        return "Invalid " + type + " value of " + field.getKey();
+      }
+      result.add(new Rating((short) id, (short) value));
+    }
+    return null;
+  }
+
+  /**
+   * Create the iterator of the CSV records.
+   * @param reader The reader of the data.
+   * @param reference The reference data resolving the names.
+   * @return The iterator of the records. Empty lines are skipped.
+   * @throws IOException The header was missing or invalid.
+   */
+  protected Iterator<Parsed> readCsv(
+    BufferedReader reader,
+    ReferenceData.Snapshot reference
+  ) throws IOException {
+    final List<String> header = BulkLoader.readRecord(reader);
+    if (header == null) {
+      throw new IOException("Missing CSV header");
+    }
+    final int columns = header.size();
+    final int[] skillIds = new int[columns];
+    final int[] driveIds = new int[columns];
+    int nameColumn = -1;
+    int creatorColumn = -1;
+    for (int i = 0; i < columns; i++) {
+      String column = header.get(i) == null ? "" : header.get(i).trim();
+      skillIds[i] = -1;
+      driveIds[i] = -1;
+      if (column.equalsIgnoreCase("name")) {
+        nameColumn = i;
+      } else if (column.equalsIgnoreCase("creator")) {
+        creatorColumn = i;
+      } else if ((skillIds[i] = reference.skills().getId(column)) < 0) {
+        if ((driveIds[i] = reference.drives().getId(column)) < 0) {
+          throw new IOException("Unknown CSV column " + column);
+        }
+      }
+    }
+    if (nameColumn < 0 || creatorColumn < 0) {
+      throw new IOException("CSV header requires name and creator columns");
+    }
+    final int name = nameColumn;
+    final int creator = creatorColumn;
+    return new RecordIterator() {
+      @Override
+      protected Parsed read() throws IOException {
+        List<String> fields;
+        do {
+          fields = BulkLoader.readRecord(reader);
+        } while (fields != null && fields.size() == 1 && fields.get(0) == null);
+        if (fields == null) {
+          return null;
+        }
+        final long number = ++count;
+        if (fields.size() != columns) {
+          return new Parsed(
+            number,
+            null,
+            fields.size() + " fields instead of " + columns
+          );
+        }
+        List<Rating> skills = new ArrayList<>();
+        List<Rating> drives = new ArrayList<>();
+        for (int i = 0; i < columns; i++) {
+          String field = fields.get(i);
+          if (i == name || i == creator || field == null || field.isBlank()) {
+            continue;
+          }
+          short value;
+          try {
+            value = Short.parseShort(field.trim());
+          } catch (NumberFormatException nfe) {
+            value = -1;
+          }
+          if (value < 0) {
+            return new Parsed(
+              number,
+              null,
+              "Invalid value of " + header.get(i)
+            );
+          } else if (skillIds[i] >= 0) {
+            skills.add(new Rating((short) skillIds[i], value));
+          } else {
+            drives.add(new Rating((short) driveIds[i], value));
+          }
+        }
+        return create(
+          number,
+          fields.get(name),
+          fields.get(creator),
+          skills,
+          drives,
+          null
+        );
+      }
+    };
+  }
+
+  /**
+   * Create a parsed record.
+   * @param number The number of the record.
+   * @param name The name of the character.
+   * @param creator The creator of the character.
+   * @param skills The skill ratings.
+   * @param drives The drive ratings.
+   * @param error The error of the ratings, or an undefined value.
+   * @return The parsed record, which is invalid, if there was an error, or
+   *  the name or the creator was missing.
+   */
+  private static Parsed create(
+    long number,
+    String name,
+    String creator,
+    List<Rating> skills,
+    List<Rating> drives,
+    String error
+  ) {
+    if (error != null) {
+      return new Parsed(number, null, error);
+    } else if (name == null || name.isBlank()) {
+      return new Parsed(number, null, "Missing name");
+    } else if (creator == null || creator.isBlank()) {
+      return new Parsed(number, null, "Missing creator");
+    }
+    return new Parsed(
+      number,
+      new CharacterSheet((short) 0, name, creator, 1, skills, drives, null),
+      null
+    );
+  }
+}
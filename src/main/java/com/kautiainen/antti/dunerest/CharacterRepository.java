@@ -0,0 +1,699 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.dunerest.CharacterSheet.DriveStatement;
+import com.kautiainen.antti.dunerest.CharacterSheet.Rating;
+import com.kautiainen.antti.utils.db.RepeatableRead;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * The repository of the character aggregates.
+ *
+ * The characters are read without joining the reference data tables. The
+ * names of the skills and drives are resolved from the {@link ReferenceData}.
+ *
+ * Every write publishes a {@link CharacterChangedEvent} after the change has
+ * been committed.
+ *
+ * In the snapshot mode every write also stores the JSON document of the
+ * character sheet into the <code>sheet</code> column in the same
+ * transaction, so a sheet is read with a single primary key lookup. The
+ * document is built by the database. Outside the snapshot mode the writes
+ * clear the document, so a stored document is never stale.
+ */
+@Component
+public class CharacterRepository {
+
+  /**
+   * The query of a character.
+   */
+  private static final String CHARACTER_SQL =
+    "SELECT id, name, creator, version FROM characters WHERE id = ?";
+
+  /**
+   * The query of the version of a character.
+   */
+  private static final String VERSION_SQL =
+    "SELECT version FROM characters WHERE id = ?";
+
+  /**
+   * The query of all characters.
+   */
+  private static final String ALL_CHARACTERS_SQL =
+    "SELECT id, name, creator, version FROM characters ORDER BY id";
+
+  /**
+   * The query of the change marker of the characters.
+   */
+  private static final String CHANGE_MARKER_SQL =
+    "SELECT count(*), COALESCE(sum(version), 0), COALESCE(max(id), 0)" +
+    " FROM characters";
+
+  /**
+   * The query of the skills of a character.
+   */
+  private static final String SKILLS_SQL =
+    "SELECT sid, value FROM character_skills WHERE cid = ? ORDER BY sid";
+
+  /**
+   * The query of the drives of a character.
+   */
+  private static final String DRIVES_SQL =
+    "SELECT did, value FROM character_drives WHERE cid = ? ORDER BY did";
+
+  /**
+   * The query of the drive statements of a character.
+   */
+  private static final String STATEMENTS_SQL =
+    "SELECT did, statement FROM character_drive_statements WHERE cid = ? ORDER BY did, row_id";
+
+  /**
+   * The insert of a character.
+   */
+  private static final String INSERT_CHARACTER_SQL =
+    "INSERT INTO characters (name, creator) VALUES (?, ?) RETURNING id";
+
+  /**
+   * The update of a character.
+   */
+  private static final String UPDATE_CHARACTER_SQL =
+    "UPDATE characters SET name = ?, creator = ?, version = version + 1, sheet = NULL WHERE id = ?";
+
+  /**
+   * The update of a character having any of the versions in an array.
+   */
+  private static final String UPDATE_MATCHED_CHARACTER_SQL =
+    UPDATE_CHARACTER_SQL + " AND version = ANY (?)";
+
+  /**
+   * The expression building the JSON document of the character sheet of the
+   * character <code>c</code>. The document has the same structure as the
+   * JSON of the {@link CharacterSheet}.
+   */
+  static final String SHEET_EXPRESSION =
+    "jsonb_build_object('id', c.id, 'name', c.name, 'creator', c.creator" +
+    ", 'version', c.version" +
+    ", 'skills', (SELECT COALESCE(jsonb_agg(jsonb_build_object(" +
+    "'id', s.sid, 'value', s.value) ORDER BY s.sid), '[]'::jsonb)" +
+    " FROM character_skills s WHERE s.cid = c.id)" +
+    ", 'drives', (SELECT COALESCE(jsonb_agg(jsonb_build_object(" +
+    "'id', d.did, 'value', d.value) ORDER BY d.did), '[]'::jsonb)" +
+    " FROM character_drives d WHERE d.cid = c.id)" +
+    ", 'statements', (SELECT COALESCE(jsonb_agg(jsonb_build_object(" +
+    "'driveId', st.did, 'statement', st.statement)" +
+    " ORDER BY st.did, st.row_id), '[]'::jsonb)" +
+    " FROM character_drive_statements st WHERE st.cid = c.id))";
+
+  /**
+   * The update of the sheet documents of the characters in an array.
+   */
+  private static final String UPDATE_SHEETS_SQL =
+    "UPDATE characters c SET sheet = " +
+    SHEET_EXPRESSION +
+    " WHERE c.id = ANY (?)";
+
+  /**
+   * The query of the version and the sheet document of a character.
+   */
+  private static final String SHEET_SQL =
+    "SELECT version, sheet::text AS sheet FROM characters WHERE id = ?";
+
+  /**
+   * The update storing a missing sheet document of a character.
+   */
+  private static final String STORE_SHEET_SQL =
+    "UPDATE characters c SET sheet = " +
+    SHEET_EXPRESSION +
+    " WHERE c.id = ? AND c.sheet IS NULL" +
+    " RETURNING c.version, c.sheet::text AS sheet";
+
+  /**
+   * The delete of a character.
+   */
+  private static final String DELETE_CHARACTER_SQL =
+    "DELETE FROM characters WHERE id = ?";
+
+  /**
+   * The insert of a skill rating.
+   */
+  private static final String INSERT_SKILL_SQL =
+    "INSERT INTO character_skills (cid, sid, value) VALUES (?, ?, ?)";
+
+  /**
+   * The insert of a drive rating.
+   */
+  private static final String INSERT_DRIVE_SQL =
+    "INSERT INTO character_drives (cid, did, value) VALUES (?, ?, ?)";
+
+  /**
+   * The insert of a drive statement.
+   */
+  private static final String INSERT_STATEMENT_SQL =
+    "INSERT INTO character_drive_statements (cid, did, statement) VALUES (?, ?, ?)";
+
+  /**
+   * The delete of the skill ratings of a character.
+   */
+  private static final String DELETE_SKILLS_SQL =
+    "DELETE FROM character_skills WHERE cid = ?";
+
+  /**
+   * The delete of the drive ratings and the drive statements of a character.
+   */
+  private static final String DELETE_DRIVES_SQL =
+    "DELETE FROM character_drives WHERE cid = ?";
+
+  private final DataSource dataSource;
+
+  /**
+   * The publisher of the character change events.
+   */
+  private final ApplicationEventPublisher publisher;
+
+  /**
+   * Are the sheet documents stored.
+   */
+  private final boolean snapshots;
+
+  /**
+   * Create a repository without the sheet documents.
+   * @param dataSource The data source of the characters.
+   * @param publisher The publisher of the change events.
+   */
+  public CharacterRepository(
+    DataSource dataSource,
+    ApplicationEventPublisher publisher
+  ) {
+    this(dataSource, publisher, false);
+  }
+
+  /**
+   * Create a repository.
+   * @param dataSource The data source of the characters.
+   * @param publisher The publisher of the change events.
+   * @param snapshots Are the sheet documents stored and read.
+   */
+  @Autowired
+  public CharacterRepository(
+    DataSource dataSource,
+    ApplicationEventPublisher publisher,
+    @Value("${dune.characters.snapshot.enabled:false}") boolean snapshots
+  ) {
+    this.dataSource = dataSource;
+    this.publisher = publisher;
+    this.snapshots = snapshots;
+  }
+
+  /**
+   * Test whether the repository is in the snapshot mode.
+   * @return True, if and only if the sheet documents are stored and read.
+   */
+  public boolean isSnapshotEnabled() {
+    return snapshots;
+  }
+
+  /**
+   * The stored JSON document of a character sheet.
+   * @param version The version of the character.
+   * @param json The JSON document of the character sheet.
+   */
+  public static record Snapshot(int version, String json) {}
+
+  /**
+   * The summary of a character without its ratings and statements.
+   * @param id The identifier of the character.
+   * @param name The name of the character.
+   * @param creator The creator of the character.
+   * @param version The version of the character.
+   */
+  public static record Summary(
+    short id,
+    String name,
+    String creator,
+    int version
+  ) {}
+
+  /**
+   * The change marker of the characters. Every write of a character changes
+   * the number of the characters, the sum of their versions, or the maximal
+   * identifier.
+   * @param count The number of the characters.
+   * @param versions The sum of the versions of the characters.
+   * @param maxId The maximal identifier of the characters.
+   */
+  public static record ChangeMarker(long count, long versions, int maxId) {}
+
+  /**
+   * Get the summaries of all characters.
+   * @return The list of character summaries ordered by the identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public List<Summary> findAll() throws SQLException {
+    List<Summary> result = new ArrayList<>();
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement query = connection.prepareStatement(
+        ALL_CHARACTERS_SQL
+      );
+      ResultSet rows = query.executeQuery()
+    ) {
+      while (rows.next()) {
+        result.add(
+          new Summary(
+            rows.getShort("id"),
+            rows.getString("name"),
+            rows.getString("creator"),
+            rows.getInt("version")
+          )
+        );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Find the change marker of the characters.
+   * @return The current change marker.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public ChangeMarker findChangeMarker() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      return readChangeMarker(connection);
+    }
+  }
+
+  /**
+   * Read the change marker of the characters.
+   * @param connection The connection to the database.
+   * @return The current change marker.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  static ChangeMarker readChangeMarker(Connection connection)
+    throws SQLException {
+    try (
+      PreparedStatement query = connection.prepareStatement(CHANGE_MARKER_SQL);
+      ResultSet result = query.executeQuery()
+    ) {
+      result.next();
+      return new ChangeMarker(
+        result.getLong(1),
+        result.getLong(2),
+        result.getInt(3)
+      );
+    }
+  }
+
+  /**
+   * Create a new character.
+   * @param character The created character. The identifier of the character
+   *  is ignored.
+   * @return The identifier of the created character.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public short create(CharacterSheet character) throws SQLException {
+    short id;
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        try (
+          PreparedStatement insert = connection.prepareStatement(
+            INSERT_CHARACTER_SQL
+          )
+        ) {
+          insert.setString(1, character.name());
+          insert.setString(2, character.creator());
+          try (ResultSet result = insert.executeQuery()) {
+            result.next();
+            id = result.getShort(1);
+          }
+        }
+        insertDetails(connection, id, character);
+        if (snapshots) {
+          updateSheets(connection, id);
+        }
+        connection.commit();
+      } catch (SQLException sqle) {
+        connection.rollback();
+        throw sqle;
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    }
+    publisher.publishEvent(new CharacterChangedEvent(id));
+    return id;
+  }
+
+  /**
+   * Replace an existing character.
+   * @param character The new content of the character with the identifier of
+   *  the replaced character.
+   * @return True, if and only if the character existed.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public boolean update(CharacterSheet character) throws SQLException {
+    return update(character, null);
+  }
+
+  /**
+   * Replace an existing character having any of the given versions.
+   *
+   * The version is tested by the update of the character row, so of the
+   * concurrent updates of the same version only one succeeds.
+   *
+   * @param character The new content of the character with the identifier of
+   *  the replaced character.
+   * @param versions The versions the replaced character may have. An
+   *  undefined value replaces any version.
+   * @return True, if and only if the character existed with any of the
+   *  versions.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public boolean update(CharacterSheet character, List<Integer> versions)
+    throws SQLException {
+    final short id = character.id();
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        try (
+          PreparedStatement update = connection.prepareStatement(
+            versions == null
+              ? UPDATE_CHARACTER_SQL
+              : UPDATE_MATCHED_CHARACTER_SQL
+          )
+        ) {
+          update.setString(1, character.name());
+          update.setString(2, character.creator());
+          update.setShort(3, id);
+          if (versions != null) {
+            update.setArray(
+              4,
+              connection.createArrayOf("integer", versions.toArray())
+            );
+          }
+          if (update.executeUpdate() == 0) {
+            connection.rollback();
+            return false;
+          }
+        }
+        for (String sql : List.of(DELETE_SKILLS_SQL, DELETE_DRIVES_SQL)) {
+          try (PreparedStatement delete = connection.prepareStatement(sql)) {
+            delete.setShort(1, id);
+            delete.executeUpdate();
+          }
+        }
+        insertDetails(connection, id, character);
+        if (snapshots) {
+          updateSheets(connection, id);
+        }
+        connection.commit();
+      } catch (SQLException sqle) {
+        connection.rollback();
+        throw sqle;
+      } finally {
+        connection.setAutoCommit(true);
+      }
+    }
+    publisher.publishEvent(new CharacterChangedEvent(id));
+    return true;
+  }
+
+  /**
+   * Delete a character.
+   * @param id The identifier of the deleted character.
+   * @return True, if and only if the character existed.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public boolean delete(short id) throws SQLException {
+    boolean result;
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement delete = connection.prepareStatement(
+        DELETE_CHARACTER_SQL
+      )
+    ) {
+      delete.setShort(1, id);
+      result = delete.executeUpdate() > 0;
+    }
+    publisher.publishEvent(new CharacterChangedEvent(id));
+    return result;
+  }
+
+  /**
+   * Store the sheet documents of the characters from their current rows.
+   * @param connection The connection to the database. The documents are
+   *  updated in the current transaction of the connection.
+   * @param ids The identifiers of the characters.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public static void updateSheets(Connection connection, int... ids)
+    throws SQLException {
+    Integer[] values = new Integer[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      values[i] = ids[i];
+    }
+    try (
+      PreparedStatement update = connection.prepareStatement(UPDATE_SHEETS_SQL)
+    ) {
+      update.setArray(1, connection.createArrayOf("integer", values));
+      update.executeUpdate();
+    }
+  }
+
+  /**
+   * Find the sheet document of a character.
+   *
+   * A missing document is built and stored, so the following reads are
+   * single primary key lookups.
+   *
+   * @param id The identifier of the character.
+   * @return The sheet document, or an empty value, if no character has the
+   *  identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public Optional<Snapshot> findSnapshot(short id) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      Optional<Snapshot> result = readSnapshot(connection, SHEET_SQL, id);
+      if (result.isPresent() && result.get().json() == null) {
+        result = readSnapshot(connection, STORE_SHEET_SQL, id);
+        if (result.isEmpty()) {
+          // The document was stored concurrently.
+          result = readSnapshot(connection, SHEET_SQL, id);
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Read the version and the sheet document of a character.
+   * @param connection The connection to the database.
+   * @param sql The statement returning the version and the sheet of the
+   *  character given as the only parameter.
+   * @param id The identifier of the character.
+   * @return The sheet document, or an empty value, if no row was returned.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private static Optional<Snapshot> readSnapshot(
+    Connection connection,
+    String sql,
+    short id
+  ) throws SQLException {
+    try (PreparedStatement query = connection.prepareStatement(sql)) {
+      query.setShort(1, id);
+      try (ResultSet result = query.executeQuery()) {
+        return result.next()
+          ? Optional.of(
+            new Snapshot(result.getInt("version"), result.getString("sheet"))
+          )
+          : Optional.empty();
+      }
+    }
+  }
+
+  /**
+   * Insert the ratings and the drive statements of a character.
+   * @param connection The connection to the database.
+   * @param id The identifier of the character.
+   * @param character The character whose details are inserted.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private void insertDetails(
+    Connection connection,
+    short id,
+    CharacterSheet character
+  ) throws SQLException {
+    insertRatings(connection, INSERT_SKILL_SQL, id, character.skills());
+    insertRatings(connection, INSERT_DRIVE_SQL, id, character.drives());
+    try (
+      PreparedStatement insert = connection.prepareStatement(
+        INSERT_STATEMENT_SQL
+      )
+    ) {
+      for (DriveStatement statement : character.statements()) {
+        insert.setShort(1, id);
+        insert.setShort(2, statement.driveId());
+        insert.setString(3, statement.statement());
+        insert.addBatch();
+      }
+      insert.executeBatch();
+    }
+  }
+
+  /**
+   * Insert the ratings of a character.
+   * @param connection The connection to the database.
+   * @param sql The insert with the character identifier, the rating
+   *  identifier, and the rating value as parameters.
+   * @param id The identifier of the character.
+   * @param ratings The inserted ratings.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private void insertRatings(
+    Connection connection,
+    String sql,
+    short id,
+    List<Rating> ratings
+  ) throws SQLException {
+    try (PreparedStatement insert = connection.prepareStatement(sql)) {
+      for (Rating rating : ratings) {
+        insert.setShort(1, id);
+        insert.setShort(2, rating.id());
+        insert.setShort(3, rating.value());
+        insert.addBatch();
+      }
+      insert.executeBatch();
+    }
+  }
+
+  /**
+   * Find the current version of a character.
+   * @param id The identifier of the character.
+   * @return The version of the character, or an empty value, if no character
+   *  has the identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public Optional<Integer> findVersion(short id) throws SQLException {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement query = connection.prepareStatement(VERSION_SQL)
+    ) {
+      query.setShort(1, id);
+      try (ResultSet result = query.executeQuery()) {
+        return result.next()
+          ? Optional.of(result.getInt("version"))
+          : Optional.empty();
+      }
+    }
+  }
+
+  /**
+   * Find a character.
+   * @param id The identifier of the character.
+   * @return The character aggregate, or an empty value, if no character
+   *  has the identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public Optional<CharacterSheet> find(short id) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      return find(connection, id);
+    }
+  }
+
+  /**
+   * Find a character using the given connection.
+   *
+   * The aggregate is read with several queries. In the autocommit mode the
+   * queries are performed in a single repeatable read transaction, so a
+   * concurrent update is either entirely visible or not at all. Otherwise
+   * the queries are performed in the current transaction of the connection.
+   *
+   * @param connection The connection to the database.
+   * @param id The identifier of the character.
+   * @return The character aggregate, or an empty value, if no character
+   *  has the identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public Optional<CharacterSheet> find(Connection connection, short id)
+    throws SQLException {
+    if (connection.getAutoCommit()) {
+      return RepeatableRead.read(
+        connection,
+        (Connection transaction) -> find(transaction, id)
+      );
+    }
+    String name;
+    String creator;
+    int version;
+    try (PreparedStatement query = connection.prepareStatement(CHARACTER_SQL)) {
+      query.setShort(1, id);
+      try (ResultSet result = query.executeQuery()) {
+        if (!result.next()) {
+          return Optional.empty();
+        }
+        name = result.getString("name");
+        creator = result.getString("creator");
+        version = result.getInt("version");
+      }
+    }
+    List<DriveStatement> statements = new ArrayList<>();
+    try (
+      PreparedStatement query = connection.prepareStatement(STATEMENTS_SQL)
+    ) {
+      query.setShort(1, id);
+      try (ResultSet result = query.executeQuery()) {
+        while (result.next()) {
+          statements.add(
+            new DriveStatement(
+              result.getShort("did"),
+              result.getString("statement")
+            )
+          );
+        }
+      }
+    }
+    return Optional.of(
+      new CharacterSheet(
+        id,
+        name,
+        creator,
+        version,
+        readRatings(connection, SKILLS_SQL, id),
+        readRatings(connection, DRIVES_SQL, id),
+        statements
+      )
+    );
+  }
+
+  /**
+   * Read the ratings of a character.
+   * @param connection The connection to the database.
+   * @param sql The query returning the identifier and the value of the
+   *  ratings of the character given as the only parameter.
+   * @param id The identifier of the character.
+   * @return The list of the ratings of the character.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private List<Rating> readRatings(Connection connection, String sql, short id)
+    throws SQLException {
+    List<Rating> result = new ArrayList<>();
+    try (PreparedStatement query = connection.prepareStatement(sql)) {
+      query.setShort(1, id);
+      try (ResultSet rows = query.executeQuery()) {
+        while (rows.next()) {
+          result.add(new Rating(rows.getShort(1), rows.getShort(2)));
+        }
+      }
+    }
+    return result;
+  }
+}
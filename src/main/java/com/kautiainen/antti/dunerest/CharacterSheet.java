@@ -0,0 +1,52 @@
+package com.kautiainen.antti.dunerest;
+
+import java.util.List;
+
+/**
+ * The character aggregate of a character with its skills, drives, and drive
+ * statements.
+ *
+ * The skills and drives refer to the reference data by their identifiers.
+ * Their names are resolved from the {@link ReferenceData}.
+ *
+ * @param id The identifier of the character.
+ * @param name The name of the character.
+ * @param creator The creator of the character.
+ * @param version The version of the character incremented by every update.
+ * @param skills The skill ratings of the character.
+ * @param drives The drive ratings of the character.
+ * @param statements The drive statements of the character.
+ */
+public record CharacterSheet(
+  short id,
+  String name,
+  String creator,
+  int version,
+  List<Rating> skills,
+  List<Rating> drives,
+  List<DriveStatement> statements
+) {
+  /**
+   * Create a new character sheet with immutable lists. An undefined list is
+   * replaced with an empty list.
+   */
+  public CharacterSheet {
+    skills = skills == null ? List.of() : List.copyOf(skills);
+    drives = drives == null ? List.of() : List.copyOf(drives);
+    statements = statements == null ? List.of() : List.copyOf(statements);
+  }
+
+  /**
+   * The rating of a skill or a drive.
+   * @param id The identifier of the skill or the drive.
+   * @param value The value of the rating.
+   */
+  public static record Rating(short id, short value) {}
+
+  /**
+   * The statement of a drive.
+   * @param driveId The identifier of the drive.
+   * @param statement The statement.
+   */
+  public static record DriveStatement(short driveId, String statement) {}
+}
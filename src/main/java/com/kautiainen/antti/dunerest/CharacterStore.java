@@ -0,0 +1,465 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.dunerest.CharacterRepository.ChangeMarker;
+import com.kautiainen.antti.utils.db.RepeatableRead;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The packed in-memory store of the character ratings for the campaign-wide
+ * queries.
+ *
+ * The ratings are stored column by column: each skill and each drive has a
+ * byte array indexed by the character identifier. A missing rating is
+ * {@link #NO_VALUE}. The values are clamped into the range of a byte. The
+ * store is an immutable snapshot, which is replaced by reloading the ratings
+ * after the characters have changed.
+ *
+ * The change events are only published within the application instance
+ * performing the change, so every poll also compares a change marker of the
+ * characters table with the marker of the loaded snapshot. The marker
+ * changes whenever a character is created, updated, or deleted by any
+ * instance.
+ */
+@Component
+public class CharacterStore {
+
+  /**
+   * The value of a missing rating.
+   */
+  public static final byte NO_VALUE = RatingColumns.NO_VALUE;
+
+  /**
+   * The query of the maximal identifiers.
+   */
+  private static final String MAX_IDS_SQL =
+    "SELECT (SELECT max(id) FROM characters), (SELECT max(id) FROM skills)" +
+    ", (SELECT max(id) FROM drives)";
+
+  /**
+   * The query of the characters.
+   */
+  private static final String CHARACTERS_SQL =
+    "SELECT id, name FROM characters";
+
+  /**
+   * The query of the skill ratings.
+   */
+  private static final String SKILLS_SQL =
+    "SELECT cid, sid, value FROM character_skills";
+
+  /**
+   * The query of the drive ratings.
+   */
+  private static final String DRIVES_SQL =
+    "SELECT cid, did, value FROM character_drives";
+
+  /**
+   * A character matching a query.
+   * @param id The identifier of the character.
+   * @param name The name of the character.
+   * @param skill The value of the queried skill.
+   * @param drive The value of the queried drive.
+   */
+  public static record Match(short id, String name, int skill, int drive) {
+    /**
+     * Get the score of the match.
+     * @return The sum of the skill and the drive.
+     */
+    public int score() {
+      return skill + drive;
+    }
+  }
+
+  /**
+   * An immutable snapshot of the ratings.
+   */
+  public static final class Snapshot {
+
+    /**
+     * The names of the characters indexed by the identifier. An undefined
+     * name indicates an unused identifier.
+     */
+    private final String[] names;
+
+    /**
+     * The skill columns indexed by the skill identifier and the character
+     * identifier.
+     */
+    private final byte[][] skills;
+
+    /**
+     * The drive columns indexed by the drive identifier and the character
+     * identifier.
+     */
+    private final byte[][] drives;
+
+    /**
+     * Create a snapshot.
+     * @param names The names of the characters.
+     * @param skills The skill columns.
+     * @param drives The drive columns.
+     */
+    private Snapshot(String[] names, byte[][] skills, byte[][] drives) {
+      this.names = names;
+      this.skills = skills;
+      this.drives = drives;
+    }
+
+    /**
+     * Get the number of the character identifiers.
+     * @return The maximal character identifier plus one.
+     */
+    public int getCapacity() {
+      return names.length;
+    }
+
+    /**
+     * Get the name of a character.
+     * @param id The identifier of the character.
+     * @return The name, or an undefined value, if there is no such character.
+     */
+    public String getName(int id) {
+      return id >= 0 && id < names.length ? names[id] : null;
+    }
+
+    /**
+     * Get the skill column.
+     * @param skillId The identifier of the skill.
+     * @return The values of the skill indexed by the character identifier,
+     *  or an undefined value, if there is no such skill. The array must not
+     *  be modified.
+     */
+    byte[] getSkillColumn(int skillId) {
+      return skillId >= 0 && skillId < skills.length ? skills[skillId] : null;
+    }
+
+    /**
+     * Get the drive column.
+     * @param driveId The identifier of the drive.
+     * @return The values of the drive indexed by the character identifier,
+     *  or an undefined value, if there is no such drive. The array must not
+     *  be modified.
+     */
+    byte[] getDriveColumn(int driveId) {
+      return driveId >= 0 && driveId < drives.length ? drives[driveId] : null;
+    }
+
+    /**
+     * Get a skill value of a character.
+     * @param id The identifier of the character.
+     * @param skillId The identifier of the skill.
+     * @return The value, or {@link #NO_VALUE}, if the character does not have
+     *  the skill.
+     */
+    public int getSkill(int id, int skillId) {
+      return value(getSkillColumn(skillId), id);
+    }
+
+    /**
+     * Get a drive value of a character.
+     * @param id The identifier of the character.
+     * @param driveId The identifier of the drive.
+     * @return The value, or {@link #NO_VALUE}, if the character does not have
+     *  the drive.
+     */
+    public int getDrive(int id, int driveId) {
+      return value(getDriveColumn(driveId), id);
+    }
+
+    /**
+     * Get a value of a column.
+     * @param column The column, or an undefined value.
+     * @param id The identifier of the character.
+     * @return The value, or {@link #NO_VALUE}, if there is no value.
+     */
+    private static int value(byte[] column, int id) {
+      return column != null && id >= 0 && id < column.length
+        ? column[id]
+        : NO_VALUE;
+    }
+
+    /**
+     * Find the characters with the highest sum of a skill and a drive.
+     * @param skillId The identifier of the skill.
+     * @param driveId The identifier of the drive.
+     * @param limit The maximal number of the returned characters.
+     * @return The characters having both ratings in the descending order of
+     *  the sum, and the ascending order of the identifier among the equal
+     *  sums.
+     */
+    public List<Match> best(int skillId, int driveId, int limit) {
+      return best(skillId, driveId, limit, 0, names.length);
+    }
+
+    /**
+     * Find the characters with the highest sum of a skill and a drive within
+     * a range of the character identifiers.
+     * @param skillId The identifier of the skill.
+     * @param driveId The identifier of the drive.
+     * @param limit The maximal number of the returned characters.
+     * @param from The first scanned character identifier.
+     * @param to The character identifier after the last scanned character.
+     * @return The characters having both ratings in the descending order of
+     *  the sum, and the ascending order of the identifier among the equal
+     *  sums.
+     */
+    public List<Match> best(
+      int skillId,
+      int driveId,
+      int limit,
+      int from,
+      int to
+    ) {
+      final byte[] skill = getSkillColumn(skillId);
+      final byte[] drive = getDriveColumn(driveId);
+      if (skill == null || drive == null || limit <= 0) {
+        return List.of();
+      }
+      // The best identifiers and scores sorted by the score descending.
+      final int[] ids = new int[limit];
+      final int[] scores = new int[limit];
+      int count = 0;
+      final int end = Math.min(to, skill.length);
+      for (int id = Math.max(0, from); id < end; id++) {
+        final byte s = skill[id];
+        final byte d = drive[id];
+        if (s < 0 || d < 0) {
+          continue;
+        }
+        final int score = s + d;
+        if (count == limit && score <= scores[count - 1]) {
+          continue;
+        }
+        int index = count < limit ? count++ : count - 1;
+        while (index > 0 && scores[index - 1] < score) {
+          ids[index] = ids[index - 1];
+          scores[index] = scores[index - 1];
+          index--;
+        }
+        ids[index] = id;
+        scores[index] = score;
+      }
+      List<Match> result = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        final int id = ids[i];
+        result.add(new Match((short) id, names[id], skill[id], drive[id]));
+      }
+      return result;
+    }
+  }
+
+  /**
+   * The builder of the snapshots.
+   */
+  public static final class Builder {
+
+    private final String[] names;
+
+    private final byte[][] skills;
+
+    private final byte[][] drives;
+
+    /**
+     * Create a builder of an empty snapshot.
+     * @param maxCharacterId The maximal character identifier.
+     * @param maxSkillId The maximal skill identifier.
+     * @param maxDriveId The maximal drive identifier.
+     */
+    public Builder(int maxCharacterId, int maxSkillId, int maxDriveId) {
+      this.names = new String[Math.max(0, maxCharacterId + 1)];
+      this.skills = RatingColumns.create(maxSkillId + 1, names.length);
+      this.drives = RatingColumns.create(maxDriveId + 1, names.length);
+    }
+
+    /**
+     * Add a character.
+     * @param id The identifier of the character.
+     * @param name The name of the character.
+     * @return This builder.
+     */
+    public Builder character(int id, String name) {
+      if (id >= 0 && id < names.length) {
+        names[id] = name;
+      }
+      return this;
+    }
+
+    /**
+     * Add a skill rating.
+     * @param id The identifier of the character.
+     * @param skillId The identifier of the skill.
+     * @param value The value of the skill.
+     * @return This builder.
+     */
+    public Builder skill(int id, int skillId, int value) {
+      RatingColumns.set(skills, skillId, id, value);
+      return this;
+    }
+
+    /**
+     * Add a drive rating.
+     * @param id The identifier of the character.
+     * @param driveId The identifier of the drive.
+     * @param value The value of the drive.
+     * @return This builder.
+     */
+    public Builder drive(int id, int driveId, int value) {
+      RatingColumns.set(drives, driveId, id, value);
+      return this;
+    }
+
+    /**
+     * Build the snapshot. The builder must not be used after the build.
+     * @return The snapshot of the added ratings.
+     */
+    public Snapshot build() {
+      return new Snapshot(names, skills, drives);
+    }
+  }
+
+  private final DataSource dataSource;
+
+  /**
+   * The current snapshot.
+   */
+  private volatile Snapshot snapshot = new Builder(-1, -1, -1).build();
+
+  /**
+   * The change marker read before loading the current snapshot.
+   */
+  private volatile ChangeMarker marker = null;
+
+  /**
+   * Is the current snapshot stale.
+   */
+  private final AtomicBoolean stale = new AtomicBoolean(true);
+
+  @Autowired
+  public CharacterStore(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Get the current snapshot.
+   * @return The current snapshot of the ratings.
+   */
+  public Snapshot get() {
+    return snapshot;
+  }
+
+  /**
+   * Mark the snapshot stale after a change of a character.
+   * @param event The character change event.
+   */
+  @EventListener
+  public void onCharacterChanged(CharacterChangedEvent event) {
+    stale.set(true);
+  }
+
+  /**
+   * Reload the snapshot, if it is stale, or the change marker of the
+   * characters differs from the marker of the snapshot.
+   */
+  @Scheduled(fixedDelayString = "${dune.advisor.reload-interval:1000}")
+  public void reloadIfStale() {
+    final boolean changed = stale.getAndSet(false);
+    try (Connection connection = dataSource.getConnection()) {
+      ChangeMarker current = CharacterRepository.readChangeMarker(
+        connection
+      );
+      if (changed || !current.equals(marker)) {
+        reload(connection, current);
+      }
+    } catch (SQLException sqle) {
+      stale.set(true);
+      System.err.printf(
+        "Character store reload failed: %s%n",
+        sqle.getMessage()
+      );
+    }
+  }
+
+  /**
+   * Reload the snapshot from the database.
+   * @return The loaded snapshot.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public Snapshot reload() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      return reload(
+        connection,
+        CharacterRepository.readChangeMarker(connection)
+      );
+    }
+  }
+
+  /**
+   * Reload the snapshot from the database.
+   * @param connection The connection to the database.
+   * @param current The change marker read before the load. A change after
+   *  reading the marker causes another reload on the next poll.
+   * @return The loaded snapshot.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private Snapshot reload(Connection connection, ChangeMarker current)
+    throws SQLException {
+    snapshot = load(connection);
+    marker = current;
+    return snapshot;
+  }
+
+  /**
+   * Load a snapshot of the ratings in a single read-only transaction.
+   * @param connection The connection to the database.
+   * @return The loaded snapshot.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public static Snapshot load(Connection connection) throws SQLException {
+    return RepeatableRead.read(connection, CharacterStore::read);
+  }
+
+  /**
+   * Read a snapshot of the ratings.
+   * @param connection The connection in a repeatable read transaction.
+   * @return The read snapshot.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private static Snapshot read(Connection connection) throws SQLException {
+    Builder builder;
+    try (
+      PreparedStatement query = connection.prepareStatement(MAX_IDS_SQL);
+      ResultSet result = query.executeQuery()
+    ) {
+      result.next();
+      builder =
+        new Builder(result.getInt(1), result.getInt(2), result.getInt(3));
+    }
+    try (ResultSet rows = RepeatableRead.stream(connection, CHARACTERS_SQL)) {
+      while (rows.next()) {
+        builder.character(rows.getShort(1), rows.getString(2));
+      }
+    }
+    try (ResultSet rows = RepeatableRead.stream(connection, SKILLS_SQL)) {
+      while (rows.next()) {
+        builder.skill(rows.getShort(1), rows.getShort(2), rows.getShort(3));
+      }
+    }
+    try (ResultSet rows = RepeatableRead.stream(connection, DRIVES_SQL)) {
+      while (rows.next()) {
+        builder.drive(rows.getShort(1), rows.getShort(2), rows.getShort(3));
+      }
+    }
+    return builder.build();
+  }
+}
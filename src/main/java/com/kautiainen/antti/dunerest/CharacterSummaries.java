@@ -0,0 +1,219 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.utils.db.CreateDatabase.ViewDefinition;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The precomputed summaries of the characters.
+ *
+ * The summaries are read from a materialized view, which is refreshed
+ * concurrently in the background after the characters have changed. The
+ * refresh is debounced: it is performed once the changes have been quiet for
+ * the quiet period, or the oldest unrefreshed change is older than the
+ * maximal delay. A burst of writes causes a single refresh. The summaries are
+ * also refreshed once after the startup, as the rows may have been written
+ * while the application was not running.
+ */
+@Component
+public class CharacterSummaries implements InitializingBean {
+
+  /**
+   * The summary of a character.
+   * @param id The identifier of the character.
+   * @param name The name of the character.
+   * @param creator The creator of the character.
+   * @param version The version of the character.
+   * @param skillTotal The total of the skill values.
+   * @param topDrive The name of the highest drive, or an undefined value, if
+   *  the character has no drives.
+   * @param topDriveValue The value of the highest drive, or zero, if the
+   *  character has no drives.
+   * @param statementCount The number of the drive statements.
+   */
+  public static record Summary(
+    short id,
+    String name,
+    String creator,
+    int version,
+    long skillTotal,
+    String topDrive,
+    short topDriveValue,
+    long statementCount
+  ) {}
+
+  private final DataSource dataSource;
+
+  /**
+   * The materialized view of the summaries.
+   */
+  private final ViewDefinition view;
+
+  /**
+   * The query of all summaries.
+   */
+  private final String summariesSql;
+
+  /**
+   * The quiet period in nanoseconds after the last change.
+   */
+  private final long quietNanos;
+
+  /**
+   * The maximal delay in nanoseconds after the first unrefreshed change.
+   */
+  private final long maxDelayNanos;
+
+  /**
+   * The time of the first unrefreshed change, or zero, if there is no
+   * unrefreshed change.
+   */
+  private final AtomicLong firstChange = new AtomicLong();
+
+  /**
+   * The time of the last unrefreshed change.
+   */
+  private final AtomicLong lastChange = new AtomicLong();
+
+  @Autowired
+  public CharacterSummaries(
+    DataSource dataSource,
+    Database database,
+    @Value("${dune.characters.summaries.quiet-period:500}") long quietPeriod,
+    @Value("${dune.characters.summaries.max-delay:5000}") long maxDelay
+  ) {
+    this.dataSource = dataSource;
+    this.view = database.getCharacterSummariesView();
+    this.summariesSql = view.getSelectView() + " ORDER BY id";
+    this.quietNanos = TimeUnit.MILLISECONDS.toNanos(quietPeriod);
+    this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelay);
+  }
+
+  /**
+   * Get the summaries of all characters as of the last refresh.
+   * @return The list of the summaries ordered by the identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public List<Summary> findAll() throws SQLException {
+    List<Summary> result = new ArrayList<>();
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement query = connection.prepareStatement(summariesSql);
+      ResultSet rows = query.executeQuery()
+    ) {
+      while (rows.next()) {
+        result.add(
+          new Summary(
+            rows.getShort("id"),
+            rows.getString("name"),
+            rows.getString("creator"),
+            rows.getInt("version"),
+            rows.getLong("skill_total"),
+            rows.getString("top_drive"),
+            rows.getShort("top_drive_value"),
+            rows.getLong("statement_count")
+          )
+        );
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    changed();
+  }
+
+  /**
+   * Record a change of a character for the next refresh.
+   * @param event The character change event.
+   */
+  @EventListener
+  public void onCharacterChanged(CharacterChangedEvent event) {
+    changed();
+  }
+
+  /**
+   * Record a change for the next refresh.
+   */
+  private void changed() {
+    final long now = nonZero(System.nanoTime());
+    lastChange.set(now);
+    firstChange.compareAndSet(0L, now);
+  }
+
+  /**
+   * Test whether a refresh is due.
+   * @param now The current time in nanoseconds.
+   * @return True, if and only if there are unrefreshed changes, and either
+   *  the quiet period or the maximal delay has passed.
+   */
+  protected boolean isRefreshDue(long now) {
+    final long first = firstChange.get();
+    return (
+      first != 0L &&
+      (now - lastChange.get() >= quietNanos || now - first >= maxDelayNanos)
+    );
+  }
+
+  /**
+   * Refresh the summaries, if a refresh is due.
+   */
+  @Scheduled(
+    fixedDelayString = "${dune.characters.summaries.poll-interval:100}"
+  )
+  public void refreshIfDue() {
+    final long first = firstChange.get();
+    if (!isRefreshDue(System.nanoTime())) {
+      return;
+    }
+    // The changes after this point are refreshed by the next refresh.
+    firstChange.compareAndSet(first, 0L);
+    try {
+      refresh();
+    } catch (SQLException sqle) {
+      // The changes remain pending for the next refresh.
+      firstChange.compareAndSet(0L, first);
+      System.err.printf(
+        "Character summary refresh failed: %s%n",
+        sqle.getMessage()
+      );
+    }
+  }
+
+  /**
+   * Refresh the summaries concurrently without blocking the readers.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public void refresh() throws SQLException {
+    try (
+      Connection connection = dataSource.getConnection();
+      Statement statement = connection.createStatement()
+    ) {
+      statement.execute(view.getRefreshView());
+    }
+  }
+
+  /**
+   * Map the time to a non-zero time, as zero marks no change.
+   * @param time The time in nanoseconds.
+   * @return The time, or one, if the time was zero.
+   */
+  private static long nonZero(long time) {
+    return time == 0L ? 1L : time;
+  }
+}
@@ -1,24 +1,74 @@
 package com.kautiainen.antti.dunerest;
 
+import com.kautiainen.antti.utils.db.BulkLoader;
+import com.kautiainen.antti.utils.db.CreateDatabase;
+import com.kautiainen.antti.utils.db.CreateDatabase.IndexDefinition;
+import com.kautiainen.antti.utils.db.CreateDatabase.Migration;
+import com.kautiainen.antti.utils.db.CreateDatabase.TableDefinition;
+import com.kautiainen.antti.utils.db.CreateDatabase.ViewDefinition;
+import com.kautiainen.antti.utils.db.Query;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * The database of the Dune.
  */
 public class Database {
 
+  /**
+   * The key of the advisory lock guarding the schema migrations.
+   */
+  public static final long SCHEMA_LOCK_KEY = 0x44554e4553434845L;
+
+  /**
+   * The default time in milliseconds waiting for the migrations of another
+   * application instance.
+   */
+  public static final long DEFAULT_LOCK_TIMEOUT = 60_000L;
+
+  /**
+   * The default interval in milliseconds between the polls of the schema
+   * version while another application instance is migrating.
+   */
+  public static final long DEFAULT_LOCK_POLL_INTERVAL = 500L;
+
+  /**
+   * The name of the materialized view of the character summaries.
+   */
+  public static final String CHARACTER_SUMMARIES_VIEW = "character_summaries";
+
   /**
    * Get table names of the database.
    * @return The list of the table names in the database.
    */
   public List<String> getTableNames() {
-    return Arrays.asList("Motivation", "Person", "PersonMotivation");
+    return Arrays.asList(
+      CreateDatabase.SCHEMA_VERSION_TABLE,
+      "campaign_characters",
+      "campaigns",
+      "character_drive_statements",
+      "character_drives",
+      "character_skills",
+      "characters",
+      "drives",
+      "skills",
+      "motivations",
+      "ticks",
+      "PersonMotivations",
+      "Motivation",
+      "Person"
+    );
   }
 
   /**
@@ -26,7 +76,67 @@ public class Database {
    * @return The list of the view names of the database.
    */
   public List<String> getViewNames() {
-    return Arrays.asList();
+    List<ViewDefinition> views = getViewDefinitions();
+    List<String> result = new ArrayList<>(views.size());
+    views.forEach(view -> result.add(view.getViewName()));
+    return result;
+  }
+
+  /**
+   * Get the materialized view of the character summaries.
+   *
+   * The view has a row for each character with the total of the skill
+   * values, the name and the value of the highest drive, and the number of
+   * the drive statements. The ties of the highest drive are resolved by the
+   * drive identifier.
+   *
+   * @return The view definition of the character summaries.
+   */
+  public ViewDefinition getCharacterSummariesView() {
+    return ViewDefinition.createMaterialized(
+      CHARACTER_SUMMARIES_VIEW,
+      Query
+        .builder()
+        .select(
+          "c.id",
+          "c.name",
+          "c.creator",
+          "c.version",
+          "COALESCE((SELECT sum(s.value) FROM character_skills s" +
+          " WHERE s.cid = c.id), 0) AS skill_total",
+          "td.name AS top_drive",
+          "td.value AS top_drive_value",
+          "(SELECT count(*) FROM character_drive_statements st" +
+          " WHERE st.cid = c.id) AS statement_count"
+        )
+        .from(
+          "characters c LEFT JOIN LATERAL (SELECT dr.name, d.value" +
+          " FROM character_drives d JOIN drives dr ON dr.id = d.did" +
+          " WHERE d.cid = c.id ORDER BY d.value DESC, d.did LIMIT 1)" +
+          " td ON true"
+        )
+        .build(),
+      "id"
+    );
+  }
+
+  /**
+   * Get the definitions of the views.
+   * @return The list of view definitions in creation order.
+   */
+  protected List<ViewDefinition> getViewDefinitions() {
+    return Arrays.asList(getCharacterSummariesView());
+  }
+
+  /**
+   * Get the view creation commands of the given views.
+   * @param views The view definitions.
+   * @return The list of SQL commands creating the views and their indexes.
+   */
+  protected static List<String> getCreateViews(List<ViewDefinition> views) {
+    List<String> result = new ArrayList<>();
+    views.forEach(view -> result.addAll(view.getCreateCommands()));
+    return result;
   }
 
   /**
@@ -61,24 +171,63 @@ public class Database {
     java.io.PrintStream logger
   ) throws SQLException {
     log(logger, "%n%nCreating tables:%n");
-    boolean result = true;
-    String tableName;
-    PreparedStatement stmt;
-    tableName = "Person";
-    stmt =
-      connection.prepareStatement(
+    boolean result = createTables(connection, logger, getTableDefinitions());
+    result &= createCharacterTables(connection, logger);
+    return result;
+  }
+
+  /**
+   * Create the character tables of the Dune database.
+   * @param connection The database connection used to create tables.
+   * @param logger The stream into which logging reports are printed.
+   * @return True, if and only if the tables were created.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  protected boolean createCharacterTables(
+    Connection connection,
+    java.io.PrintStream logger
+  ) throws SQLException {
+    return createTables(connection, logger, getCharacterTableDefinitions());
+  }
+
+  /**
+   * Create the given tables.
+   * @param connection The database connection used to create tables.
+   * @param logger The stream into which logging reports are printed.
+   * @param tables The definitions of the created tables.
+   * @return True, if and only if the tables were created.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  protected boolean createTables(
+    Connection connection,
+    java.io.PrintStream logger,
+    List<TableDefinition> tables
+  ) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      for (TableDefinition table : tables) {
+        statement.executeUpdate(table.getCreateTable());
+        log(logger, "Table %s created%n", table.getTableName());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the definitions of the person and motivation tables.
+   * @return The list of table definitions in creation order.
+   */
+  protected List<TableDefinition> getTableDefinitions() {
+    return Arrays.asList(
+      TableDefinition.create(
+        "Person",
         "CREATE TABLE IF NOT EXISTS Person (" +
         "id serial primary key" +
         ", " +
         "name varchar(255) not null" +
         ")"
-      );
-    stmt.executeUpdate();
-    log(logger, "Table %s created%n", tableName);
-
-    tableName = "Motivation";
-    stmt =
-      connection.prepareStatement(
+      ),
+      TableDefinition.create(
+        "Motivation",
         "CREATE TABLE IF NOT EXISTS Motivation (" +
         "id serial primary key" +
         ", " +
@@ -86,13 +235,11 @@ public class Database {
         ", " +
         "description text" +
         ");"
-      );
-    stmt.executeUpdate();
-    log(logger, "Table %s created%n", tableName);
-
-    tableName = "PersonMotivations";
-    stmt =
-      connection.prepareStatement(
+      ),
+      // The motivation reference is corrected by the migration 13, as the
+      // applied migrations must not change.
+      TableDefinition.create(
+        "PersonMotivations",
         "CREATE TABLE IF NOT EXISTS PersonMotivations (" +
         "person_id int NOT NULL references Person (id) ON UPDATE CASCADE ON DELETE CASCADE" +
         "," +
@@ -104,10 +251,164 @@ public class Database {
         "," +
         "PRIMARY KEY (person_id, motivation_id)" +
         ")"
-      );
-    stmt.executeUpdate();
-    log(logger, "Table %s created%n", tableName);
+      )
+    );
+  }
+
+  /**
+   * Get the definitions of the character tables.
+   * @return The list of table definitions in creation order.
+   */
+  protected List<TableDefinition> getCharacterTableDefinitions() {
+    return Arrays.asList(
+      TableDefinition.create(
+        "motivations",
+        "CREATE TABLE IF NOT EXISTS motivations (" +
+        "id SMALLSERIAL PRIMARY KEY, " +
+        "name VARCHAR(40) NOT NULL UNIQUE, " +
+        "value SMALLINT NOT NULL DEFAULT '4'" +
+        ")"
+      ),
+      TableDefinition.create(
+        "skills",
+        "CREATE TABLE IF NOT EXISTS skills (" +
+        "id SMALLSERIAL PRIMARY KEY, " +
+        "name VARCHAR(40) NOT NULL UNIQUE" +
+        ")"
+      ),
+      TableDefinition.create(
+        "drives",
+        "CREATE TABLE IF NOT EXISTS drives (" +
+        "id SMALLSERIAL PRIMARY KEY, " +
+        "name VARCHAR(40) NOT NULL UNIQUE" +
+        ")"
+      ),
+      TableDefinition.create(
+        "characters",
+        "CREATE TABLE IF NOT EXISTS characters (" +
+        "id SMALLSERIAL PRIMARY KEY " +
+        ", name VARCHAR(255) NOT NULL" +
+        ", creator VARCHAR(255) NOT NULL" +
+        ")"
+      ),
+      TableDefinition.create(
+        "character_skills",
+        "CREATE TABLE IF NOT EXISTS character_skills (" +
+        "cid SMALLINT NOT NULL REFERENCES characters (id) ON UPDATE CASCADE ON DELETE CASCADE" +
+        ", sid SMALLINT NOT NULL REFERENCES skills (id) ON UPDATE CASCADE ON DELETE CASCADE" +
+        ", value SMALLINT DEFAULT 4 NOT NULL" +
+        ", PRIMARY KEY (cid, sid)" +
+        ")"
+      ),
+      TableDefinition.create(
+        "character_drives",
+        "CREATE TABLE IF NOT EXISTS character_drives (" +
+        "cid SMALLINT NOT NULL REFERENCES characters (id) ON UPDATE CASCADE ON DELETE CASCADE" +
+        ", did SMALLINT NOT NULL REFERENCES drives (id) ON UPDATE CASCADE ON DELETE CASCADE" +
+        ", value SMALLINT DEFAULT 4 NOT NULL" +
+        ", PRIMARY KEY (cid, did)" +
+        ")"
+      ),
+      TableDefinition.create(
+        "character_drive_statements",
+        "CREATE TABLE IF NOT EXISTS character_drive_statements (" +
+        "cid SMALLINT NOT NULL REFERENCES characters (id) ON UPDATE CASCADE ON DELETE CASCADE" +
+        ", did SMALLINT NOT NULL REFERENCES drives (id) ON UPDATE CASCADE ON DELETE CASCADE" +
+        ", row_id SMALLSERIAL NOT NULL" +
+        ", statement VARCHAR(60) NOT NULL" +
+        ", PRIMARY KEY (cid, did, row_id)" +
+        ", FOREIGN KEY (cid, did) REFERENCES character_drives (cid, did) ON UPDATE CASCADE ON DELETE CASCADE" +
+        ")"
+      ),
+      TableDefinition.create(
+        "ticks",
+        "CREATE TABLE IF NOT EXISTS ticks (tick timestamp)"
+      )
+    );
+  }
 
+  /**
+   * Get the definitions of the campaign tables.
+   * @return The list of table definitions in creation order.
+   */
+  protected List<TableDefinition> getCampaignTableDefinitions() {
+    return Arrays.asList(
+      TableDefinition.create(
+        "campaigns",
+        "CREATE TABLE IF NOT EXISTS campaigns (" +
+        "id SERIAL PRIMARY KEY" +
+        ", name VARCHAR(255) NOT NULL UNIQUE" +
+        ")"
+      ),
+      TableDefinition.create(
+        "campaign_characters",
+        "CREATE TABLE IF NOT EXISTS campaign_characters (" +
+        "campaign_id INT NOT NULL REFERENCES campaigns (id) ON UPDATE CASCADE ON DELETE CASCADE" +
+        ", cid SMALLINT NOT NULL REFERENCES characters (id) ON UPDATE CASCADE ON DELETE CASCADE" +
+        ", PRIMARY KEY (campaign_id, cid)" +
+        ")"
+      )
+    );
+  }
+
+  /**
+   * Get the SQL commands creating the campaign tables and the index of the
+   * characters of the campaigns.
+   * @return The list of SQL commands creating the campaign tables.
+   */
+  protected List<String> getCampaignCommands() {
+    List<String> result = new ArrayList<>(
+      getCreateTables(getCampaignTableDefinitions())
+    );
+    result.add(
+      "CREATE INDEX IF NOT EXISTS campaign_characters_cid_idx" +
+      " ON campaign_characters (cid)"
+    );
+    return result;
+  }
+
+  /**
+   * Get the definitions of the indexes of the foreign keys without an index
+   * of the primary key starting with the foreign key. The indexes support the
+   * cascades of the deletes and the updates of the referred rows, and the
+   * reverse lookups. The rating indexes cover the character and the value,
+   * so the characters with a rating are read with an index-only scan.
+   * @return The list of index definitions in creation order.
+   */
+  protected List<IndexDefinition> getIndexDefinitions() {
+    return Arrays.asList(
+      IndexDefinition.create(
+        "person_motivations_motivation_id_idx",
+        "PersonMotivations",
+        "motivation_id"
+      ),
+      IndexDefinition.create(
+        "character_skills_sid_idx",
+        "character_skills",
+        Arrays.asList("sid"),
+        Arrays.asList("cid", "value"),
+        null,
+        false
+      ),
+      IndexDefinition.create(
+        "character_drives_did_idx",
+        "character_drives",
+        Arrays.asList("did"),
+        Arrays.asList("cid", "value"),
+        null,
+        false
+      )
+    );
+  }
+
+  /**
+   * Get the table creation commands of the given tables.
+   * @param tables The table definitions.
+   * @return The list of SQL commands creating the tables.
+   */
+  protected static List<String> getCreateTables(List<TableDefinition> tables) {
+    List<String> result = new ArrayList<>(tables.size());
+    tables.forEach(table -> result.add(table.getCreateTable()));
     return result;
   }
 
@@ -119,6 +420,14 @@ public class Database {
    */
   public boolean createViews(Connection connection) throws SQLException {
     log(System.err, "%n%nCreating views:%n");
+    try (Statement statement = connection.createStatement()) {
+      for (ViewDefinition view : getViewDefinitions()) {
+        for (String sql : view.getCreateCommands()) {
+          statement.execute(sql);
+        }
+        log(System.err, "View %s created%n", view.getViewName());
+      }
+    }
     return true;
   }
 
@@ -133,30 +442,172 @@ public class Database {
   }
 
   /**
-   * Populate the created tables with default values.
+   * Populate the created tables with the seed data.
+   *
+   * The seeds are loaded in a single transaction. Each seed is first
+   * streamed from its CSV resource into a temporary staging table, and then
+   * the rows missing from the target table are inserted. Repeating the
+   * population inserts nothing.
+   *
    * @param connection The database connection used to insert initial content to the database.
-   * @return True, if and only if the tables were craeted.
-   * @throws SQLException The population of the database failed.
+   * @param logger The stream into which logging reports are printed.
+   * @return True, if and only if any row was inserted.
+   * @throws SQLException The population of the database failed. Nothing was
+   *  inserted.
    */
   public boolean populateTables(
     Connection connection,
     java.io.PrintStream logger
   ) throws SQLException {
     log(logger, "%n%nPopulating tables:%n");
-    AtomicBoolean result = new AtomicBoolean(false);
-    PreparedStatement stmt = connection.prepareStatement(
-      "INSERT INTO Motivation (name) VALUES (?)"
+    final boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(false);
+    try {
+      int inserted = 0;
+      for (Seed seed : getSeeds()) {
+        inserted += populate(connection, logger, seed);
+      }
+      connection.commit();
+      return inserted > 0;
+    } catch (SQLException sqle) {
+      connection.rollback();
+      throw sqle;
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  /**
+   * The seed data of a table.
+   * @param resource The class path resource of the CSV data with a header
+   *  row.
+   * @param staging The name of the temporary staging table.
+   * @param columns The text columns of the staging table in the order of the
+   *  CSV fields.
+   * @param upsert The statement inserting the missing rows from the staging
+   *  table into the target table.
+   */
+  protected static record Seed(
+    String resource,
+    String staging,
+    List<String> columns,
+    String upsert
+  ) {}
+
+  /**
+   * Get the seed data of the database.
+   * @return The list of the seeds in the order of loading.
+   */
+  protected List<Seed> getSeeds() {
+    return Arrays.asList(
+      new Seed(
+        "/seed/motivations.csv",
+        "seed_motivations",
+        Arrays.asList("name"),
+        "INSERT INTO Motivation (name) SELECT DISTINCT s.name FROM seed_motivations s" +
+        " WHERE NOT EXISTS (SELECT 1 FROM Motivation m WHERE m.name = s.name)"
+      ),
+      new Seed(
+        "/seed/motivations.csv",
+        "seed_character_motivations",
+        Arrays.asList("name"),
+        "INSERT INTO motivations (name) SELECT name FROM seed_character_motivations" +
+        " ON CONFLICT (name) DO NOTHING"
+      ),
+      new Seed(
+        "/seed/skills.csv",
+        "seed_skills",
+        Arrays.asList("name"),
+        "INSERT INTO skills (name) SELECT name FROM seed_skills" +
+        " ON CONFLICT (name) DO NOTHING"
+      ),
+      new Seed(
+        "/seed/drives.csv",
+        "seed_drives",
+        Arrays.asList("name"),
+        "INSERT INTO drives (name) SELECT name FROM seed_drives" +
+        " ON CONFLICT (name) DO NOTHING"
+      ),
+      new Seed(
+        "/seed/characters.csv",
+        "seed_characters",
+        Arrays.asList("name", "creator"),
+        "INSERT INTO characters (name, creator) SELECT DISTINCT s.name, s.creator FROM seed_characters s" +
+        " WHERE NOT EXISTS (SELECT 1 FROM characters c WHERE c.name = s.name AND c.creator = s.creator)"
+      ),
+      new Seed(
+        "/seed/character_skills.csv",
+        "seed_character_skills",
+        Arrays.asList("character", "creator", "skill", "value"),
+        "INSERT INTO character_skills (cid, sid, value)" +
+        " SELECT c.id, k.id, s.value::SMALLINT FROM seed_character_skills s" +
+        " JOIN characters c ON c.name = s.character AND c.creator = s.creator" +
+        " JOIN skills k ON k.name = s.skill" +
+        " ON CONFLICT (cid, sid) DO NOTHING"
+      ),
+      new Seed(
+        "/seed/character_drives.csv",
+        "seed_character_drives",
+        Arrays.asList("character", "creator", "drive", "value"),
+        "INSERT INTO character_drives (cid, did, value)" +
+        " SELECT c.id, d.id, s.value::SMALLINT FROM seed_character_drives s" +
+        " JOIN characters c ON c.name = s.character AND c.creator = s.creator" +
+        " JOIN drives d ON d.name = s.drive" +
+        " ON CONFLICT (cid, did) DO NOTHING"
+      )
     );
-    getDefaultMotivations()
-      .forEach((String motivation) -> {
-        log(logger, "Adding motivation %s%n", motivation);
-        try {
-          stmt.setString(1, motivation);
-          result.set(result.get() | stmt.executeUpdate() > 0);
-          log(logger, "Added motivation %s%n", motivation);
-        } catch (SQLException sqle) {}
-      });
-    return result.get();
+  }
+
+  /**
+   * Load a seed into its table.
+   * @param connection The connection to the database in a transaction.
+   * @param logger The stream into which logging reports are printed.
+   * @param seed The loaded seed.
+   * @return The number of the rows inserted into the target table.
+   * @throws SQLException The loading failed.
+   */
+  protected int populate(
+    Connection connection,
+    java.io.PrintStream logger,
+    Seed seed
+  ) throws SQLException {
+    List<String> columns = new ArrayList<>(seed.columns().size());
+    seed.columns().forEach(column -> columns.add(column + " TEXT"));
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(
+        "CREATE TEMP TABLE " +
+        seed.staging() +
+        " (" +
+        String.join(", ", columns) +
+        ") ON COMMIT DROP"
+      );
+    }
+    InputStream data = Database.class.getResourceAsStream(seed.resource());
+    if (data == null) {
+      throw new SQLException("Missing seed resource " + seed.resource());
+    }
+    long staged;
+    try (
+      Reader csv = new BufferedReader(
+        new InputStreamReader(data, StandardCharsets.UTF_8)
+      )
+    ) {
+      staged =
+        BulkLoader.load(connection, seed.staging(), seed.columns(), csv);
+    } catch (IOException ioe) {
+      throw new SQLException("Reading seed " + seed.resource() + " failed", ioe);
+    }
+    try (Statement statement = connection.createStatement()) {
+      int inserted = statement.executeUpdate(seed.upsert());
+      log(
+        logger,
+        "Seed %s: %d rows read, %d rows added%n",
+        seed.resource(),
+        staged,
+        inserted
+      );
+      return inserted;
+    }
   }
 
   /**
@@ -167,25 +618,306 @@ public class Database {
     return Arrays.asList("Duty", "Power", "Justice", "Truth", "Faith");
   }
 
+  /**
+   * The default skill names of the database.
+   * @return The list of default skills the database is populated with.
+   */
+  protected Collection<String> getDefaultSkills() {
+    return Arrays.asList(
+      "Battle",
+      "Communicate",
+      "Discipline",
+      "Move",
+      "Understand"
+    );
+  }
+
+  /**
+   * The default drive names of the database.
+   * @return The list of default drives the database is populated with.
+   */
+  protected Collection<String> getDefaultDrives() {
+    return Arrays.asList("Duty", "Faith", "Justice", "Power", "Truth");
+  }
+
+  /**
+   * Get the SQL commands populating the tables with default values.
+   *
+   * The commands do not insert a default motivation already in the table.
+   *
+   * @return The list of SQL commands populating the tables.
+   */
+  protected List<String> getPopulationCommands() {
+    List<String> result = new ArrayList<>();
+    getDefaultMotivations()
+      .forEach((String motivation) -> {
+        String value = "'" + motivation.replace("'", "''") + "'";
+        result.add(
+          "INSERT INTO Motivation (name) SELECT " +
+          value +
+          " WHERE NOT EXISTS (SELECT 1 FROM Motivation WHERE name = " +
+          value +
+          ")"
+        );
+      });
+    return result;
+  }
+
+  /**
+   * Get the database creator containing the migrations of the database.
+   *
+   * New schema changes are added as new migrations after the existing ones.
+   * An applied migration must never be altered, as its checksum is verified
+   * on every migration.
+   *
+   * @return The database creator with the migrations of the Dune database.
+   */
+  public CreateDatabase getCreateDatabase() {
+    return new CreateDatabase()
+      .addMigration(
+        Migration.create(
+          1,
+          "Person and motivation tables",
+          getCreateTables(getTableDefinitions())
+        )
+      )
+      .addMigration(
+        Migration.create(2, "Default motivations", getPopulationCommands())
+      )
+      .addMigration(
+        Migration.create(
+          3,
+          "Character tables",
+          getCreateTables(getCharacterTableDefinitions())
+        )
+      )
+      .addMigration(
+        Migration.create(
+          4,
+          "Ticks index",
+          Arrays.asList(
+            "CREATE INDEX IF NOT EXISTS ticks_tick_idx ON ticks (tick)"
+          )
+        )
+      )
+      .addMigration(
+        Migration.create(5, "Reference data", getReferenceDataCommands())
+      )
+      .addMigration(
+        Migration.create(
+          6,
+          "Character versions",
+          Arrays.asList(
+            "ALTER TABLE characters ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 1"
+          )
+        )
+      )
+      .addMigration(
+        Migration.createIndexes(7, "Foreign key indexes", getIndexDefinitions())
+      )
+      .addMigration(
+        Migration.create(
+          8,
+          "Character summary views",
+          getCreateViews(getViewDefinitions())
+        )
+      )
+      .addMigration(
+        Migration.create(
+          9,
+          "Character sheet snapshots",
+          Arrays.asList(
+            "ALTER TABLE characters ADD COLUMN IF NOT EXISTS sheet JSONB"
+          )
+        )
+      )
+      .addMigration(
+        Migration.create(10, "Campaign tables", getCampaignCommands())
+      )
+      .addMigration(
+        Migration.create(
+          11,
+          "Tick identifiers",
+          Arrays.asList(
+            "ALTER TABLE ticks ADD COLUMN IF NOT EXISTS id BIGINT GENERATED ALWAYS AS IDENTITY"
+          )
+        )
+      )
+      .addMigration(
+        Migration.create(
+          12,
+          "Tick keyset index",
+          getTickIndexCommands(),
+          false
+        )
+      )
+      .addMigration(
+        Migration.create(
+          13,
+          "Person motivation references",
+          getPersonMotivationReferenceCommands()
+        )
+      )
+      .addMigration(
+        Migration.create(
+          14,
+          "Character identifier range",
+          getCharacterIdentifierCommands()
+        )
+      );
+  }
+
+  /**
+   * Get the SQL commands widening the identifiers of the characters and the
+   * references to them from small integers to integers. The views depending
+   * on the identifiers are removed before the change, and created again
+   * after it.
+   * @return The list of SQL commands widening the character identifiers.
+   */
+  protected List<String> getCharacterIdentifierCommands() {
+    List<ViewDefinition> views = getViewDefinitions();
+    List<String> result = new ArrayList<>();
+    for (int i = views.size() - 1; i >= 0; i--) {
+      result.add(views.get(i).getRemoveView());
+    }
+    result.add("ALTER TABLE characters ALTER COLUMN id TYPE INTEGER");
+    result.add("ALTER SEQUENCE IF EXISTS characters_id_seq AS INTEGER");
+    for (
+      String table : Arrays.asList(
+        "character_skills",
+        "character_drives",
+        "character_drive_statements",
+        "campaign_characters"
+      )
+    ) {
+      result.add("ALTER TABLE " + table + " ALTER COLUMN cid TYPE INTEGER");
+    }
+    result.addAll(getCreateViews(views));
+    return result;
+  }
+
+  /**
+   * Get the SQL commands making the motivations of the persons refer to the
+   * motivations instead of the persons. The rows without a motivation are
+   * removed, as the constraint cannot be added with them.
+   * @return The list of SQL commands replacing the foreign key.
+   */
+  protected List<String> getPersonMotivationReferenceCommands() {
+    return Arrays.asList(
+      "ALTER TABLE PersonMotivations DROP CONSTRAINT IF EXISTS personmotivations_motivation_id_fkey",
+      "DELETE FROM PersonMotivations pm" +
+      " WHERE NOT EXISTS (SELECT 1 FROM Motivation m WHERE m.id = pm.motivation_id)",
+      "ALTER TABLE PersonMotivations ADD CONSTRAINT personmotivations_motivation_id_fkey" +
+      " FOREIGN KEY (motivation_id) REFERENCES Motivation (id) ON UPDATE CASCADE ON DELETE CASCADE"
+    );
+  }
+
+  /**
+   * Get the SQL commands replacing the index of the ticks with the index of
+   * the keyset of the tick pages. The identifier breaks the ties of the ticks
+   * with the same timestamp.
+   * @return The list of SQL commands performed outside a transaction.
+   */
+  protected List<String> getTickIndexCommands() {
+    return Arrays.asList(
+      IndexDefinition.create("ticks_tick_id_idx", "ticks", "tick", "id")
+        .getCreateIndex(),
+      IndexDefinition.create("ticks_tick_idx", "ticks", "tick").getRemoveIndex()
+    );
+  }
+
+  /**
+   * Get the SQL commands adding the descriptions and the default values of
+   * the reference data tables.
+   * @return The list of SQL commands of the reference data.
+   */
+  protected List<String> getReferenceDataCommands() {
+    List<String> result = new ArrayList<>();
+    for (String table : Arrays.asList("motivations", "skills", "drives")) {
+      result.add(
+        "ALTER TABLE " + table + " ADD COLUMN IF NOT EXISTS description TEXT"
+      );
+    }
+    getDefaultSkills()
+      .forEach((String skill) ->
+        result.add(
+          "INSERT INTO skills (name) VALUES ('" +
+          skill.replace("'", "''") +
+          "') ON CONFLICT (name) DO NOTHING"
+        )
+      );
+    getDefaultDrives()
+      .forEach((String drive) ->
+        result.add(
+          "INSERT INTO drives (name) VALUES ('" +
+          drive.replace("'", "''") +
+          "') ON CONFLICT (name) DO NOTHING"
+        )
+      );
+    return result;
+  }
+
   /**
    * Create the database.
+   *
+   * The pending migrations of the database are applied. If all migrations
+   * have already been applied, only the schema version is queried.
+   *
    * @param connection Teh creation of the database.
    * @return True, if and only if the cration of the database succeeded.
    */
   public boolean create(Connection connection) {
+    return create(connection, System.err);
+  }
+
+  /**
+   * Create the database.
+   * @param connection The connection to the database.
+   * @param logger The stream into which logging reports are printed.
+   * @return True, if and only if the cration of the database succeeded.
+   */
+  public boolean create(Connection connection, java.io.PrintStream logger) {
+    return create(
+      connection,
+      logger,
+      DEFAULT_LOCK_TIMEOUT,
+      DEFAULT_LOCK_POLL_INTERVAL
+    );
+  }
+
+  /**
+   * Create the database.
+   *
+   * Only one application instance at a time performs the migrations. The
+   * other instances poll the schema version until the migrations have been
+   * applied, or the timeout expires.
+   *
+   * @param connection The connection to the database.
+   * @param logger The stream into which logging reports are printed.
+   * @param lockTimeout The maximal time in milliseconds waiting for the
+   *  migrations of another instance.
+   * @param pollInterval The interval in milliseconds between the polls.
+   * @return True, if and only if the cration of the database succeeded.
+   */
+  public boolean create(
+    Connection connection,
+    java.io.PrintStream logger,
+    long lockTimeout,
+    long pollInterval
+  ) {
     try {
-      connection.createStatement().execute("START TRANSACTION");
-      boolean result =
-        createTables(connection) &&
-        createViews(connection) &&
-        populateTables(connection);
-      connection.createStatement().execute("COMMIT");
-      return result;
+      int applied = getCreateDatabase()
+        .migrate(
+          connection,
+          logger,
+          SCHEMA_LOCK_KEY,
+          lockTimeout,
+          pollInterval
+        );
+      log(logger, "Database up to date: %d migrations applied%n", applied);
+      return true;
     } catch (SQLException sqle) {
-      // Rollback the transaction
-      try {
-        connection.createStatement().execute("ROLLBACK");
-      } catch (SQLException ignored) {}
+      log(logger, "Database migration failed: %s%n", sqle.getMessage());
       return false;
     }
   }
@@ -195,26 +927,30 @@ public class Database {
    * @param connection The connection to the database.
    */
   public boolean drop(Connection connection) throws SQLException {
-    try {
-      connection.createStatement().execute("START TRANSACTION");
-      for (String tableName : getTableNames()) {
-        if (
-          connection
-            .createStatement()
-            .executeUpdate("DROP TABLE IF EXISTS " + tableName) >
-          0
-        ) {
-          log(System.err, "Table %s dropped%n", tableName);
-        } else {
-          log(System.err, "Table %s not dropped%n", tableName);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("START TRANSACTION");
+      try {
+        for (ViewDefinition view : getViewDefinitions()) {
+          statement.execute(view.getRemoveView());
+        }
+        for (String tableName : getTableNames()) {
+          if (
+            statement.executeUpdate("DROP TABLE IF EXISTS " + tableName) > 0
+          ) {
+            log(System.err, "Table %s dropped%n", tableName);
+          } else {
+            log(System.err, "Table %s not dropped%n", tableName);
+          }
         }
+        statement.execute("COMMIT");
+        return true;
+      } catch (SQLException sqle) {
+        try {
+          statement.execute("ROLLBACK");
+        } catch (SQLException ignored) {}
+        return false;
       }
-      connection.createStatement().execute("COMMIT");
-      return true;
     } catch (SQLException sqle) {
-      try {
-        connection.createStatement().execute("ROLLBACK");
-      } catch (SQLException ignored) {}
       return false;
     }
   }
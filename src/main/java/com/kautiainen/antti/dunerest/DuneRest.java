@@ -1,24 +1,101 @@
 package com.kautiainen.antti.dunerest;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.Optional;
 import javax.sql.DataSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 @SpringBootApplication
+@EnableScheduling
 @Controller
 public class DuneRest {
 
+  /**
+   * The query reading the first page of ticks.
+   */
+  private static final String FIRST_TICKS_SQL =
+    "SELECT id, tick FROM ticks WHERE tick IS NOT NULL ORDER BY tick, id LIMIT ?";
+
+  /**
+   * The query reading the page of ticks following the given tick and
+   * identifier. The identifier orders the ticks with the same timestamp.
+   */
+  private static final String NEXT_TICKS_SQL =
+    "SELECT id, tick FROM ticks WHERE (tick, id) > (?, ?) ORDER BY tick, id LIMIT ?";
+
   private final DataSource dataSource;
 
+  /**
+   * The writer recording the ticks of the requests.
+   */
+  private final TickWriter tickWriter;
+
+  /**
+   * The read-through cache of the characters.
+   */
+  private final CharacterCache characterCache;
+
+  /**
+   * The reference data resolving the skill and drive names.
+   */
+  private final ReferenceData referenceData;
+
+  /**
+   * The default number of ticks on a page.
+   */
+  private final int pageSize;
+
+  /**
+   * The maximal number of ticks on a page.
+   */
+  private final int maxPageSize;
+
+  /**
+   * The number of rows fetched from the database at a time. Non-positive value
+   * reads the whole result at once.
+   */
+  private final int fetchSize;
+
   @Autowired
-  public DuneRest(DataSource dataSource) {
+  public DuneRest(
+    DataSource dataSource,
+    TickWriter tickWriter,
+    CharacterCache characterCache,
+    ReferenceData referenceData,
+    @Value("${dune.ticks.page-size:50}") int pageSize,
+    @Value("${dune.ticks.max-page-size:500}") int maxPageSize,
+    @Value("${dune.ticks.fetch-size:0}") int fetchSize
+  ) {
     this.dataSource = dataSource;
+    this.tickWriter = tickWriter;
+    this.characterCache = characterCache;
+    this.referenceData = referenceData;
+    this.pageSize = pageSize;
+    this.maxPageSize = maxPageSize;
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * The database definition of the application.
+   * @return The database definition.
+   */
+  @Bean
+  public Database database() {
+    return new Database();
   }
 
   @GetMapping("/")
@@ -27,73 +104,36 @@ public class DuneRest {
   }
 
   @GetMapping("/character")
-  String characterView(Map<String, Object> model) {
+  String characterView(
+    Map<String, Object> model,
+    @RequestParam(name = "id", required = false) Short id
+  ) {
+    if (id != null) {
+      try {
+        Optional<CharacterSheet> character = characterCache.get(id);
+        if (character.isEmpty()) {
+          model.put("message", "Character not found");
+          return "error";
+        }
+        model.put("character", character.get());
+        model.put("reference", referenceData.get());
+        return "character";
+      } catch (Throwable t) {
+        model.put("message", t.getMessage());
+        return "error";
+      }
+    }
+    try {
+      // The tick is recorded before taking a connection, as the group commit
+      // waits for the flusher, which needs a connection of its own.
+      tickWriter.record();
+    } catch (Throwable t) {
+      model.put("message", t.getMessage());
+      return "error";
+    }
     try (Connection connection = dataSource.getConnection()) {
-      final var statement = connection.createStatement();
-      //TODO: Move database creation to separate method.
-      statement.executeUpdate(
-        "CREATE TABLE IF NOT EXISTS motivations (" +
-        "id SMALLSERIAL PRIMARY KEY, " +
-        "name VARCHAR(40) NOT NULL UNIQUE, " +
-        "value SMALLINT NOT NULL DEFAULT '4' " +
-        ")"
-      );
-      //TODO: Move database creation to separate method.
-      statement.executeUpdate(
-        "CREATE TABLE IF NOT EXISTS skills (" +
-        "id SMALLSERIAL PRIMARY KEY, " +
-        "name VARCHAR(40) NOT NULL UNIQUE, " +
-        ")"
-      );
-      statement.executeUpdate(
-        "CREATE TABLE IF NOT EXISTS drives (" +
-        "id SMALLSERIAL PRIMARY KEY, " +
-        "name VARCHAR(40) NOT NULL UNIQUE, " +
-        ")"
-      );
-      statement.executeUpdate(
-        "CREATE TABLE IF NOT EXISTS characters (" +
-        "id SMALLSERIAL PRIMARY KEY " +
-        ", name VARCHAR(255) NOT NULL" +
-        ", creator VARCHAR(255) NOT NULL" +
-        ")"
-      );
-      statement.executeUpdate(
-        "CREATE TABLE IF NOT EXISTS character_skills (" +
-        "cid SMALLINT NOT NULL REFERENCES characters (id) ON UPDATE CASCADE ON DELETE CASCADE" +
-        ", sid SMALLINT NOT NULL REFERENCES skills (id) ON UPDATE CASCADE ON DELETE CASCADE" +
-        ", value SMALLINT DEFAULT 4 NOT NULL" +
-        ")"
-      );
-      statement.executeUpdate(
-        "CREATE TABLE IF NOT EXISTS character_drives (" +
-        "cid SMALLINT NOT NULL REFERENCES characters (id) ON UPDATE CASCADE ON DELETE CASCADE" +
-        ", did SMALLINT NOT NULL REFERENCES drives (id) ON UPDATE CASCADE ON DELETE CASCADE" +
-        ", value SMALLINT DEFAULT 4 NOT NULL" +
-        ")"
-      );
-      statement.executeUpdate(
-        "CREATE TABLE IF NOT EXISTS character_drive_statements (" +
-        "cid SMALLINT NOT NULL REFERENCES characters (id) ON UPDATE CASCADE ON DELETE CASCADE" +
-        ", did SMALLINT NOT NULL REFERENCES drives (id) ON UPDATE CASCADE ON DELETE CASCADE" +
-        ", row_id SMALLSERIAL NOT NULL" +
-        ", statement VARCHAR(60) NOT NULL" +
-        ", PRIMARY KEY (cid,sid,row_id)" +
-        ", FOREIGN KEY character_drives (cid, did)" +
-        ")"
-      );
-
       // Performing the database operation.
-
-      statement.executeUpdate("INSERT INTO ticks VALUES (now())");
-
-      final var resultSet = statement.executeQuery("SELECT tick FROM ticks");
-      final var output = new ArrayList<>();
-      while (resultSet.next()) {
-        output.add("Read from DB: " + resultSet.getTimestamp("tick"));
-      }
-
-      model.put("records", output);
+      readTicks(connection, null, 0L, pageSize, model);
       return "database";
     } catch (Throwable t) {
       model.put("message", t.getMessage());
@@ -102,21 +142,26 @@ public class DuneRest {
   }
 
   @GetMapping("/database")
-  String database(Map<String, Object> model) {
+  String database(
+    Map<String, Object> model,
+    @RequestParam(name = "after", required = false) String after,
+    @RequestParam(name = "afterId", required = false) Long afterId,
+    @RequestParam(name = "limit", required = false) Integer limit
+  ) {
+    try {
+      tickWriter.record();
+    } catch (Throwable t) {
+      model.put("message", t.getMessage());
+      return "error";
+    }
     try (Connection connection = dataSource.getConnection()) {
-      final var statement = connection.createStatement();
-      statement.executeUpdate(
-        "CREATE TABLE IF NOT EXISTS ticks (tick timestamp)"
+      readTicks(
+        connection,
+        after == null || after.isEmpty() ? null : Timestamp.valueOf(after),
+        afterId == null ? 0L : afterId,
+        limit == null ? pageSize : Math.max(1, Math.min(limit, maxPageSize)),
+        model
       );
-      statement.executeUpdate("INSERT INTO ticks VALUES (now())");
-
-      final var resultSet = statement.executeQuery("SELECT tick FROM ticks");
-      final var output = new ArrayList<>();
-      while (resultSet.next()) {
-        output.add("Read from DB: " + resultSet.getTimestamp("tick"));
-      }
-
-      model.put("records", output);
       return "database";
     } catch (Throwable t) {
       model.put("message", t.getMessage());
@@ -124,6 +169,74 @@ public class DuneRest {
     }
   }
 
+  /**
+   * Read a page of ticks into the model.
+   *
+   * The ticks are read in ascending order of the tick and the identifier
+   * starting after the given tick and identifier. The model gets the read
+   * ticks as <code>records</code>, the page size as <code>limit</code>, and
+   * the last read tick and identifier of a full page as <code>next</code> and
+   * <code>nextId</code>.
+   *
+   * @param connection The connection to the database.
+   * @param after The tick after which the page starts. An undefined value
+   *  reads the first page.
+   * @param afterId The identifier of the tick after which the page starts.
+   *  Zero starts the page from the first tick with the given timestamp.
+   * @param limit The maximal number of ticks read.
+   * @param model The model into which the page is stored.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  protected void readTicks(
+    Connection connection,
+    Timestamp after,
+    long afterId,
+    int limit,
+    Map<String, Object> model
+  ) throws SQLException {
+    final boolean autoCommit = connection.getAutoCommit();
+    if (fetchSize > 0) {
+      // The driver only uses a cursor within a transaction.
+      connection.setAutoCommit(false);
+    }
+    try (
+      PreparedStatement query = connection.prepareStatement(
+        after == null ? FIRST_TICKS_SQL : NEXT_TICKS_SQL
+      )
+    ) {
+      int index = 1;
+      if (after != null) {
+        query.setTimestamp(index++, after);
+        query.setLong(index++, afterId);
+      }
+      query.setInt(index, limit);
+      if (fetchSize > 0) {
+        query.setFetchSize(Math.min(fetchSize, limit));
+      }
+      final var output = new ArrayList<>(limit);
+      Timestamp last = null;
+      long lastId = 0L;
+      try (ResultSet resultSet = query.executeQuery()) {
+        while (resultSet.next()) {
+          last = resultSet.getTimestamp("tick");
+          lastId = resultSet.getLong("id");
+          output.add("Read from DB: " + last);
+        }
+      }
+      model.put("records", output);
+      model.put("limit", limit);
+      if (output.size() == limit && last != null) {
+        model.put("next", last.toString());
+        model.put("nextId", lastId);
+      }
+    } finally {
+      if (fetchSize > 0) {
+        connection.commit();
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+  }
+
   public static void main(String[] args) {
     SpringApplication.run(DuneRest.class, args);
   }
@@ -0,0 +1,592 @@
+package com.kautiainen.antti.dunerest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The analysis of the characters of a party.
+ *
+ * Every combination of a character, a skill and a drive is evaluated with
+ * the exact probability of the success of the test, and the characters are
+ * ranked for each skill and drive. The characters of a large party are
+ * evaluated in parallel in the common fork/join pool: each worker ranks its
+ * own characters, and the partial rankings are merged. The ranking orders
+ * the characters by the probability descending and by the position in the
+ * party ascending, so the result does not depend on the parallelism.
+ */
+@Component
+public class PartyAnalyzer {
+
+  /**
+   * The characters of a campaign with their ratings. The characters are
+   * stored in the ascending order of their identifiers, and the ratings in
+   * byte columns indexed by the position of the character.
+   */
+  public static final class Party {
+
+    private final int id;
+
+    private final String name;
+
+    /**
+     * The identifiers of the characters in ascending order.
+     */
+    private final short[] ids;
+
+    /**
+     * The names of the characters.
+     */
+    private final String[] names;
+
+    /**
+     * The skill columns indexed by the skill identifier and the position.
+     */
+    private final byte[][] skills;
+
+    /**
+     * The drive columns indexed by the drive identifier and the position.
+     */
+    private final byte[][] drives;
+
+    private Party(
+      int id,
+      String name,
+      short[] ids,
+      String[] names,
+      byte[][] skills,
+      byte[][] drives
+    ) {
+      this.id = id;
+      this.name = name;
+      this.ids = ids;
+      this.names = names;
+      this.skills = skills;
+      this.drives = drives;
+    }
+
+    /**
+     * Get the identifier of the campaign.
+     * @return The identifier of the campaign.
+     */
+    public int getId() {
+      return id;
+    }
+
+    /**
+     * Get the name of the campaign.
+     * @return The name of the campaign.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Get the number of the characters.
+     * @return The number of the characters of the party.
+     */
+    public int size() {
+      return ids.length;
+    }
+
+    /**
+     * Get the identifier of a character.
+     * @param position The position of the character.
+     * @return The identifier of the character.
+     */
+    public short getCharacterId(int position) {
+      return ids[position];
+    }
+
+    /**
+     * Get the name of a character.
+     * @param position The position of the character.
+     * @return The name of the character.
+     */
+    public String getCharacterName(int position) {
+      return names[position];
+    }
+
+    /**
+     * Get a skill value of a character.
+     * @param position The position of the character.
+     * @param skillId The identifier of the skill.
+     * @return The value, or {@link CharacterStore#NO_VALUE}, if the character
+     *  does not have the skill.
+     */
+    public int getSkill(int position, int skillId) {
+      return skillId >= 0 && skillId < skills.length
+        ? skills[skillId][position]
+        : CharacterStore.NO_VALUE;
+    }
+
+    /**
+     * Get a drive value of a character.
+     * @param position The position of the character.
+     * @param driveId The identifier of the drive.
+     * @return The value, or {@link CharacterStore#NO_VALUE}, if the character
+     *  does not have the drive.
+     */
+    public int getDrive(int position, int driveId) {
+      return driveId >= 0 && driveId < drives.length
+        ? drives[driveId][position]
+        : CharacterStore.NO_VALUE;
+    }
+
+    /**
+     * Create a builder of a party.
+     * @param id The identifier of the campaign.
+     * @param name The name of the campaign.
+     * @return The builder of the party of the campaign.
+     */
+    public static Builder builder(int id, String name) {
+      return new Builder(id, name);
+    }
+
+    /**
+     * The builder of a party.
+     */
+    public static final class Builder {
+
+      private final int id;
+
+      private final String name;
+
+      private short[] ids = new short[16];
+
+      private String[] names = new String[16];
+
+      private int size = 0;
+
+      /**
+       * The skill ratings as the triples of the character identifier, the
+       * skill identifier and the value.
+       */
+      private int[] skills = new int[48];
+
+      private int skillCount = 0;
+
+      /**
+       * The drive ratings as the triples of the character identifier, the
+       * drive identifier and the value.
+       */
+      private int[] drives = new int[48];
+
+      private int driveCount = 0;
+
+      private Builder(int id, String name) {
+        this.id = id;
+        this.name = name;
+      }
+
+      /**
+       * Add a character.
+       * @param characterId The identifier of the character greater than the
+       *  identifiers of the added characters.
+       * @param characterName The name of the character.
+       * @return This builder.
+       * @throws IllegalArgumentException The identifier was not greater than
+       *  the identifiers of the added characters.
+       */
+      public Builder character(int characterId, String characterName) {
+        if (size > 0 && characterId <= ids[size - 1]) {
+          throw new IllegalArgumentException("Unordered character identifier");
+        }
+        if (size == ids.length) {
+          ids = Arrays.copyOf(ids, size * 2);
+          names = Arrays.copyOf(names, size * 2);
+        }
+        ids[size] = (short) characterId;
+        names[size++] = characterName;
+        return this;
+      }
+
+      /**
+       * Add a skill rating. The ratings of the characters not in the party
+       * are ignored.
+       * @param characterId The identifier of the character.
+       * @param skillId The identifier of the skill.
+       * @param value The value of the skill.
+       * @return This builder.
+       */
+      public Builder skill(int characterId, int skillId, int value) {
+        skills = append(skills, skillCount++, characterId, skillId, value);
+        return this;
+      }
+
+      /**
+       * Add a drive rating. The ratings of the characters not in the party
+       * are ignored.
+       * @param characterId The identifier of the character.
+       * @param driveId The identifier of the drive.
+       * @param value The value of the drive.
+       * @return This builder.
+       */
+      public Builder drive(int characterId, int driveId, int value) {
+        drives = append(drives, driveCount++, characterId, driveId, value);
+        return this;
+      }
+
+      /**
+       * Append a rating triple.
+       * @param triples The rating triples.
+       * @param index The index of the appended triple.
+       * @param characterId The identifier of the character.
+       * @param ratingId The identifier of the rating.
+       * @param value The value of the rating.
+       * @return The rating triples with the appended triple.
+       */
+      private static int[] append(
+        int[] triples,
+        int index,
+        int characterId,
+        int ratingId,
+        int value
+      ) {
+        int[] result = triples.length < (index + 1) * 3
+          ? Arrays.copyOf(triples, triples.length * 2)
+          : triples;
+        result[index * 3] = characterId;
+        result[index * 3 + 1] = ratingId;
+        result[index * 3 + 2] = value;
+        return result;
+      }
+
+      /**
+       * Create the columns of the rating triples.
+       * @param partyIds The identifiers of the characters of the party.
+       * @param triples The rating triples.
+       * @param count The number of the triples.
+       * @return The columns indexed by the rating identifier and the position
+       *  of the character.
+       */
+      private static byte[][] columns(
+        short[] partyIds,
+        int[] triples,
+        int count
+      ) {
+        int maxId = -1;
+        for (int i = 0; i < count; i++) {
+          maxId = Math.max(maxId, triples[i * 3 + 1]);
+        }
+        byte[][] result = RatingColumns.create(maxId + 1, partyIds.length);
+        for (int i = 0; i < count; i++) {
+          final int position = Arrays.binarySearch(
+            partyIds,
+            (short) triples[i * 3]
+          );
+          if (position >= 0) {
+            RatingColumns.set(
+              result,
+              triples[i * 3 + 1],
+              position,
+              triples[i * 3 + 2]
+            );
+          }
+        }
+        return result;
+      }
+
+      /**
+       * Build the party.
+       * @return The party of the added characters and ratings.
+       */
+      public Party build() {
+        final short[] partyIds = Arrays.copyOf(ids, size);
+        return new Party(
+          id,
+          name,
+          partyIds,
+          Arrays.copyOf(names, size),
+          columns(partyIds, skills, skillCount),
+          columns(partyIds, drives, driveCount)
+        );
+      }
+    }
+  }
+
+  /**
+   * A character recommended for a challenge.
+   * @param id The identifier of the character.
+   * @param name The name of the character.
+   * @param target The target number of the test.
+   * @param critical The critical number of the test.
+   * @param success The probability of the success of the test.
+   */
+  public static record Candidate(
+    short id,
+    String name,
+    int target,
+    int critical,
+    double success
+  ) {}
+
+  /**
+   * The ranked characters of a challenge.
+   * @param skill The name of the skill of the challenge.
+   * @param drive The name of the drive of the challenge.
+   * @param candidates The best characters in the descending order of the
+   *  probability of the success.
+   */
+  public static record Recommendation(
+    String skill,
+    String drive,
+    List<Candidate> candidates
+  ) {}
+
+  /**
+   * The analysis of a party.
+   * @param campaignId The identifier of the campaign.
+   * @param campaign The name of the campaign.
+   * @param characters The number of the characters of the party.
+   * @param difficulty The difficulty of the tests.
+   * @param dice The size of the dice pools of the tests.
+   * @param focus Does a focus apply to the tests.
+   * @param recommendations The recommendations of each skill and drive.
+   */
+  public static record Analysis(
+    int campaignId,
+    String campaign,
+    int characters,
+    int difficulty,
+    int dice,
+    boolean focus,
+    List<Recommendation> recommendations
+  ) {}
+
+  /**
+   * The partial ranking of the characters of all challenges.
+   */
+  private static final class Ranking {
+
+    private final int limit;
+
+    /**
+     * The positions of the ranked characters of each challenge.
+     */
+    private final int[] positions;
+
+    /**
+     * The probabilities of the ranked characters of each challenge.
+     */
+    private final double[] chances;
+
+    /**
+     * The numbers of the ranked characters of each challenge.
+     */
+    private final int[] counts;
+
+    Ranking(int challenges, int limit) {
+      this.limit = limit;
+      this.positions = new int[challenges * limit];
+      this.chances = new double[challenges * limit];
+      this.counts = new int[challenges];
+    }
+
+    /**
+     * Test the order of two ranked characters.
+     * @param chance The probability of the character.
+     * @param position The position of the character.
+     * @param otherChance The probability of the other character.
+     * @param otherPosition The position of the other character.
+     * @return True, if and only if the character ranks before the other.
+     */
+    private static boolean before(
+      double chance,
+      int position,
+      double otherChance,
+      int otherPosition
+    ) {
+      return (
+        chance > otherChance ||
+        (chance == otherChance && position < otherPosition)
+      );
+    }
+
+    /**
+     * Rank a character for a challenge.
+     * @param challenge The index of the challenge.
+     * @param position The position of the character.
+     * @param chance The probability of the success of the character.
+     */
+    void add(int challenge, int position, double chance) {
+      final int base = challenge * limit;
+      final int count = counts[challenge];
+      if (
+        count == limit &&
+        !before(
+          chance,
+          position,
+          chances[base + count - 1],
+          positions[base + count - 1]
+        )
+      ) {
+        return;
+      }
+      int index = base + (count < limit ? counts[challenge]++ : count - 1);
+      while (
+        index > base &&
+        before(chance, position, chances[index - 1], positions[index - 1])
+      ) {
+        positions[index] = positions[index - 1];
+        chances[index] = chances[index - 1];
+        index--;
+      }
+      positions[index] = position;
+      chances[index] = chance;
+    }
+
+    /**
+     * Merge another ranking into this ranking.
+     * @param other The other ranking of the same challenges.
+     */
+    void addAll(Ranking other) {
+      for (int challenge = 0; challenge < counts.length; challenge++) {
+        final int base = challenge * limit;
+        for (int i = 0; i < other.counts[challenge]; i++) {
+          add(challenge, other.positions[base + i], other.chances[base + i]);
+        }
+      }
+    }
+  }
+
+  /**
+   * The probabilities of the skill tests.
+   */
+  private final SkillTestOdds odds;
+
+  /**
+   * The smallest party evaluated in parallel.
+   */
+  private final int parallelThreshold;
+
+  @Autowired
+  public PartyAnalyzer(
+    SkillTestOdds odds,
+    @Value(
+      "${dune.campaigns.analysis.parallel-threshold:256}"
+    ) int parallelThreshold
+  ) {
+    this.odds = odds;
+    this.parallelThreshold = Math.max(1, parallelThreshold);
+  }
+
+  /**
+   * Get the identifiers of a dictionary.
+   * @param dictionary The dictionary.
+   * @return The identifiers with a name in ascending order.
+   */
+  private static int[] getIds(ReferenceDictionary dictionary) {
+    return IntStream
+      .rangeClosed(0, dictionary.getMaxId())
+      .filter(dictionary::contains)
+      .toArray();
+  }
+
+  /**
+   * Analyze a party.
+   * @param party The party.
+   * @param reference The reference data of the skills and the drives.
+   * @param difficulty The difficulty of the tests.
+   * @param dice The size of the dice pools.
+   * @param focus Does a focus apply to the tests.
+   * @param limit The maximal number of the candidates of a challenge.
+   * @return The analysis with a recommendation of each skill and drive.
+   * @throws IllegalArgumentException The difficulty, the pool size or the
+   *  limit was invalid.
+   */
+  public Analysis analyze(
+    Party party,
+    ReferenceData.Snapshot reference,
+    int difficulty,
+    int dice,
+    boolean focus,
+    int limit
+  ) {
+    if (
+      !SkillTestOdds.isValidDifficulty(difficulty) ||
+      !SkillTestOdds.isValidPool(dice) ||
+      limit <= 0
+    ) {
+      throw new IllegalArgumentException("Invalid analysis parameters");
+    }
+    final int[] skillIds = getIds(reference.skills());
+    final int[] driveIds = getIds(reference.drives());
+    final int challenges = skillIds.length * driveIds.length;
+    IntStream characters = IntStream.range(0, party.size());
+    if (party.size() >= parallelThreshold) {
+      characters = characters.parallel();
+    }
+    Ranking ranking = characters.collect(
+      () -> new Ranking(challenges, limit),
+      (result, position) -> {
+        for (int s = 0; s < skillIds.length; s++) {
+          final int skill = party.getSkill(position, skillIds[s]);
+          if (skill < 0) {
+            continue;
+          }
+          final int critical = SkillTestOdds.getCritical(skill, focus);
+          for (int d = 0; d < driveIds.length; d++) {
+            final int drive = party.getDrive(position, driveIds[d]);
+            if (drive >= 0) {
+              result.add(
+                s * driveIds.length + d,
+                position,
+                odds.getSuccess(
+                  SkillTestOdds.getTarget(skill, drive),
+                  critical,
+                  dice,
+                  difficulty
+                )
+              );
+            }
+          }
+        }
+      },
+      Ranking::addAll
+    );
+    List<Recommendation> recommendations = new ArrayList<>(challenges);
+    for (int s = 0; s < skillIds.length; s++) {
+      for (int d = 0; d < driveIds.length; d++) {
+        final int challenge = s * driveIds.length + d;
+        List<Candidate> candidates = new ArrayList<>(ranking.counts[challenge]);
+        for (int i = 0; i < ranking.counts[challenge]; i++) {
+          final int position = ranking.positions[challenge * limit + i];
+          final int skill = party.getSkill(position, skillIds[s]);
+          candidates.add(
+            new Candidate(
+              party.getCharacterId(position),
+              party.getCharacterName(position),
+              SkillTestOdds.getTarget(
+                skill,
+                party.getDrive(position, driveIds[d])
+              ),
+              SkillTestOdds.getCritical(skill, focus),
+              ranking.chances[challenge * limit + i]
+            )
+          );
+        }
+        recommendations.add(
+          new Recommendation(
+            reference.skills().getName(skillIds[s]),
+            reference.drives().getName(driveIds[d]),
+            candidates
+          )
+        );
+      }
+    }
+    return new Analysis(
+      party.getId(),
+      party.getName(),
+      party.size(),
+      difficulty,
+      dice,
+      focus,
+      recommendations
+    );
+  }
+}
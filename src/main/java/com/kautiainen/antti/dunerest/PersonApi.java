@@ -0,0 +1,74 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.dunerest.PersonRepository.Motivation;
+import com.kautiainen.antti.dunerest.PersonRepository.Person;
+import java.sql.SQLException;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * The JSON resource API of the persons and the motivations.
+ */
+@RestController
+@RequestMapping("/api")
+public class PersonApi {
+
+  /**
+   * The repository of the persons.
+   */
+  private final PersonRepository repository;
+
+  @Autowired
+  public PersonApi(PersonRepository repository) {
+    this.repository = repository;
+  }
+
+  /**
+   * List the persons.
+   * @return The list of the persons with their motivations.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @GetMapping("/persons")
+  public List<Person> listPersons() throws SQLException {
+    return repository.findAll();
+  }
+
+  /**
+   * Get a person.
+   * @param id The identifier of the person.
+   * @return The person, or <code>404 Not Found</code>.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @GetMapping("/persons/{id}")
+  public ResponseEntity<Person> getPerson(@PathVariable("id") int id)
+    throws SQLException {
+    return ResponseEntity.of(repository.find(id));
+  }
+
+  /**
+   * List the motivations.
+   * @return The list of the motivations.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @GetMapping("/motivations")
+  public List<Motivation> listMotivations() throws SQLException {
+    return repository.findMotivations();
+  }
+
+  /**
+   * Get a motivation.
+   * @param id The identifier of the motivation.
+   * @return The motivation, or <code>404 Not Found</code>.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @GetMapping("/motivations/{id}")
+  public ResponseEntity<Motivation> getMotivation(@PathVariable("id") int id)
+    throws SQLException {
+    return ResponseEntity.of(repository.findMotivation(id));
+  }
+}
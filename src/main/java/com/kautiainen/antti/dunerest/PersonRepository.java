@@ -0,0 +1,335 @@
+package com.kautiainen.antti.dunerest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * The repository of the persons and their motivations.
+ *
+ * All statements are constant prepared statements, so the driver reuses the
+ * server-side prepared statements of a pooled connection instead of parsing
+ * and planning the statements on every call.
+ */
+@Component
+public class PersonRepository {
+
+  /**
+   * The query of a person.
+   */
+  private static final String PERSON_SQL =
+    "SELECT id, name FROM Person WHERE id = ?";
+
+  /**
+   * The query of all persons with their motivations.
+   */
+  private static final String ALL_PERSONS_SQL =
+    "SELECT p.id, p.name, pm.motivation_id, pm.value, pm.statement" +
+    " FROM Person p LEFT JOIN PersonMotivations pm ON pm.person_id = p.id" +
+    " ORDER BY p.id, pm.motivation_id";
+
+  /**
+   * The query of the motivations of a person.
+   */
+  private static final String PERSON_MOTIVATIONS_SQL =
+    "SELECT motivation_id, value, statement FROM PersonMotivations" +
+    " WHERE person_id = ? ORDER BY motivation_id";
+
+  /**
+   * The insert of a person.
+   */
+  private static final String INSERT_PERSON_SQL =
+    "INSERT INTO Person (name) VALUES (?) RETURNING id";
+
+  /**
+   * The delete of a person.
+   */
+  private static final String DELETE_PERSON_SQL =
+    "DELETE FROM Person WHERE id = ?";
+
+  /**
+   * The insert or the update of a motivation of a person.
+   */
+  private static final String UPSERT_PERSON_MOTIVATION_SQL =
+    "INSERT INTO PersonMotivations (person_id, motivation_id, value, statement)" +
+    " VALUES (?, ?, ?, ?) ON CONFLICT (person_id, motivation_id)" +
+    " DO UPDATE SET value = EXCLUDED.value, statement = EXCLUDED.statement";
+
+  /**
+   * The query of a motivation.
+   */
+  private static final String MOTIVATION_SQL =
+    "SELECT id, name, description FROM Motivation WHERE id = ?";
+
+  /**
+   * The query of all motivations.
+   */
+  private static final String ALL_MOTIVATIONS_SQL =
+    "SELECT id, name, description FROM Motivation ORDER BY id";
+
+  private final DataSource dataSource;
+
+  @Autowired
+  public PersonRepository(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * A motivation.
+   * @param id The identifier of the motivation.
+   * @param name The name of the motivation.
+   * @param description The description of the motivation.
+   */
+  public static record Motivation(int id, String name, String description) {}
+
+  /**
+   * The motivation of a person.
+   * @param motivationId The identifier of the motivation.
+   * @param value The value of the motivation.
+   * @param statement The statement of the motivation.
+   */
+  public static record PersonMotivation(
+    int motivationId,
+    short value,
+    String statement
+  ) {}
+
+  /**
+   * A person with its motivations.
+   * @param id The identifier of the person.
+   * @param name The name of the person.
+   * @param motivations The motivations of the person.
+   */
+  public static record Person(
+    int id,
+    String name,
+    List<PersonMotivation> motivations
+  ) {
+    /**
+     * Create a new person with an immutable list of motivations. An undefined
+     * list is replaced with an empty list.
+     */
+    public Person {
+      motivations = motivations == null ? List.of() : List.copyOf(motivations);
+    }
+  }
+
+  /**
+   * Get all persons.
+   * @return The list of the persons with their motivations ordered by the
+   *  identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public List<Person> findAll() throws SQLException {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement query = connection.prepareStatement(ALL_PERSONS_SQL);
+      ResultSet rows = query.executeQuery()
+    ) {
+      return readPersons(rows);
+    }
+  }
+
+  /**
+   * Read the persons from the rows of the persons joined with their
+   * motivations.
+   * @param rows The rows ordered by the person identifier. A person without
+   *  motivations has a single row with an undefined motivation identifier.
+   * @return The list of the persons with their motivations in the order of
+   *  the rows.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  static List<Person> readPersons(ResultSet rows) throws SQLException {
+    List<Person> result = new ArrayList<>();
+    int id = 0;
+    String name = null;
+    List<PersonMotivation> motivations = null;
+    while (rows.next()) {
+      if (motivations == null || rows.getInt("id") != id) {
+        if (motivations != null) {
+          result.add(new Person(id, name, motivations));
+        }
+        id = rows.getInt("id");
+        name = rows.getString("name");
+        motivations = new ArrayList<>();
+      }
+      int motivationId = rows.getInt("motivation_id");
+      if (!rows.wasNull()) {
+        motivations.add(
+          new PersonMotivation(
+            motivationId,
+            rows.getShort("value"),
+            rows.getString("statement")
+          )
+        );
+      }
+    }
+    if (motivations != null) {
+      result.add(new Person(id, name, motivations));
+    }
+    return result;
+  }
+
+  /**
+   * Find a person.
+   * @param id The identifier of the person.
+   * @return The person with its motivations, or an empty value, if no person
+   *  has the identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public Optional<Person> find(int id) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      String name;
+      try (PreparedStatement query = connection.prepareStatement(PERSON_SQL)) {
+        query.setInt(1, id);
+        try (ResultSet result = query.executeQuery()) {
+          if (!result.next()) {
+            return Optional.empty();
+          }
+          name = result.getString("name");
+        }
+      }
+      List<PersonMotivation> motivations = new ArrayList<>();
+      try (
+        PreparedStatement query = connection.prepareStatement(
+          PERSON_MOTIVATIONS_SQL
+        )
+      ) {
+        query.setInt(1, id);
+        try (ResultSet result = query.executeQuery()) {
+          while (result.next()) {
+            motivations.add(
+              new PersonMotivation(
+                result.getInt("motivation_id"),
+                result.getShort("value"),
+                result.getString("statement")
+              )
+            );
+          }
+        }
+      }
+      return Optional.of(new Person(id, name, motivations));
+    }
+  }
+
+  /**
+   * Create a new person without motivations.
+   * @param name The name of the person.
+   * @return The identifier of the created person.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public int create(String name) throws SQLException {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement insert = connection.prepareStatement(INSERT_PERSON_SQL)
+    ) {
+      insert.setString(1, name);
+      try (ResultSet result = insert.executeQuery()) {
+        result.next();
+        return result.getInt(1);
+      }
+    }
+  }
+
+  /**
+   * Set a motivation of a person.
+   * @param personId The identifier of the person.
+   * @param motivation The new motivation of the person replacing the
+   *  existing value and statement of the motivation.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public void setMotivation(int personId, PersonMotivation motivation)
+    throws SQLException {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement upsert = connection.prepareStatement(
+        UPSERT_PERSON_MOTIVATION_SQL
+      )
+    ) {
+      upsert.setInt(1, personId);
+      upsert.setInt(2, motivation.motivationId());
+      upsert.setShort(3, motivation.value());
+      upsert.setString(4, motivation.statement());
+      upsert.executeUpdate();
+    }
+  }
+
+  /**
+   * Delete a person.
+   * @param id The identifier of the deleted person.
+   * @return True, if and only if the person existed.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public boolean delete(int id) throws SQLException {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement delete = connection.prepareStatement(DELETE_PERSON_SQL)
+    ) {
+      delete.setInt(1, id);
+      return delete.executeUpdate() > 0;
+    }
+  }
+
+  /**
+   * Get all motivations.
+   * @return The list of the motivations ordered by the identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public List<Motivation> findMotivations() throws SQLException {
+    List<Motivation> result = new ArrayList<>();
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement query = connection.prepareStatement(
+        ALL_MOTIVATIONS_SQL
+      );
+      ResultSet rows = query.executeQuery()
+    ) {
+      while (rows.next()) {
+        result.add(readMotivation(rows));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Find a motivation.
+   * @param id The identifier of the motivation.
+   * @return The motivation, or an empty value, if no motivation has the
+   *  identifier.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public Optional<Motivation> findMotivation(int id) throws SQLException {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement query = connection.prepareStatement(MOTIVATION_SQL)
+    ) {
+      query.setInt(1, id);
+      try (ResultSet result = query.executeQuery()) {
+        return result.next()
+          ? Optional.of(readMotivation(result))
+          : Optional.empty();
+      }
+    }
+  }
+
+  /**
+   * Read the motivation of the current row.
+   * @param row The result set positioned on a motivation row.
+   * @return The motivation of the row.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private static Motivation readMotivation(ResultSet row) throws SQLException {
+    return new Motivation(
+      row.getInt("id"),
+      row.getString("name"),
+      row.getString("description")
+    );
+  }
+}
@@ -0,0 +1,54 @@
+package com.kautiainen.antti.dunerest;
+
+import java.util.Arrays;
+
+/**
+ * The packed byte columns of the ratings shared by the in-memory stores of
+ * the ratings.
+ *
+ * Each skill or drive has a byte array of the values of the characters. A
+ * missing rating is {@link #NO_VALUE}, and the values are clamped into the
+ * range of the non-negative bytes.
+ */
+final class RatingColumns {
+
+  /**
+   * The value of a missing rating.
+   */
+  static final byte NO_VALUE = -1;
+
+  /**
+   * The rating columns have only static methods.
+   */
+  private RatingColumns() {}
+
+  /**
+   * Create the columns without values.
+   * @param count The number of the columns.
+   * @param length The length of the columns.
+   * @return The columns filled with {@link #NO_VALUE}.
+   */
+  static byte[][] create(int count, int length) {
+    byte[][] result = new byte[Math.max(0, count)][Math.max(0, length)];
+    for (byte[] column : result) {
+      Arrays.fill(column, NO_VALUE);
+    }
+    return result;
+  }
+
+  /**
+   * Set a value of a column. The values outside the columns are ignored.
+   * @param columns The columns.
+   * @param column The index of the column.
+   * @param index The index of the value within the column.
+   * @param value The value clamped into the range of the non-negative bytes.
+   */
+  static void set(byte[][] columns, int column, int index, int value) {
+    if (column >= 0 && column < columns.length && index >= 0) {
+      if (index < columns[column].length) {
+        columns[column][index] =
+          (byte) Math.max(0, Math.min(Byte.MAX_VALUE, value));
+      }
+    }
+  }
+}
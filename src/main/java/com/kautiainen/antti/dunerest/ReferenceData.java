@@ -0,0 +1,135 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.utils.db.RepeatableRead;
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * The in-memory reference data of the motivations, skills, and drives.
+ *
+ * The reference data is loaded at startup, and reloaded periodically. The
+ * dictionaries of all tables are replaced at once, so a reader always sees
+ * a consistent snapshot.
+ */
+@Component
+public class ReferenceData implements InitializingBean {
+
+  /**
+   * An immutable snapshot of the reference data.
+   * @param motivations The dictionary of the motivations.
+   * @param skills The dictionary of the skills.
+   * @param drives The dictionary of the drives.
+   */
+  public static record Snapshot(
+    ReferenceDictionary motivations,
+    ReferenceDictionary skills,
+    ReferenceDictionary drives
+  ) {}
+
+  /**
+   * The snapshot without reference data.
+   */
+  public static final Snapshot EMPTY = new Snapshot(
+    ReferenceDictionary.EMPTY,
+    ReferenceDictionary.EMPTY,
+    ReferenceDictionary.EMPTY
+  );
+
+  private final DataSource dataSource;
+
+  /**
+   * The current snapshot.
+   */
+  private volatile Snapshot snapshot = EMPTY;
+
+  /**
+   * Create the reference data.
+   * @param dataSource The data source of the reference data.
+   * @param schemaBootstrap The schema bootstrap creating the reference data
+   *  tables before the reference data is loaded.
+   */
+  @Autowired
+  public ReferenceData(DataSource dataSource, SchemaBootstrap schemaBootstrap) {
+    this.dataSource = dataSource;
+  }
+
+  /**
+   * Get the current snapshot of the reference data.
+   * @return The current snapshot.
+   */
+  public Snapshot get() {
+    return snapshot;
+  }
+
+  /**
+   * Get the current dictionary of the motivations.
+   * @return The motivation dictionary.
+   */
+  public ReferenceDictionary getMotivations() {
+    return snapshot.motivations();
+  }
+
+  /**
+   * Get the current dictionary of the skills.
+   * @return The skill dictionary.
+   */
+  public ReferenceDictionary getSkills() {
+    return snapshot.skills();
+  }
+
+  /**
+   * Get the current dictionary of the drives.
+   * @return The drive dictionary.
+   */
+  public ReferenceDictionary getDrives() {
+    return snapshot.drives();
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    refresh();
+  }
+
+  /**
+   * Reload the reference data periodically.
+   */
+  @Scheduled(
+    initialDelayString = "${dune.reference.refresh-interval:60000}",
+    fixedDelayString = "${dune.reference.refresh-interval:60000}"
+  )
+  public void scheduledRefresh() {
+    refresh();
+  }
+
+  /**
+   * Reload the reference data, and replace the current snapshot, if the
+   * reference data has changed. The tables are read in a single repeatable
+   * read transaction, so the snapshot is consistent.
+   * @return True, if and only if the snapshot was replaced.
+   */
+  public boolean refresh() {
+    try (Connection connection = dataSource.getConnection()) {
+      Snapshot loaded = RepeatableRead.read(
+        connection,
+        (Connection transaction) ->
+          new Snapshot(
+            ReferenceDictionary.load(transaction, "motivations"),
+            ReferenceDictionary.load(transaction, "skills"),
+            ReferenceDictionary.load(transaction, "drives")
+          )
+      );
+      if (!loaded.equals(snapshot)) {
+        snapshot = loaded;
+        return true;
+      }
+    } catch (SQLException sqle) {
+      System.err.printf("Reference data refresh failed: %s%n", sqle.getMessage());
+    }
+    return false;
+  }
+}
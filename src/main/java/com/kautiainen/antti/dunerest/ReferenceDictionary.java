@@ -0,0 +1,160 @@
+package com.kautiainen.antti.dunerest;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * An immutable dictionary of a reference data table with a small integer key.
+ *
+ * The names and descriptions are stored in arrays indexed by the identifier,
+ * so the lookup of an identifier is a single array access.
+ */
+public final class ReferenceDictionary {
+
+  /**
+   * The empty dictionary.
+   */
+  public static final ReferenceDictionary EMPTY = new ReferenceDictionary(
+    new String[0],
+    new String[0]
+  );
+
+  /**
+   * The names indexed by the identifiers. An undefined name indicates
+   * an unused identifier.
+   */
+  private final String[] names;
+
+  /**
+   * The descriptions indexed by the identifiers.
+   */
+  private final String[] descriptions;
+
+  /**
+   * Create a new dictionary.
+   * @param names The names indexed by the identifiers.
+   * @param descriptions The descriptions indexed by the identifiers.
+   */
+  private ReferenceDictionary(String[] names, String[] descriptions) {
+    this.names = names;
+    this.descriptions = descriptions;
+  }
+
+  /**
+   * Create a dictionary without descriptions.
+   * @param names The names indexed by the identifiers. An undefined name
+   *  indicates an unused identifier.
+   * @return The dictionary of the names.
+   */
+  public static ReferenceDictionary of(String... names) {
+    return new ReferenceDictionary(names.clone(), new String[names.length]);
+  }
+
+  /**
+   * Load the dictionary from a reference data table.
+   * @param connection The connection to the database.
+   * @param table The table with columns <code>id</code>, <code>name</code>,
+   *  and <code>description</code>.
+   * @return The dictionary of the table content.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public static ReferenceDictionary load(Connection connection, String table)
+    throws SQLException {
+    String[] names = new String[16];
+    String[] descriptions = new String[16];
+    int maxId = -1;
+    try (
+      Statement statement = connection.createStatement();
+      ResultSet result = statement.executeQuery(
+        "SELECT id, name, description FROM " + table + " ORDER BY id"
+      )
+    ) {
+      while (result.next()) {
+        short id = result.getShort("id");
+        if (id < 0) {
+          continue;
+        } else if (id >= names.length) {
+          names = Arrays.copyOf(names, Math.max(id + 1, 2 * names.length));
+          descriptions = Arrays.copyOf(descriptions, names.length);
+        }
+        names[id] = result.getString("name");
+        descriptions[id] = result.getString("description");
+        maxId = Math.max(maxId, id);
+      }
+    }
+    names = Arrays.copyOf(names, maxId + 1);
+    descriptions = Arrays.copyOf(descriptions, maxId + 1);
+    return new ReferenceDictionary(names, descriptions);
+  }
+
+  /**
+   * Get the greatest identifier of the dictionary.
+   * @return The greatest identifier, or -1, if the dictionary is empty.
+   */
+  public int getMaxId() {
+    return names.length - 1;
+  }
+
+  /**
+   * Test whether the dictionary contains an identifier.
+   * @param id The tested identifier.
+   * @return True, if and only if the identifier has a name.
+   */
+  public boolean contains(int id) {
+    return id >= 0 && id < names.length && names[id] != null;
+  }
+
+  /**
+   * Get the name of an identifier.
+   * @param id The identifier.
+   * @return The name of the identifier, or an undefined value, if the
+   *  identifier does not exist.
+   */
+  public String getName(int id) {
+    return id >= 0 && id < names.length ? names[id] : null;
+  }
+
+  /**
+   * Get the description of an identifier.
+   * @param id The identifier.
+   * @return The description of the identifier, or an undefined value, if the
+   *  identifier does not exist or has no description.
+   */
+  public String getDescription(int id) {
+    return id >= 0 && id < descriptions.length ? descriptions[id] : null;
+  }
+
+  /**
+   * Get the identifier of a name.
+   * @param name The name.
+   * @return The identifier with the given name ignoring case, or -1, if no
+   *  identifier has the name.
+   */
+  public int getId(String name) {
+    if (name != null) {
+      for (int id = 0; id < names.length; id++) {
+        if (name.equalsIgnoreCase(names[id])) {
+          return id;
+        }
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return (
+      other instanceof ReferenceDictionary dictionary &&
+      Arrays.equals(names, dictionary.names) &&
+      Arrays.equals(descriptions, dictionary.descriptions)
+    );
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(names) + Arrays.hashCode(descriptions);
+  }
+}
@@ -0,0 +1,135 @@
+package com.kautiainen.antti.dunerest;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The schema bootstrap creating the Dune database once at the application
+ * startup.
+ *
+ * The bootstrap is performed during the application context refresh, and
+ * therefore before the embedded web server starts accepting requests. The
+ * request handlers may thus assume the schema exists.
+ *
+ * When several instances start at once, only the instance holding the schema
+ * advisory lock migrates the schema. The other instances wait for at most the
+ * lock timeout before they start serving.
+ */
+@Component
+public class SchemaBootstrap implements InitializingBean {
+
+  /**
+   * The data source of the created database.
+   */
+  private final DataSource dataSource;
+
+  /**
+   * The database definition.
+   */
+  private final Database database;
+
+  /**
+   * Is the bootstrap enabled.
+   */
+  private final boolean enabled;
+
+  /**
+   * Does the failed bootstrap prevent the application startup.
+   */
+  private final boolean failFast;
+
+  /**
+   * Are the tables populated with the seed data after the migrations.
+   */
+  private final boolean seed;
+
+  /**
+   * The maximal time in milliseconds waiting for another instance to
+   * complete the schema migrations.
+   */
+  private final long lockTimeout;
+
+  /**
+   * The interval in milliseconds between the polls of the schema version.
+   */
+  private final long pollInterval;
+
+  /**
+   * Has the bootstrap completed successfully.
+   */
+  private volatile boolean completed = false;
+
+  /**
+   * Create a new schema bootstrap.
+   * @param dataSource The data source of the database.
+   * @param database The created database definition.
+   * @param enabled Is the bootstrap performed at all.
+   * @param failFast Does a failed bootstrap abort the application startup.
+   * @param seed Are the tables populated with the seed data.
+   * @param lockTimeout The maximal time in milliseconds waiting for another
+   *  instance to complete the schema migrations.
+   * @param pollInterval The interval in milliseconds between the polls of
+   *  the schema version.
+   */
+  @Autowired
+  public SchemaBootstrap(
+    DataSource dataSource,
+    Database database,
+    @Value("${dune.schema.bootstrap.enabled:true}") boolean enabled,
+    @Value("${dune.schema.bootstrap.fail-fast:false}") boolean failFast,
+    @Value("${dune.schema.bootstrap.seed:false}") boolean seed,
+    @Value("${dune.schema.bootstrap.lock-timeout:60000}") long lockTimeout,
+    @Value("${dune.schema.bootstrap.poll-interval:500}") long pollInterval
+  ) {
+    this.dataSource = dataSource;
+    this.database = database;
+    this.enabled = enabled;
+    this.failFast = failFast;
+    this.seed = seed;
+    this.lockTimeout = lockTimeout;
+    this.pollInterval = pollInterval;
+  }
+
+  /**
+   * Has the schema bootstrap completed successfully.
+   * @return True, if and only if the schema was created by this bootstrap.
+   */
+  public boolean isCompleted() {
+    return completed;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (enabled) {
+      bootstrap();
+    }
+  }
+
+  /**
+   * Perform the schema bootstrap.
+   * @return True, if and only if the schema bootstrap succeeded.
+   * @throws IllegalStateException The bootstrap failed, and the bootstrap
+   *  is configured to fail fast.
+   */
+  public boolean bootstrap() throws IllegalStateException {
+    try (Connection connection = dataSource.getConnection()) {
+      completed =
+        database.create(connection, System.err, lockTimeout, pollInterval);
+      if (completed && seed) {
+        database.populateTables(connection, System.err);
+      }
+    } catch (SQLException sqle) {
+      System.err.printf("Schema bootstrap failed: %s%n", sqle.getMessage());
+      completed = false;
+    }
+    if (!completed && failFast) {
+      throw new IllegalStateException("Schema bootstrap failed");
+    }
+    return completed;
+  }
+}
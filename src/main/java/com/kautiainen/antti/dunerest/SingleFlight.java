@@ -0,0 +1,126 @@
+package com.kautiainen.antti.dunerest;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The deduplication of concurrent loads of the same key.
+ *
+ * The first caller of a key performs the load, and the concurrent callers of
+ * the same key wait for and share its result. Once the load completes, or the
+ * load is forgotten, the next caller performs a new load.
+ *
+ * @param <KEY> The type of the keys.
+ * @param <VALUE> The type of the loaded values.
+ */
+public class SingleFlight<KEY, VALUE> {
+
+  /**
+   * The loader of a value.
+   * @param <KEY> The type of the keys.
+   * @param <VALUE> The type of the loaded values.
+   */
+  @FunctionalInterface
+  public static interface Loader<KEY, VALUE> {
+    /**
+     * Load the value of a key.
+     * @param key The loaded key.
+     * @return The value of the key.
+     * @throws SQLException The load failed.
+     */
+    public VALUE load(KEY key) throws SQLException;
+  }
+
+  /**
+   * The loads in progress.
+   */
+  private final ConcurrentMap<KEY, CompletableFuture<VALUE>> inFlight =
+    new ConcurrentHashMap<>();
+
+  /**
+   * The number of callers sharing the load of another caller.
+   */
+  private final AtomicLong shared = new AtomicLong();
+
+  /**
+   * Load the value of a key, or share the load in progress of the key.
+   * @param key The loaded key.
+   * @param loader The loader performing the load.
+   * @return The value of the key.
+   * @throws SQLException The load failed, or the caller was interrupted while
+   *  waiting for the load of another caller.
+   */
+  public VALUE load(KEY key, Loader<? super KEY, ? extends VALUE> loader)
+    throws SQLException {
+    CompletableFuture<VALUE> load = new CompletableFuture<>();
+    CompletableFuture<VALUE> existing = inFlight.putIfAbsent(key, load);
+    if (existing != null) {
+      shared.incrementAndGet();
+      return await(existing);
+    }
+    try {
+      VALUE value = loader.load(key);
+      load.complete(value);
+      return value;
+    } catch (Throwable t) {
+      load.completeExceptionally(t);
+      throw t;
+    } finally {
+      // The sharing callers never wait for a load left incomplete.
+      load.completeExceptionally(new SQLException("Load did not complete"));
+      inFlight.remove(key, load);
+    }
+  }
+
+  /**
+   * Forget the load in progress of a key. The later callers of the key
+   * perform a new load instead of sharing the forgotten load.
+   * @param key The key whose load is forgotten.
+   */
+  public void forget(KEY key) {
+    inFlight.remove(key);
+  }
+
+  /**
+   * Forget all loads in progress.
+   */
+  public void forgetAll() {
+    inFlight.clear();
+  }
+
+  /**
+   * Get the number of callers which shared the load of another caller.
+   * @return The number of shared loads.
+   */
+  public long getShared() {
+    return shared.get();
+  }
+
+  /**
+   * Wait for the load of another caller.
+   * @param load The load in progress.
+   * @return The loaded value.
+   * @throws SQLException The load failed, or the waiting was interrupted.
+   */
+  private VALUE await(CompletableFuture<VALUE> load) throws SQLException {
+    try {
+      return load.get();
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted waiting for a shared load", ie);
+    } catch (ExecutionException ee) {
+      if (ee.getCause() instanceof SQLException sqle) {
+        throw sqle;
+      } else if (ee.getCause() instanceof RuntimeException re) {
+        throw re;
+      } else if (ee.getCause() instanceof Error e) {
+        throw e;
+      }
+      throw new SQLException("Shared load failed", ee.getCause());
+    }
+  }
+}
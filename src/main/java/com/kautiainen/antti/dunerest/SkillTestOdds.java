@@ -0,0 +1,255 @@
+package com.kautiainen.antti.dunerest;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * The exact probabilities of the 2d20 skill tests.
+ *
+ * A test rolls a pool of d20 dice against the target number, which is the
+ * sum of the skill and the drive. Each die rolling at most the target number
+ * scores a success, and each die rolling at most the critical number scores
+ * two successes. The critical number is the skill with an applicable focus,
+ * and one otherwise. Each die rolling 20 causes a complication. The test
+ * succeeds, if the successes are at least the difficulty.
+ *
+ * The probabilities of all target numbers, critical numbers, pool sizes and
+ * difficulties are computed exactly by counting the outcomes into immutable
+ * tables on the creation, so the lookups are constant time array reads.
+ */
+@Component
+public class SkillTestOdds {
+
+  /**
+   * The number of the sides of a die.
+   */
+  public static final int SIDES = 20;
+
+  /**
+   * The smallest dice pool.
+   */
+  public static final int MIN_DICE = 2;
+
+  /**
+   * The largest dice pool.
+   */
+  public static final int MAX_DICE = 5;
+
+  /**
+   * The highest difficulty.
+   */
+  public static final int MAX_DIFFICULTY = 5;
+
+  /**
+   * The number of the pool sizes.
+   */
+  private static final int POOLS = MAX_DICE - MIN_DICE + 1;
+
+  /**
+   * The number of the difficulties.
+   */
+  private static final int DIFFICULTIES = MAX_DIFFICULTY + 1;
+
+  /**
+   * The probabilities of the success indexed by the target number, the
+   * critical number, the pool size and the difficulty.
+   */
+  private final double[] success;
+
+  /**
+   * The probabilities of at least one critical indexed by the critical
+   * number and the pool size.
+   */
+  private final double[] critical;
+
+  /**
+   * The probabilities of at least one complication indexed by the pool size.
+   */
+  private final double[] complication;
+
+  /**
+   * Create the tables of the probabilities.
+   */
+  public SkillTestOdds() {
+    this.success = new double[SIDES * SIDES * POOLS * DIFFICULTIES];
+    this.critical = new double[SIDES * POOLS];
+    this.complication = new double[POOLS];
+    for (int dice = MIN_DICE; dice <= MAX_DICE; dice++) {
+      final double outcomes = Math.pow(SIDES, dice);
+      complication[dice - MIN_DICE] =
+        1.0 - Math.pow(SIDES - 1, dice) / outcomes;
+      for (int crit = 1; crit <= SIDES; crit++) {
+        critical[(crit - 1) * POOLS + dice - MIN_DICE] =
+          1.0 - Math.pow(SIDES - crit, dice) / outcomes;
+      }
+    }
+    for (int target = 1; target <= SIDES; target++) {
+      for (int crit = 1; crit <= target; crit++) {
+        for (int dice = MIN_DICE; dice <= MAX_DICE; dice++) {
+          final long[] counts = countSuccesses(target, crit, dice);
+          final double outcomes = Math.pow(SIDES, dice);
+          // The number of the outcomes with at least the difficulty.
+          long atLeast = 0L;
+          for (int successes = counts.length - 1; successes >= 0; successes--) {
+            atLeast += counts[successes];
+            if (successes <= MAX_DIFFICULTY) {
+              success[index(target, crit, dice, successes)] =
+                atLeast / outcomes;
+            }
+          }
+        }
+      }
+      // The critical number above the target number equals the target.
+      for (int crit = target + 1; crit <= SIDES; crit++) {
+        for (int dice = MIN_DICE; dice <= MAX_DICE; dice++) {
+          for (int difficulty = 0; difficulty <= MAX_DIFFICULTY; difficulty++) {
+            success[index(target, crit, dice, difficulty)] =
+              success[index(target, target, dice, difficulty)];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Count the outcomes of a dice pool by the number of the successes.
+   * @param target The target number.
+   * @param crit The critical number at most the target number.
+   * @param dice The size of the pool.
+   * @return The numbers of the outcomes indexed by the number of the
+   *  successes. The total of the numbers is the number of the outcomes.
+   */
+  static long[] countSuccesses(int target, int crit, int dice) {
+    // The faces of a single die scoring zero, one and two successes.
+    final long[] die = { SIDES - target, target - crit, crit };
+    long[] result = { 1L };
+    for (int i = 0; i < dice; i++) {
+      long[] next = new long[result.length + 2];
+      for (int successes = 0; successes < result.length; successes++) {
+        for (int score = 0; score < die.length; score++) {
+          next[successes + score] += result[successes] * die[score];
+        }
+      }
+      result = next;
+    }
+    return result;
+  }
+
+  /**
+   * Get the index of the success table.
+   * @param target The target number between 1 and {@link #SIDES}.
+   * @param crit The critical number between 1 and {@link #SIDES}.
+   * @param dice The size of the pool.
+   * @param difficulty The difficulty.
+   * @return The index of the probability.
+   */
+  private static int index(int target, int crit, int dice, int difficulty) {
+    return (
+      (((target - 1) * SIDES + crit - 1) * POOLS + dice - MIN_DICE) *
+      DIFFICULTIES +
+      difficulty
+    );
+  }
+
+  /**
+   * Clamp a value into a range.
+   * @param value The value.
+   * @param min The smallest value.
+   * @param max The largest value.
+   * @return The value within the range.
+   */
+  private static int clamp(int value, int min, int max) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  /**
+   * Test a pool size.
+   * @param dice The size of the pool.
+   * @return True, if and only if the pool size is valid.
+   */
+  public static boolean isValidPool(int dice) {
+    return dice >= MIN_DICE && dice <= MAX_DICE;
+  }
+
+  /**
+   * Test a difficulty.
+   * @param difficulty The difficulty.
+   * @return True, if and only if the difficulty is valid.
+   */
+  public static boolean isValidDifficulty(int difficulty) {
+    return difficulty >= 0 && difficulty <= MAX_DIFFICULTY;
+  }
+
+  /**
+   * Get the target number of a skill and a drive.
+   * @param skill The skill value.
+   * @param drive The drive value.
+   * @return The sum of the values limited between 1 and {@link #SIDES}.
+   */
+  public static int getTarget(int skill, int drive) {
+    return clamp(skill + drive, 1, SIDES);
+  }
+
+  /**
+   * Get the critical number of a skill.
+   * @param skill The skill value.
+   * @param focus Does a focus apply to the test.
+   * @return The skill value limited between 1 and {@link #SIDES} with the
+   *  focus, and 1 otherwise.
+   */
+  public static int getCritical(int skill, boolean focus) {
+    return focus ? clamp(skill, 1, SIDES) : 1;
+  }
+
+  /**
+   * Get the probability of the success of a test.
+   * @param target The target number. The value is limited between 1 and
+   *  {@link #SIDES}.
+   * @param crit The critical number. The value is limited between 1 and the
+   *  target number.
+   * @param dice The size of the pool.
+   * @param difficulty The difficulty.
+   * @return The probability of scoring at least the difficulty successes.
+   * @throws IllegalArgumentException The pool size or the difficulty was
+   *  invalid.
+   */
+  public double getSuccess(int target, int crit, int dice, int difficulty) {
+    if (!isValidPool(dice) || !isValidDifficulty(difficulty)) {
+      throw new IllegalArgumentException("Invalid dice pool or difficulty");
+    }
+    return success[index(
+        clamp(target, 1, SIDES),
+        clamp(crit, 1, SIDES),
+        dice,
+        difficulty
+      )];
+  }
+
+  /**
+   * Get the probability of at least one critical.
+   * @param crit The critical number. The value is limited between 1 and
+   *  {@link #SIDES}.
+   * @param dice The size of the pool.
+   * @return The probability of at least one die rolling at most the critical
+   *  number.
+   * @throws IllegalArgumentException The pool size was invalid.
+   */
+  public double getCritical(int crit, int dice) {
+    if (!isValidPool(dice)) {
+      throw new IllegalArgumentException("Invalid dice pool");
+    }
+    return critical[(clamp(crit, 1, SIDES) - 1) * POOLS + dice - MIN_DICE];
+  }
+
+  /**
+   * Get the probability of at least one complication.
+   * @param dice The size of the pool.
+   * @return The probability of at least one die rolling 20.
+   * @throws IllegalArgumentException The pool size was invalid.
+   */
+  public double getComplication(int dice) {
+    if (!isValidPool(dice)) {
+      throw new IllegalArgumentException("Invalid dice pool");
+    }
+    return complication[dice - MIN_DICE];
+  }
+}
@@ -0,0 +1,372 @@
+package com.kautiainen.antti.dunerest;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The writer recording the ticks of the requests.
+ *
+ * Depending on the durability mode, the ticks are either inserted one at a
+ * time, or passed through a bounded buffer to a background flusher writing
+ * them as multi-row inserts in a single transaction. The flush is performed
+ * when the batch is full, or the oldest buffered tick has waited for the
+ * flush interval.
+ */
+@Component
+public class TickWriter implements InitializingBean, DisposableBean {
+
+  /**
+   * The durability mode of the recorded ticks.
+   */
+  public static enum Durability {
+    /**
+     * Every tick is inserted and committed by the recording thread.
+     */
+    IMMEDIATE,
+    /**
+     * The ticks are committed in batches, and the recording thread waits
+     * until the batch of its tick is committed.
+     */
+    GROUP_COMMIT,
+    /**
+     * The ticks are committed in batches without synchronous commit, and the
+     * recording thread does not wait. The buffered ticks are lost, if the
+     * application crashes.
+     */
+    ASYNC,
+  }
+
+  /**
+   * A buffered tick.
+   * @param tick The recorded tick.
+   * @param enqueued The nano time the tick was buffered.
+   * @param committed The future completed when the tick is committed.
+   */
+  private static record Pending(
+    Timestamp tick,
+    long enqueued,
+    CompletableFuture<Void> committed
+  ) {}
+
+  private final DataSource dataSource;
+
+  /**
+   * The durability mode of the writer.
+   */
+  private final Durability durability;
+
+  /**
+   * The maximal number of ticks written by a single flush.
+   */
+  private final int batchSize;
+
+  /**
+   * The maximal time in nanoseconds a tick waits for a flush.
+   */
+  private final long flushIntervalNanos;
+
+  /**
+   * The maximal time in nanoseconds a group commit waits for the commit of
+   * its tick.
+   */
+  private final long commitTimeoutNanos;
+
+  /**
+   * The buffer of the ticks waiting for the flush.
+   */
+  private final BlockingQueue<Pending> buffer;
+
+  /**
+   * The multi-row insert of a full batch.
+   */
+  private final String fullBatchSql;
+
+  /**
+   * The lag in milliseconds from buffering the oldest tick of the last flush
+   * to its commit.
+   */
+  private final AtomicLong flushLag = new AtomicLong();
+
+  /**
+   * The number of flushes performed.
+   */
+  private final AtomicLong flushes = new AtomicLong();
+
+  /**
+   * The number of ticks written.
+   */
+  private final AtomicLong written = new AtomicLong();
+
+  /**
+   * The flusher thread.
+   */
+  private Thread flusher;
+
+  /**
+   * Is the writer running.
+   */
+  private volatile boolean running = false;
+
+  @Autowired
+  public TickWriter(
+    DataSource dataSource,
+    MeterRegistry registry,
+    @Value("${dune.ticks.durability:GROUP_COMMIT}") Durability durability,
+    @Value("${dune.ticks.batch-size:100}") int batchSize,
+    @Value("${dune.ticks.flush-interval:20}") long flushInterval,
+    @Value("${dune.ticks.buffer-capacity:10000}") int capacity,
+    @Value("${dune.ticks.commit-timeout:5000}") long commitTimeout
+  ) {
+    this.dataSource = dataSource;
+    this.durability = durability;
+    this.batchSize = Math.max(1, batchSize);
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushInterval);
+    this.commitTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(commitTimeout);
+    this.buffer = new ArrayBlockingQueue<>(Math.max(this.batchSize, capacity));
+    this.fullBatchSql = insertSql(this.batchSize);
+    Gauge
+      .builder("dune.ticks.flush.lag", flushLag, AtomicLong::get)
+      .description("The lag from buffering a tick to its commit")
+      .baseUnit("milliseconds")
+      .register(registry);
+    Gauge
+      .builder("dune.ticks.buffer.size", buffer, BlockingQueue::size)
+      .description("The number of ticks waiting for a flush")
+      .register(registry);
+    Gauge
+      .builder("dune.ticks.flushes", flushes, AtomicLong::get)
+      .description("The number of tick flushes")
+      .register(registry);
+    Gauge
+      .builder("dune.ticks.written", written, AtomicLong::get)
+      .description("The number of ticks written")
+      .register(registry);
+  }
+
+  /**
+   * Get the durability mode of the writer.
+   * @return The durability mode.
+   */
+  public Durability getDurability() {
+    return durability;
+  }
+
+  /**
+   * Get the lag of the last flush.
+   * @return The time in milliseconds from buffering the oldest tick of the
+   *  last flush to its commit.
+   */
+  public long getFlushLag() {
+    return flushLag.get();
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    if (durability != Durability.IMMEDIATE) {
+      running = true;
+      flusher = new Thread(this::flushLoop, "tick-flusher");
+      flusher.setDaemon(true);
+      flusher.start();
+    }
+  }
+
+  @Override
+  public void destroy() throws InterruptedException {
+    running = false;
+    if (flusher != null) {
+      flusher.interrupt();
+      flusher.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5000L);
+    }
+  }
+
+  /**
+   * Record the current time as a tick.
+   *
+   * The tick keeps the full precision of the clock. If the writer stops
+   * while the tick is buffered, the buffered ticks are flushed by the
+   * recording thread.
+   *
+   * @throws SQLTimeoutException The group commit of the tick did not complete
+   *  within the commit timeout.
+   * @throws SQLException The tick could not be written.
+   */
+  public void record() throws SQLException {
+    Timestamp tick = Timestamp.from(Instant.now());
+    if (!running) {
+      insertImmediately(tick);
+      return;
+    }
+    Pending pending = new Pending(
+      tick,
+      System.nanoTime(),
+      new CompletableFuture<>()
+    );
+    if (!buffer.offer(pending)) {
+      // The buffer is full. Applying back pressure on the caller.
+      insertImmediately(tick);
+      return;
+    }
+    if (!running) {
+      // The flusher may have drained the buffer and stopped before the tick
+      // was buffered.
+      flushRemaining();
+    }
+    if (durability == Durability.GROUP_COMMIT) {
+      try {
+        pending.committed().get(commitTimeoutNanos, TimeUnit.NANOSECONDS);
+      } catch (TimeoutException te) {
+        throw new SQLTimeoutException(
+          "Timed out waiting for the tick commit",
+          te
+        );
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted waiting for the tick commit", ie);
+      } catch (ExecutionException ee) {
+        throw ee.getCause() instanceof SQLException sqle
+          ? sqle
+          : new SQLException("Tick commit failed", ee.getCause());
+      }
+    }
+  }
+
+  /**
+   * Insert a single tick with its own commit.
+   * @param tick The inserted tick.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  protected void insertImmediately(Timestamp tick) throws SQLException {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement insert = connection.prepareStatement(insertSql(1))
+    ) {
+      insert.setTimestamp(1, tick);
+      insert.executeUpdate();
+      written.incrementAndGet();
+    }
+  }
+
+  /**
+   * Flush the buffered ticks with the current thread.
+   */
+  void flushRemaining() {
+    final List<Pending> batch = new ArrayList<>(batchSize);
+    while (buffer.drainTo(batch, batchSize) > 0) {
+      flush(batch);
+      batch.clear();
+    }
+  }
+
+  /**
+   * The loop of the flusher thread.
+   */
+  private void flushLoop() {
+    final List<Pending> batch = new ArrayList<>(batchSize);
+    while (running || !buffer.isEmpty()) {
+      try {
+        Pending first = buffer.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        final long deadline = first.enqueued() + flushIntervalNanos;
+        long remaining;
+        while (
+          batch.size() < batchSize &&
+          (remaining = deadline - System.nanoTime()) > 0
+        ) {
+          Pending next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+          buffer.drainTo(batch, batchSize - batch.size());
+        }
+      } catch (InterruptedException ie) {
+        // Shutting down. Flushing the remaining ticks without waiting.
+        buffer.drainTo(batch, batchSize - batch.size());
+      }
+      if (!batch.isEmpty()) {
+        flush(batch);
+        batch.clear();
+      }
+    }
+  }
+
+  /**
+   * Write a batch of ticks in a single transaction.
+   * @param batch The written ticks.
+   */
+  private void flush(List<Pending> batch) {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        if (durability == Durability.ASYNC) {
+          try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LOCAL synchronous_commit TO OFF");
+          }
+        }
+        try (
+          PreparedStatement insert = connection.prepareStatement(
+            batch.size() == batchSize ? fullBatchSql : insertSql(batch.size())
+          )
+        ) {
+          for (int i = 0; i < batch.size(); i++) {
+            insert.setTimestamp(i + 1, batch.get(i).tick());
+          }
+          insert.executeUpdate();
+        }
+        connection.commit();
+      } catch (SQLException sqle) {
+        connection.rollback();
+        throw sqle;
+      } finally {
+        connection.setAutoCommit(true);
+      }
+      flushLag.set(
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - batch.get(0).enqueued())
+      );
+      flushes.incrementAndGet();
+      written.addAndGet(batch.size());
+      batch.forEach(pending -> pending.committed().complete(null));
+    } catch (SQLException sqle) {
+      System.err.printf("Tick flush failed: %s%n", sqle.getMessage());
+      batch.forEach(pending -> pending.committed().completeExceptionally(sqle));
+    }
+  }
+
+  /**
+   * Get the multi-row insert of the given number of ticks.
+   * @param rows The number of inserted ticks.
+   * @return The SQL inserting the given number of ticks.
+   */
+  private static String insertSql(int rows) {
+    StringBuilder sql = new StringBuilder("INSERT INTO ticks (tick) VALUES (?)");
+    for (int i = 1; i < rows; i++) {
+      sql.append(", (?)");
+    }
+    return sql.toString();
+  }
+}
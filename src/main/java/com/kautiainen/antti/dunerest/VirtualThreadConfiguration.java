@@ -0,0 +1,114 @@
+package com.kautiainen.antti.dunerest;
+
+import com.kautiainen.antti.utils.db.BoundedDataSource;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.sql.DataSource;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * The opt-in configuration running the requests on virtual threads.
+ *
+ * The Tomcat request executor is replaced with a virtual thread per task
+ * executor, and the data source is bounded to the size of the connection
+ * pool. The JDBC calls of the request handlers then block only their
+ * virtual thread, while the callers beyond the pool size wait for a bounded
+ * admission time instead of queueing on the pool.
+ *
+ * The virtual threads require Java 21. On older runtimes the configuration
+ * keeps the platform threads.
+ */
+@Configuration
+@ConditionalOnProperty(
+  name = "dune.threads.virtual.enabled",
+  havingValue = "true"
+)
+public class VirtualThreadConfiguration {
+
+  /**
+   * Create a new executor starting a virtual thread for each task.
+   * @return The virtual thread per task executor, or an empty value, if the
+   *  runtime does not support virtual threads.
+   */
+  public static Optional<ExecutorService> newVirtualThreadExecutor() {
+    try {
+      return Optional.of(
+        (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null)
+      );
+    } catch (ReflectiveOperationException roe) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * The customizer running the Tomcat requests on virtual threads.
+   * @return The protocol handler customizer.
+   */
+  @Bean
+  public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+    return (ProtocolHandler protocolHandler) -> {
+      Optional<ExecutorService> executor = newVirtualThreadExecutor();
+      if (executor.isPresent()) {
+        protocolHandler.setExecutor(executor.get());
+      } else {
+        System.err.printf(
+          "Virtual threads are not supported by Java %s%n",
+          Runtime.version()
+        );
+      }
+    };
+  }
+
+  /**
+   * The post processor bounding the data source to the connection pool size.
+   * @param environment The environment of the application.
+   * @return The bean post processor wrapping the data source.
+   */
+  @Bean
+  public static BeanPostProcessor boundedDataSourcePostProcessor(
+    Environment environment
+  ) {
+    final int maxConnections = environment.getProperty(
+      "dune.threads.virtual.max-connections",
+      Integer.class,
+      environment.getProperty(
+        "spring.datasource.hikari.maximum-pool-size",
+        Integer.class,
+        10
+      )
+    );
+    final long admissionTimeout = environment.getProperty(
+      "dune.threads.virtual.admission-timeout",
+      Long.class,
+      5000L
+    );
+    return new BeanPostProcessor() {
+      @Override
+      public Object postProcessAfterInitialization(
+        Object bean,
+        String beanName
+      ) {
+        if (
+          bean instanceof DataSource dataSource &&
+          !(bean instanceof BoundedDataSource)
+        ) {
+          return new BoundedDataSource(
+            dataSource,
+            maxConnections,
+            admissionTimeout
+          );
+        }
+        return bean;
+      }
+    };
+  }
+}
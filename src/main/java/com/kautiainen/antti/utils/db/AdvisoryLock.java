@@ -0,0 +1,97 @@
+package com.kautiainen.antti.utils.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * A session level PostgreSQL advisory lock.
+ *
+ * The lock is held by the session of the connection until it is closed, or
+ * the connection is closed. The lock never waits for another session holding
+ * the same lock.
+ */
+public class AdvisoryLock implements AutoCloseable {
+
+  /**
+   * The connection holding the lock.
+   */
+  private final Connection connection;
+
+  /**
+   * The key of the lock.
+   */
+  private final long key;
+
+  /**
+   * Has the lock been released.
+   */
+  private boolean released = false;
+
+  /**
+   * Create a new acquired advisory lock.
+   * @param connection The connection holding the lock.
+   * @param key The key of the lock.
+   */
+  protected AdvisoryLock(Connection connection, long key) {
+    this.connection = connection;
+    this.key = key;
+  }
+
+  /**
+   * Get the key of the lock.
+   * @return The advisory lock key.
+   */
+  public long getKey() {
+    return key;
+  }
+
+  /**
+   * Try to acquire an advisory lock without waiting.
+   * @param connection The connection whose session acquires the lock.
+   * @param key The key of the lock.
+   * @return The acquired lock, or an empty value, if another session holds
+   *  the lock.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public static Optional<AdvisoryLock> tryAcquire(
+    Connection connection,
+    long key
+  ) throws SQLException {
+    try (
+      PreparedStatement statement = connection.prepareStatement(
+        "SELECT pg_try_advisory_lock(?)"
+      )
+    ) {
+      statement.setLong(1, key);
+      try (ResultSet result = statement.executeQuery()) {
+        if (result.next() && result.getBoolean(1)) {
+          return Optional.of(new AdvisoryLock(connection, key));
+        } else {
+          return Optional.empty();
+        }
+      }
+    }
+  }
+
+  /**
+   * Release the lock.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  @Override
+  public void close() throws SQLException {
+    if (!released) {
+      released = true;
+      try (
+        PreparedStatement statement = connection.prepareStatement(
+          "SELECT pg_advisory_unlock(?)"
+        )
+      ) {
+        statement.setLong(1, key);
+        statement.execute();
+      }
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package com.kautiainen.antti.utils.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * The data source limiting the number of connections in use at once.
+ *
+ * The callers exceeding the limit wait for at most the admission timeout,
+ * and fail afterwards. The limit keeps a large number of concurrent callers,
+ * such as virtual threads, from queueing on the connection pool until the
+ * pool timeout.
+ */
+public class BoundedDataSource extends DelegatingDataSource {
+
+  /**
+   * The permits of the connections.
+   */
+  private final Semaphore permits;
+
+  /**
+   * The maximal time in milliseconds waiting for a permit.
+   */
+  private final long admissionTimeout;
+
+  /**
+   * Create a new bounded data source.
+   * @param target The data source providing the connections.
+   * @param maxConnections The maximal number of connections in use at once.
+   * @param admissionTimeout The maximal time in milliseconds a caller waits
+   *  for a connection permit.
+   * @throws IllegalArgumentException The maximal number of connections was
+   *  not positive.
+   */
+  public BoundedDataSource(
+    DataSource target,
+    int maxConnections,
+    long admissionTimeout
+  ) throws IllegalArgumentException {
+    super(target);
+    if (maxConnections <= 0) {
+      throw new IllegalArgumentException("Invalid maximal connection count");
+    }
+    this.permits = new Semaphore(maxConnections);
+    this.admissionTimeout = admissionTimeout;
+  }
+
+  /**
+   * Get the number of connection permits available.
+   * @return The number of connections that can be taken without waiting.
+   */
+  public int getAvailablePermits() {
+    return permits.availablePermits();
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    acquire();
+    try {
+      return bind(super.getConnection());
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  @Override
+  public Connection getConnection(String username, String password)
+    throws SQLException {
+    acquire();
+    try {
+      return bind(super.getConnection(username, password));
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Acquire a connection permit.
+   * @throws SQLException The permit was not acquired within the admission
+   *  timeout.
+   */
+  private void acquire() throws SQLException {
+    try {
+      if (!permits.tryAcquire(admissionTimeout, TimeUnit.MILLISECONDS)) {
+        throw new SQLTransientConnectionException(
+          "Connection admission timed out"
+        );
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new SQLTransientConnectionException(
+        "Interrupted waiting for a connection",
+        ie
+      );
+    }
+  }
+
+  /**
+   * Bind the permit to the connection, and release it when the connection
+   * is closed.
+   * @param connection The connection holding the permit.
+   * @return The connection releasing the permit on close.
+   */
+  private Connection bind(Connection connection) {
+    final AtomicBoolean released = new AtomicBoolean(false);
+    InvocationHandler handler = (proxy, method, args) -> {
+      if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+        try {
+          connection.close();
+        } finally {
+          permits.release();
+        }
+        return null;
+      }
+      try {
+        return method.invoke(connection, args);
+      } catch (InvocationTargetException ite) {
+        throw ite.getCause();
+      }
+    };
+    return (Connection) Proxy.newProxyInstance(
+      BoundedDataSource.class.getClassLoader(),
+      new Class<?>[] { Connection.class },
+      handler
+    );
+  }
+}
@@ -0,0 +1,283 @@
+package com.kautiainen.antti.utils.db;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import org.postgresql.PGConnection;
+
+/**
+ * The bulk loader of the CSV data into a table.
+ *
+ * The CSV data has a header row followed by the records with the columns in
+ * the given order. An unquoted empty field is a null value. When the
+ * connection is a PostgreSQL connection, the data is streamed with
+ * <code>COPY FROM STDIN</code>. Otherwise the records are inserted with
+ * multi-row inserts.
+ *
+ * The result of a query is exported in the same CSV format with
+ * <code>COPY TO STDOUT</code>.
+ */
+public final class BulkLoader {
+
+  /**
+   * The default maximal number of rows of a single multi-row insert.
+   */
+  public static final int DEFAULT_BATCH_ROWS = 500;
+
+  /**
+   * The maximal number of the parameters of a single statement.
+   */
+  private static final int MAX_PARAMETERS = Short.MAX_VALUE;
+
+  /**
+   * The bulk loader has only static methods.
+   */
+  private BulkLoader() {}
+
+  /**
+   * Test whether the connection supports <code>COPY</code>.
+   * @param connection The tested connection.
+   * @return True, if and only if the connection is a PostgreSQL connection.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public static boolean supportsCopy(Connection connection)
+    throws SQLException {
+    return connection.isWrapperFor(PGConnection.class);
+  }
+
+  /**
+   * Load the CSV data into the table.
+   * @param connection The connection to the database.
+   * @param table The name of the table.
+   * @param columns The names of the columns in the order of the CSV fields.
+   * @param csv The reader of the CSV data.
+   * @return The number of the loaded rows.
+   * @throws IOException The reading of the CSV data failed.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public static long load(
+    Connection connection,
+    String table,
+    List<String> columns,
+    Reader csv
+  ) throws IOException, SQLException {
+    return supportsCopy(connection)
+      ? copy(connection, table, columns, csv)
+      : insert(connection, table, columns, csv, DEFAULT_BATCH_ROWS);
+  }
+
+  /**
+   * Load the CSV data into the table with <code>COPY FROM STDIN</code>.
+   * @param connection The PostgreSQL connection to the database.
+   * @param table The name of the table.
+   * @param columns The names of the columns in the order of the CSV fields.
+   * @param csv The reader of the CSV data.
+   * @return The number of the loaded rows.
+   * @throws IOException The reading of the CSV data failed.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public static long copy(
+    Connection connection,
+    String table,
+    List<String> columns,
+    Reader csv
+  ) throws IOException, SQLException {
+    return connection
+      .unwrap(PGConnection.class)
+      .getCopyAPI()
+      .copyIn(
+        "COPY " +
+        table +
+        " (" +
+        String.join(", ", columns) +
+        ") FROM STDIN WITH (FORMAT csv, HEADER true)",
+        csv
+      );
+  }
+
+  /**
+   * Export the result of the query as CSV with <code>COPY TO STDOUT</code>.
+   *
+   * The rows are written to the output as the database sends them, so the
+   * result is never held in memory.
+   *
+   * @param connection The PostgreSQL connection to the database.
+   * @param query The exported query without parameters.
+   * @param out The output of the CSV data with a header row.
+   * @return The number of the exported rows.
+   * @throws IOException The writing of the CSV data failed.
+   * @throws SQLException The operation failed due SQL exception, or the
+   *  connection did not support <code>COPY</code>.
+   */
+  public static long export(
+    Connection connection,
+    String query,
+    OutputStream out
+  ) throws IOException, SQLException {
+    if (!supportsCopy(connection)) {
+      throw new SQLFeatureNotSupportedException("COPY is not supported");
+    }
+    return connection
+      .unwrap(PGConnection.class)
+      .getCopyAPI()
+      .copyOut(
+        "COPY (" + query + ") TO STDOUT WITH (FORMAT csv, HEADER true)",
+        out
+      );
+  }
+
+  /**
+   * Load the CSV data into the table with multi-row inserts.
+   * @param connection The connection to the database.
+   * @param table The name of the table.
+   * @param columns The names of the columns in the order of the CSV fields.
+   * @param csv The reader of the CSV data.
+   * @param batchRows The maximal number of rows of a single insert.
+   * @return The number of the loaded rows.
+   * @throws IOException The reading of the CSV data failed, or a record had
+   *  wrong number of fields.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public static long insert(
+    Connection connection,
+    String table,
+    List<String> columns,
+    Reader csv,
+    int batchRows
+  ) throws IOException, SQLException {
+    final int rowsPerInsert = Math.max(
+      1,
+      Math.min(batchRows, MAX_PARAMETERS / columns.size())
+    );
+    final BufferedReader reader = csv instanceof BufferedReader buffered
+      ? buffered
+      : new BufferedReader(csv);
+    readRecord(reader);
+    List<List<String>> rows = new ArrayList<>(rowsPerInsert);
+    long result = 0;
+    List<String> record;
+    while ((record = readRecord(reader)) != null) {
+      if (record.size() == 1 && record.get(0) == null) {
+        // Empty line.
+        continue;
+      } else if (record.size() != columns.size()) {
+        throw new IOException(
+          String.format(
+            "Invalid record %d of %s: %d fields instead of %d",
+            result + rows.size() + 1,
+            table,
+            record.size(),
+            columns.size()
+          )
+        );
+      }
+      rows.add(record);
+      if (rows.size() == rowsPerInsert) {
+        result += insertRows(connection, table, columns, rows);
+        rows.clear();
+      }
+    }
+    if (!rows.isEmpty()) {
+      result += insertRows(connection, table, columns, rows);
+    }
+    return result;
+  }
+
+  /**
+   * Insert the rows with a single statement.
+   * @param connection The connection to the database.
+   * @param table The name of the table.
+   * @param columns The names of the columns.
+   * @param rows The inserted rows.
+   * @return The number of the inserted rows.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private static int insertRows(
+    Connection connection,
+    String table,
+    List<String> columns,
+    List<List<String>> rows
+  ) throws SQLException {
+    StringBuilder sql = new StringBuilder("INSERT INTO ")
+      .append(table)
+      .append(" (")
+      .append(String.join(", ", columns))
+      .append(") VALUES ");
+    StringBuilder row = new StringBuilder("(");
+    for (int i = 0; i < columns.size(); i++) {
+      row.append(i == 0 ? "?" : ", ?");
+    }
+    row.append(")");
+    for (int i = 0; i < rows.size(); i++) {
+      sql.append(i == 0 ? "" : ", ").append(row);
+    }
+    try (PreparedStatement insert = connection.prepareStatement(sql.toString())) {
+      int index = 1;
+      for (List<String> values : rows) {
+        for (String value : values) {
+          insert.setString(index++, value);
+        }
+      }
+      return insert.executeUpdate();
+    }
+  }
+
+  /**
+   * Read a single CSV record.
+   * @param reader The reader of the CSV data.
+   * @return The fields of the record, or an undefined value at the end of
+   *  the data. An unquoted empty field is an undefined value.
+   * @throws IOException The reading failed, or a quoted field was not
+   *  terminated.
+   */
+  public static List<String> readRecord(BufferedReader reader)
+    throws IOException {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    boolean inQuotes = false;
+    boolean read = false;
+    int c;
+    while ((c = reader.read()) >= 0) {
+      read = true;
+      if (inQuotes) {
+        if (c != '"') {
+          field.append((char) c);
+        } else {
+          reader.mark(1);
+          if (reader.read() == '"') {
+            field.append('"');
+          } else {
+            inQuotes = false;
+            reader.reset();
+          }
+        }
+      } else if (c == '"') {
+        inQuotes = true;
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(quoted || field.length() > 0 ? field.toString() : null);
+        field.setLength(0);
+        quoted = false;
+      } else if (c == '\n') {
+        break;
+      } else if (c != '\r') {
+        field.append((char) c);
+      }
+    }
+    if (!read) {
+      return null;
+    } else if (inQuotes) {
+      throw new IOException("Unterminated quoted CSV field");
+    }
+    fields.add(quoted || field.length() > 0 ? field.toString() : null);
+    return fields;
+  }
+}
@@ -1,20 +1,28 @@
 package com.kautiainen.antti.utils.db;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Savepoint;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Consumer;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
 import javax.sql.DataSource;
 
 /**
@@ -57,7 +65,9 @@ public class CreateDatabase {
 
   /**
    * The SQL command pattern for dropping one or more views.
+   * @deprecated The commands are classified with {@link SqlClassifier}.
    */
+  @Deprecated
   public static final Pattern DROP_VIEW_SQL_PATTERN = Pattern.compile(
     "^" +
     "drop\\s+view(?:\\s+if\\s+exists)?" +
@@ -71,6 +81,11 @@ public class CreateDatabase {
     "(?:\"[^\"]*\"|[+-]?\\d+(?:\\.\\d+)?)"
   );
 
+  /**
+   * The SQL command pattern for inserting a single value.
+   * @deprecated The commands are classified with {@link SqlClassifier}.
+   */
+  @Deprecated
   public static final Pattern INSERT_SQL_PATTERN = Pattern.compile(
     "^" +
     "insert into " +
@@ -78,7 +93,7 @@ public class CreateDatabase {
     "\\((?<fields>" +
     NAME_PATTERN +
     "(?:,\\s+" +
-    NAME_PATTERN +
+    IDENTIFIER_PATTERN +
     ")*" +
     ")?\\) VALUES \\((?<value>" +
     VALUE_PATTERN +
@@ -89,7 +104,9 @@ public class CreateDatabase {
 
   /**
    * The SQL command pattern for creating a single veiw.
+   * @deprecated The commands are classified with {@link SqlClassifier}.
    */
+  @Deprecated
   public static final Pattern CREATE_VIEW_SQL_PATTERN = Pattern.compile(
     "^" +
     "create" +
@@ -106,7 +123,9 @@ public class CreateDatabase {
 
   /**
    * The SQL command pattern for creating a table.
+   * @deprecated The commands are classified with {@link SqlClassifier}.
    */
+  @Deprecated
   public static final Pattern CREATE_TABLE_SQL_PATTERN = Pattern.compile(
     "^" +
     "create" +
@@ -125,7 +144,9 @@ public class CreateDatabase {
 
   /**
    * The SQL command pattern for dropping one or more table.
+   * @deprecated The commands are classified with {@link SqlClassifier}.
    */
+  @Deprecated
   public static final Pattern DROP_TABLE_SQL_PATTERN = Pattern.compile(
     "^" +
     "drop\\s+table" +
@@ -178,7 +199,7 @@ public class CreateDatabase {
   public static final Pattern ORDER_PATTERN = Pattern.compile(
     "^ORDER\\s+BY\\s+" +
     NAME_PATTERN.toString() +
-    "(?<order>desc|asc)?" +
+    "(?:\\s+(?<order>desc|asc))?" +
     "\\s*$",
     Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE
   );
@@ -217,90 +238,112 @@ public class CreateDatabase {
     List<String> viewCreationCommands,
     List<String> tableInitializationCommands
   ) {
-    if (
-      validTableCreationCommands(tableCreationCommands) &&
-      validViewCreationCommands(viewCreationCommands) &&
-      validTableInitializationCommands(tableInitializationCommands)
-    ) {
-      this.tables.addAll(
-          Optional
-            .ofNullable(tableCreationCommands)
-            .orElse(Collections.emptyList())
-        );
-      this.views.addAll(
-          Optional
-            .ofNullable(viewCreationCommands)
-            .orElse(Collections.emptyList())
-        );
-      this.tableInitializations.addAll(
-          Optional
-            .ofNullable(tableInitializationCommands)
-            .orElse(Collections.emptyList())
-        );
-    } else if (!validTableCreationCommands(tableCreationCommands)) {
+    if (!validTableCreationCommands(tableCreationCommands)) {
       throw new IllegalArgumentException("Invalid table creation commands!");
     } else if (!validViewCreationCommands(viewCreationCommands)) {
       throw new IllegalArgumentException("Invalid view creatoin commands");
-    } else {
+    } else if (!validTableInitializationCommands(tableInitializationCommands)) {
       throw new IllegalArgumentException(
         "Invalid table initialization commands"
       );
     }
+    this.tables.addAll(
+        Optional
+          .ofNullable(tableCreationCommands)
+          .orElse(Collections.emptyList())
+      );
+    this.views.addAll(
+        Optional.ofNullable(viewCreationCommands).orElse(Collections.emptyList())
+      );
+    this.tableInitializations.addAll(
+        Optional
+          .ofNullable(tableInitializationCommands)
+          .orElse(Collections.emptyList())
+      );
+  }
+
+  /**
+   * The statement kinds accepted as table creation commands.
+   */
+  private static final Set<SqlClassifier.Kind> TABLE_CREATION_KINDS =
+    Collections.unmodifiableSet(
+      EnumSet.of(SqlClassifier.Kind.CREATE_TABLE, SqlClassifier.Kind.DROP_TABLE)
+    );
+
+  /**
+   * The statement kinds accepted as view creation commands.
+   */
+  private static final Set<SqlClassifier.Kind> VIEW_CREATION_KINDS =
+    Collections.unmodifiableSet(
+      EnumSet.of(
+        SqlClassifier.Kind.CREATE_VIEW,
+        SqlClassifier.Kind.DROP_VIEW,
+        SqlClassifier.Kind.CREATE_INDEX
+      )
+    );
+
+  /**
+   * The statement kinds accepted as table initialization commands.
+   */
+  private static final Set<SqlClassifier.Kind> TABLE_INITIALIZATION_KINDS =
+    Collections.unmodifiableSet(
+      EnumSet.of(SqlClassifier.Kind.INSERT, SqlClassifier.Kind.CREATE_TABLE)
+    );
+
+  /**
+   * Test validity of the commands.
+   * @param commands The tested commands. An undefined list is valid.
+   * @param accepted The accepted kinds of the commands.
+   * @return True, if and only if every command is of an accepted kind.
+   */
+  private static boolean validCommands(
+    List<String> commands,
+    Set<SqlClassifier.Kind> accepted
+  ) {
+    if (commands != null) {
+      for (String command : commands) {
+        if (!accepted.contains(SqlClassifier.classify(command))) {
+          return false;
+        }
+      }
+    }
+    return true;
   }
 
   /**
    * Test validity of the database creationcommands.
    * @param tableInitializationCommands The database creation commands.
    * @return True, if and only if the databse initialization commands
-   * are valid.
+   * are inserts or table creations.
    */
   private boolean validTableInitializationCommands(
     List<String> tableInitializationCommands
   ) {
-    return (
-      tableInitializationCommands == null ||
-      tableInitializationCommands
-        .stream()
-        .allMatch(sql ->
-          (
-            sql != null &&
-            (
-              CREATE_TABLE_SQL_PATTERN.matcher(sql).matches() ||
-              Pattern.compile("").matcher(sql).matches()
-            )
-          )
-        )
+    return validCommands(
+      tableInitializationCommands,
+      TABLE_INITIALIZATION_KINDS
     );
   }
 
+  /**
+   * Test validity of the view creation commands.
+   * @param viewCreationCommands The view creation commands.
+   * @return True, if and only if the commands create or drop views, or
+   *  create indexes of the materialized views.
+   */
   public boolean validViewCreationCommands(List<String> viewCreationCommands) {
-    return viewCreationCommands
-      .stream()
-      .allMatch((String command) ->
-        (
-          command != null &&
-          (
-            CREATE_VIEW_SQL_PATTERN.matcher(command).matches() ||
-            DROP_VIEW_SQL_PATTERN.matcher(command).matches()
-          )
-        )
-      );
+    return validCommands(viewCreationCommands, VIEW_CREATION_KINDS);
   }
 
+  /**
+   * Test validity of the table creation commands.
+   * @param tableCreationCommands The table creation commands.
+   * @return True, if and only if the commands create or drop tables.
+   */
   public boolean validTableCreationCommands(
     List<String> tableCreationCommands
   ) {
-    return tableCreationCommands
-      .stream()
-      .allMatch((String command) ->
-        (
-          command != null &&
-          (
-            CREATE_TABLE_SQL_PATTERN.matcher(command).matches() ||
-            DROP_TABLE_SQL_PATTERN.matcher(command).matches()
-          )
-        )
-      );
+    return validCommands(tableCreationCommands, TABLE_CREATION_KINDS);
   }
 
   /**
@@ -337,6 +380,40 @@ public class CreateDatabase {
      */
     public String getRemoveView();
 
+    /**
+     * Get the query selecting the rows of the view.
+     * @return A string containing the SQL query usable as a prepared statement
+     *  template, to which conditions may be appended.
+     */
+    public default String getSelectView() {
+      return "SELECT * FROM " + getViewName();
+    }
+
+    /**
+     * Test whether the view is materialized.
+     * @return True, if and only if the view stores its rows.
+     */
+    public default boolean isMaterialized() {
+      return false;
+    }
+
+    /**
+     * Get the commands creating the view and its indexes.
+     * @return The list of SQL commands creating the view in order.
+     */
+    public default List<String> getCreateCommands() {
+      return Collections.singletonList(getCreateView());
+    }
+
+    /**
+     * Get the command refreshing the rows of a materialized view.
+     * @return A string containing the SQL command refreshing the view, or an
+     *  undefined value, if the view is not materialized.
+     */
+    public default String getRefreshView() {
+      return null;
+    }
+
     /**
      * Create a view definition from query.
      * @param name The name of the created view.
@@ -347,27 +424,7 @@ public class CreateDatabase {
     static ViewDefinition create(String name, String query)
       throws IllegalArgumentException {
       if (validQueryName(name) && validQueryString(query)) {
-        return new ViewDefinition() {
-          @Override
-          public String getViewName() {
-            return name;
-          }
-
-          @Override
-          public String getCreateView() {
-            StringBuilder sql = new StringBuilder("CREATE OR REPLACE VIEW ");
-
-            sql.append(getViewName());
-            sql.append(" AS ");
-            sql.append(query);
-            return sql.toString();
-          }
-
-          @Override
-          public String getRemoveView() {
-            return "DROP VIEW IF EXISTS " + getViewName();
-          }
-        };
+        return cached(name, "CREATE OR REPLACE VIEW " + name + " AS " + query);
       } else if (validQueryName(name)) {
         // The query was invalid
         throw new IllegalArgumentException(INVALID_QUERY_STRING_MESSAGE);
@@ -386,7 +443,7 @@ public class CreateDatabase {
         name != null &&
         (
           Pattern.matches("^[a-zA-Z][\\w]*", name) ||
-          Pattern.matches("\"(?<content>)(?:[^\"]+|\"\")*)\"", name)
+          Pattern.matches("\"(?<content>(?:[^\"]+|\"\")*)\"", name)
         )
       );
     }
@@ -479,122 +536,197 @@ public class CreateDatabase {
      * @param columnDefinitions The column definitions of the created view.
      * @param tables The list of tables the view uses.
      * @param constraints The constraints of the query limiting the query.
+     *  Each constraint is a where, group by, having, or order by clause.
      * @return Created view definition.
+     * @throws IllegalArgumentException The name or any constraint was invalid.
      */
-    @SuppressWarnings("unchecked")
     static ViewDefinition create(
       String tableName,
       List<String> columnDefinitions,
       List<String> tables,
       List<String> constraints
-    ) {
-      StringBuilder query = new StringBuilder("SELECT ");
-      final StringBuilder columns = new StringBuilder();
-      final StringBuilder from = new StringBuilder();
-      final StringBuilder where = new StringBuilder();
-      final StringBuilder grouping = new StringBuilder();
-      final StringBuilder sorting = new StringBuilder();
-      final StringBuilder having = new StringBuilder();
-
-      int index = 0;
-      final int PATTERN = index++;
-      final int TARGET = index++;
-      final int DELIMITER = index++;
-      final int VALUE_FUNCTION = index++;
-
-      Function<String, SerializableFunction<Matcher, String>> getGroup = (String groupName) ->
-        ((Matcher matcher) -> (matcher.group(groupName)));
-
-      constraints
-        .stream()
-        .forEach(condition -> {
-          if (condition != null) {
-            Arrays
-              .asList(
-                (List<Object>) Arrays.asList(
-                  (Object) WHERE_PATTERN,
-                  where,
-                  " AND ",
-                  getGroup.apply("conditions")
-                ),
-                (List<Object>) Arrays.asList(
-                  (Object) GROUP_PATTERN,
-                  grouping,
-                  ", ",
-                  getGroup.apply("names")
-                ),
-                (List<Object>) Arrays.asList(
-                  (Object) HAVING_PATTERN,
-                  having,
-                  " AND ",
-                  getGroup.apply("conditions")
-                ),
-                (List<Object>) Arrays.asList(
-                  (Object) ORDER_PATTERN,
-                  sorting,
-                  ", ",
-                  getGroup.apply("columns")
-                )
-              )
-              .stream()
-              .filter((List<Object> target) ->
-                (
-                  target != null &&
-                  target instanceof List<?> list &&
-                  ((Pattern) list.get(PATTERN)).matcher(condition).matches()
-                )
-              )
-              .findFirst()
-              .ifPresent((List<Object> target) -> {
-                StringBuilder builder = (StringBuilder) target.get(TARGET);
-                if (!builder.isEmpty()) {
-                  builder.append((CharSequence) (target.get(DELIMITER)));
-                }
-                Matcher matcher =
-                  ((Pattern) target.get(PATTERN)).matcher(condition);
-                builder.append(
-                  (
-                    (Function<Matcher, String>) target.get(VALUE_FUNCTION)
-                  ).apply(matcher)
-                    .toString()
-                );
-              });
-          }
-        });
-
+    ) throws IllegalArgumentException {
+      Query.Builder query = Query.builder();
       if (columnDefinitions != null) {
-        query.append(String.join(", ", columnDefinitions));
+        query.select(columnDefinitions);
       }
-
-      query.append(columns.toString());
-      if (!from.isEmpty()) {
-        query.append("FROM " + String.join(", ", from));
+      if (tables != null) {
+        query.from(tables);
       }
-      if (!where.isEmpty()) {
-        query.append("WHERE " + where.toString());
+      if (constraints != null) {
+        for (String constraint : constraints) {
+          if (constraint != null) {
+            addConstraint(query, constraint);
+          }
+        }
       }
-      if (!grouping.isEmpty()) {
-        query.append("GROUP BY " + grouping.toString());
+      return create(tableName, query.build());
+    }
+
+    /**
+     * Add a constraint clause to the query.
+     * @param query The builder of the query.
+     * @param constraint The where, group by, having, or order by clause.
+     * @throws IllegalArgumentException The constraint was not any of the
+     *  known clauses.
+     */
+    private static void addConstraint(Query.Builder query, String constraint)
+      throws IllegalArgumentException {
+      Matcher matcher;
+      if ((matcher = WHERE_PATTERN.matcher(constraint)).matches()) {
+        query.where(matcher.group("conditions"));
+      } else if ((matcher = GROUP_PATTERN.matcher(constraint)).matches()) {
+        query.groupBy(matcher.group("names").split(",\\s+"));
+      } else if ((matcher = HAVING_PATTERN.matcher(constraint)).matches()) {
+        query.having(matcher.group("conditions"));
+      } else if ((matcher = ORDER_PATTERN.matcher(constraint)).matches()) {
+        query.orderBy(
+          matcher.group("name"),
+          matcher.group("order") == null
+            ? null
+            : Query.Direction.valueOf(matcher.group("order").toUpperCase())
+        );
+      } else {
+        throw new IllegalArgumentException("Invalid query constraint");
       }
-      if (!sorting.isEmpty()) {
-        query.append("ORDER BY " + sorting.toString());
+    }
+
+    /**
+     * Create a view definition of a query.
+     * @param name The name of the created view.
+     * @param query The query of the view.
+     * @return The view definition with the commands rendered once.
+     * @throws IllegalArgumentException Either the name or the query was
+     *  invalid.
+     */
+    static ViewDefinition create(String name, Query query)
+      throws IllegalArgumentException {
+      if (!validQueryName(name)) {
+        throw new IllegalArgumentException(INVALID_QUERY_NAME_MESSAGE);
+      } else if (query == null) {
+        throw new IllegalArgumentException(INVALID_QUERY_STRING_MESSAGE);
       }
-      if (!having.isEmpty()) {}
+      return cached(
+        name,
+        "CREATE OR REPLACE VIEW " + name + " AS " + query.getSql()
+      );
+    }
+
+    /**
+     * Create a materialized view definition of a query.
+     *
+     * The view has a unique index of its key columns, so the view is
+     * refreshed concurrently without blocking the readers of the view.
+     *
+     * @param name The name of the created view.
+     * @param query The query of the view.
+     * @param key The columns of the view uniquely identifying each row.
+     * @return The materialized view definition with the commands rendered
+     *  once.
+     * @throws IllegalArgumentException The name, the query, or the key was
+     *  invalid.
+     */
+    static ViewDefinition createMaterialized(
+      String name,
+      Query query,
+      String... key
+    ) throws IllegalArgumentException {
+      if (!validQueryName(name) || !validDatabaseIdentifier(name)) {
+        throw new IllegalArgumentException(INVALID_QUERY_NAME_MESSAGE);
+      } else if (query == null) {
+        throw new IllegalArgumentException(INVALID_QUERY_STRING_MESSAGE);
+      } else if (
+        key == null ||
+        key.length == 0 ||
+        !Arrays.stream(key).allMatch(CreateDatabase::validDatabaseIdentifier)
+      ) {
+        throw new IllegalArgumentException("Invalid materialized view key");
+      }
+      final String createView =
+        "CREATE MATERIALIZED VIEW IF NOT EXISTS " +
+        name +
+        " AS " +
+        query.getSql();
+      final List<String> createCommands = List.of(
+        createView,
+        "CREATE UNIQUE INDEX IF NOT EXISTS " +
+        name +
+        "_key ON " +
+        name +
+        " (" +
+        String.join(", ", key) +
+        ")"
+      );
+      final String removeView = "DROP MATERIALIZED VIEW IF EXISTS " + name;
+      final String selectView = "SELECT * FROM " + name;
+      final String refreshView =
+        "REFRESH MATERIALIZED VIEW CONCURRENTLY " + name;
+      return new ViewDefinition() {
+        @Override
+        public String getViewName() {
+          return name;
+        }
+
+        @Override
+        public String getCreateView() {
+          return createView;
+        }
+
+        @Override
+        public String getRemoveView() {
+          return removeView;
+        }
+
+        @Override
+        public String getSelectView() {
+          return selectView;
+        }
+
+        @Override
+        public boolean isMaterialized() {
+          return true;
+        }
+
+        @Override
+        public List<String> getCreateCommands() {
+          return createCommands;
+        }
+
+        @Override
+        public String getRefreshView() {
+          return refreshView;
+        }
+      };
+    }
 
+    /**
+     * Create a view definition with the cached commands.
+     * @param name The name of the view.
+     * @param createView The command creating the view.
+     * @return The view definition.
+     */
+    private static ViewDefinition cached(String name, String createView) {
+      final String removeView = "DROP VIEW IF EXISTS " + name;
+      final String selectView = "SELECT * FROM " + name;
       return new ViewDefinition() {
         @Override
         public String getViewName() {
-          return tableName;
+          return name;
         }
 
         @Override
         public String getCreateView() {
-          return query.toString();
+          return createView;
         }
 
         @Override
         public String getRemoveView() {
-          return "DROP VIEW " + getViewName();
+          return removeView;
+        }
+
+        @Override
+        public String getSelectView() {
+          return selectView;
         }
       };
     }
@@ -651,6 +783,742 @@ public class CreateDatabase {
      * @return A string containing the SQL command removing the table.
      */
     public String getRemoveTable();
+
+    /**
+     * Create a table definition from table creation command.
+     * @param name The name of the table.
+     * @param createTable The SQL command creating the table.
+     * @return The table definition of the given table.
+     * @throws IllegalArgumentException Either the name or the creation command
+     *  was invalid.
+     */
+    static TableDefinition create(String name, String createTable)
+      throws IllegalArgumentException {
+      if (!validTableName(name)) {
+        throw new IllegalArgumentException("Invalid table name");
+      } else if (createTable == null) {
+        throw new IllegalArgumentException("Invalid table creation command");
+      }
+      return new TableDefinition() {
+        @Override
+        public String getTableName() {
+          return name;
+        }
+
+        @Override
+        public String getCreateTable() {
+          return createTable;
+        }
+
+        @Override
+        public String getRemoveTable() {
+          return "DROP TABLE IF EXISTS " + getTableName();
+        }
+      };
+    }
+  }
+
+  /**
+   * The index definition.
+   *
+   * The index is created with <code>CREATE INDEX CONCURRENTLY</code>, which
+   * does not block the writes to the live table, but cannot be performed
+   * within a transaction. A partial index has a predicate, and a covering
+   * index has included columns allowing index-only scans.
+   */
+  public static interface IndexDefinition {
+    /**
+     * Check validity of the index name.
+     * @param name The tested index name.
+     * @return True, if and only if the index name is valid index name.
+     */
+    public static boolean validIndexName(String name) {
+      return validDatabaseIdentifier(name);
+    }
+
+    /**
+     * Get the name of the index.
+     * @return The index name.
+     */
+    public String getIndexName();
+
+    /**
+     * Get the name of the indexed table.
+     * @return The table name.
+     */
+    public String getTableName();
+
+    /**
+     * Get the key columns of the index.
+     * @return The list of the indexed columns or expressions.
+     */
+    public List<String> getColumns();
+
+    /**
+     * Get the included non-key columns of a covering index.
+     * @return The list of the included columns.
+     */
+    public default List<String> getIncludedColumns() {
+      return Collections.emptyList();
+    }
+
+    /**
+     * Get the predicate of a partial index.
+     * @return The predicate of the indexed rows, or an undefined value, if
+     *  all rows are indexed.
+     */
+    public default String getPredicate() {
+      return null;
+    }
+
+    /**
+     * Test whether the index is unique.
+     * @return True, if and only if the index is unique.
+     */
+    public default boolean isUnique() {
+      return false;
+    }
+
+    /**
+     * Get the SQL command creating the index.
+     * @return A string containing the SQL command creating the index
+     *  concurrently.
+     */
+    public default String getCreateIndex() {
+      StringBuilder result = new StringBuilder("CREATE ");
+      if (isUnique()) {
+        result.append("UNIQUE ");
+      }
+      result
+        .append("INDEX CONCURRENTLY IF NOT EXISTS ")
+        .append(getIndexName())
+        .append(" ON ")
+        .append(getTableName())
+        .append(" (")
+        .append(String.join(", ", getColumns()))
+        .append(")");
+      if (!getIncludedColumns().isEmpty()) {
+        result
+          .append(" INCLUDE (")
+          .append(String.join(", ", getIncludedColumns()))
+          .append(")");
+      }
+      if (getPredicate() != null) {
+        result.append(" WHERE ").append(getPredicate());
+      }
+      return result.toString();
+    }
+
+    /**
+     * Get the command removing the index.
+     * @return A string containing the SQL command removing the index
+     *  concurrently.
+     */
+    public default String getRemoveIndex() {
+      return "DROP INDEX CONCURRENTLY IF EXISTS " + getIndexName();
+    }
+
+    /**
+     * Create a definition of a plain index.
+     * @param name The name of the index.
+     * @param table The name of the indexed table.
+     * @param columns The indexed columns.
+     * @return The index definition of the given index.
+     * @throws IllegalArgumentException Any argument was invalid.
+     */
+    static IndexDefinition create(String name, String table, String... columns)
+      throws IllegalArgumentException {
+      return create(
+        name,
+        table,
+        columns == null ? null : List.of(columns),
+        Collections.emptyList(),
+        null,
+        false
+      );
+    }
+
+    /**
+     * Create an index definition.
+     * @param name The name of the index.
+     * @param table The name of the indexed table.
+     * @param columns The indexed columns or expressions.
+     * @param included The included columns of a covering index.
+     * @param predicate The predicate of a partial index, or an undefined
+     *  value.
+     * @param unique Is the index unique.
+     * @return The index definition of the given index.
+     * @throws IllegalArgumentException Any argument was invalid.
+     */
+    static IndexDefinition create(
+      String name,
+      String table,
+      List<String> columns,
+      List<String> included,
+      String predicate,
+      boolean unique
+    ) throws IllegalArgumentException {
+      if (!validIndexName(name)) {
+        throw new IllegalArgumentException("Invalid index name");
+      } else if (!TableDefinition.validTableName(table)) {
+        throw new IllegalArgumentException("Invalid table name");
+      } else if (
+        columns == null ||
+        columns.isEmpty() ||
+        columns.stream().anyMatch(c -> c == null || c.isBlank())
+      ) {
+        throw new IllegalArgumentException("Invalid index columns");
+      } else if (included == null || included.contains(null)) {
+        throw new IllegalArgumentException("Invalid included columns");
+      }
+      final List<String> keys = List.copyOf(columns);
+      final List<String> includes = List.copyOf(included);
+      return new IndexDefinition() {
+        @Override
+        public String getIndexName() {
+          return name;
+        }
+
+        @Override
+        public String getTableName() {
+          return table;
+        }
+
+        @Override
+        public List<String> getColumns() {
+          return keys;
+        }
+
+        @Override
+        public List<String> getIncludedColumns() {
+          return includes;
+        }
+
+        @Override
+        public String getPredicate() {
+          return predicate;
+        }
+
+        @Override
+        public boolean isUnique() {
+          return unique;
+        }
+      };
+    }
+  }
+
+  /**
+   * A migration represents a single versioned step of the database schema.
+   *
+   * The migrations are applied in the ascending order of their versions, and
+   * each applied migration is recorded into the schema version table with
+   * the checksum of its statements. An already applied migration is skipped.
+   */
+  public static interface Migration {
+    /**
+     * Get the version of the migration.
+     * @return The positive version number of the migration.
+     */
+    public int getVersion();
+
+    /**
+     * Get the description of the migration.
+     * @return The human readable description of the migration.
+     */
+    public String getDescription();
+
+    /**
+     * Get the SQL statements of the migration.
+     * @return The list of SQL statements performed in the given order.
+     */
+    public List<String> getStatements();
+
+    /**
+     * Get the checksum of the migration statements.
+     * @return The hexadecimal CRC32 checksum of the statements.
+     */
+    public default String getChecksum() {
+      return checksum(getStatements());
+    }
+
+    /**
+     * Test whether the migration is performed in a transaction.
+     * @return True, if and only if the statements and the schema version
+     *  record are performed in a single transaction. Otherwise each statement
+     *  is committed on its own, and the migration is recorded after all
+     *  statements have succeeded.
+     */
+    public default boolean isTransactional() {
+      return true;
+    }
+
+    /**
+     * Calculate the checksum of the migration statements.
+     * @param statements The statements of a migration.
+     * @return The hexadecimal CRC32 checksum of the statements.
+     */
+    static String checksum(List<String> statements) {
+      CRC32 crc = new CRC32();
+      for (String statement : statements) {
+        crc.update(statement.getBytes(StandardCharsets.UTF_8));
+        crc.update('\n');
+      }
+      return String.format("%08x", crc.getValue());
+    }
+
+    /**
+     * Create a new migration performed in a transaction.
+     * @param version The version of the migration.
+     * @param description The description of the migration.
+     * @param statements The statements of the migration.
+     * @return The migration with given version, description, and statements.
+     * @throws IllegalArgumentException Any argument was invalid.
+     */
+    static Migration create(
+      int version,
+      String description,
+      List<String> statements
+    ) throws IllegalArgumentException {
+      return create(version, description, statements, true);
+    }
+
+    /**
+     * Create a new migration creating the indexes concurrently. The migration
+     * is not performed in a transaction.
+     * @param version The version of the migration.
+     * @param description The description of the migration.
+     * @param indexes The created indexes.
+     * @return The migration creating the indexes.
+     * @throws IllegalArgumentException Any argument was invalid.
+     */
+    static Migration createIndexes(
+      int version,
+      String description,
+      List<IndexDefinition> indexes
+    ) throws IllegalArgumentException {
+      if (indexes == null || indexes.contains(null)) {
+        throw new IllegalArgumentException("Invalid migration indexes");
+      }
+      List<String> statements = new ArrayList<>(indexes.size());
+      for (IndexDefinition index : indexes) {
+        statements.add(index.getCreateIndex());
+      }
+      return create(version, description, statements, false);
+    }
+
+    /**
+     * Create a new migration.
+     * @param version The version of the migration.
+     * @param description The description of the migration.
+     * @param statements The statements of the migration.
+     * @param transactional Is the migration performed in a transaction.
+     * @return The migration with given version, description, and statements.
+     * @throws IllegalArgumentException Any argument was invalid.
+     */
+    static Migration create(
+      int version,
+      String description,
+      List<String> statements,
+      boolean transactional
+    ) throws IllegalArgumentException {
+      if (version <= 0) {
+        throw new IllegalArgumentException("Invalid migration version");
+      } else if (description == null) {
+        throw new IllegalArgumentException("Invalid migration description");
+      } else if (statements == null || statements.contains(null)) {
+        throw new IllegalArgumentException("Invalid migration statements");
+      }
+      final List<String> steps = Collections.unmodifiableList(
+        new ArrayList<>(statements)
+      );
+      final String checksum = checksum(steps);
+      return new Migration() {
+        @Override
+        public int getVersion() {
+          return version;
+        }
+
+        @Override
+        public String getDescription() {
+          return description;
+        }
+
+        @Override
+        public List<String> getStatements() {
+          return steps;
+        }
+
+        @Override
+        public String getChecksum() {
+          return checksum;
+        }
+
+        @Override
+        public boolean isTransactional() {
+          return transactional;
+        }
+      };
+    }
+  }
+
+  /**
+   * The name of the table storing the applied migrations.
+   */
+  public static final String SCHEMA_VERSION_TABLE = "schema_version";
+
+  /**
+   * The SQL state of an undefined table.
+   */
+  private static final String UNDEFINED_TABLE_STATE = "42P01";
+
+  /**
+   * The ordered list of the migrations of the database.
+   */
+  private List<Migration> migrations = new ArrayList<>();
+
+  /**
+   * Add a migration after the current migrations.
+   * @param migration The added migration.
+   * @return This database creator.
+   * @throws IllegalArgumentException The migration was undefined, or its
+   *  version was not greater than the version of the last migration.
+   */
+  public CreateDatabase addMigration(Migration migration)
+    throws IllegalArgumentException {
+    if (migration == null) {
+      throw new IllegalArgumentException("Invalid migration");
+    } else if (
+      !migrations.isEmpty() &&
+      migrations.get(migrations.size() - 1).getVersion() >=
+      migration.getVersion()
+    ) {
+      throw new IllegalArgumentException("Migrations must be in version order");
+    }
+    migrations.add(migration);
+    return this;
+  }
+
+  /**
+   * Get the migrations of the database.
+   * @return The list of migrations in ascending version order.
+   */
+  public List<Migration> getMigrations() {
+    return Collections.unmodifiableList(migrations);
+  }
+
+  /**
+   * Get the migration performing the table creations, table initializations,
+   * and view creations of this database creator.
+   * @param version The version of the migration.
+   * @param description The description of the migration.
+   * @return The migration performing the commands of this creator in the
+   *  same order as {@link #createDatabase(DataSource)}.
+   */
+  public Migration toMigration(int version, String description) {
+    List<String> statements = new ArrayList<>(getTables());
+    statements.addAll(getTableInitializations());
+    statements.addAll(getViews());
+    return Migration.create(version, description, statements);
+  }
+
+  /**
+   * Get the applied migrations of the database.
+   *
+   * The schema version table is created, if it does not exist.
+   *
+   * @param connection The connection to the database.
+   * @return The mapping from the applied versions to their checksums.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  protected Map<Integer, String> getAppliedMigrations(Connection connection)
+    throws SQLException {
+    return getAppliedMigrations(connection, true);
+  }
+
+  /**
+   * Get the applied migrations of the database.
+   * @param connection The connection to the database.
+   * @param create Is the schema version table created, if it does not exist.
+   * @return The mapping from the applied versions to their checksums.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  protected Map<Integer, String> getAppliedMigrations(
+    Connection connection,
+    boolean create
+  ) throws SQLException {
+    Map<Integer, String> result = new HashMap<>();
+    try (
+      Statement statement = connection.createStatement();
+      ResultSet rows = statement.executeQuery(
+        "SELECT version, checksum FROM " + SCHEMA_VERSION_TABLE
+      )
+    ) {
+      while (rows.next()) {
+        result.put(rows.getInt("version"), rows.getString("checksum"));
+      }
+    } catch (SQLException sqle) {
+      if (!UNDEFINED_TABLE_STATE.equals(sqle.getSQLState())) {
+        throw sqle;
+      } else if (!create) {
+        return result;
+      }
+      try (Statement statement = connection.createStatement()) {
+        statement.executeUpdate(
+          "CREATE TABLE IF NOT EXISTS " +
+          SCHEMA_VERSION_TABLE +
+          " (" +
+          "version INT PRIMARY KEY" +
+          ", description VARCHAR(255) NOT NULL" +
+          ", checksum CHAR(8) NOT NULL" +
+          ", applied_at TIMESTAMP NOT NULL DEFAULT now()" +
+          ")"
+        );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Apply the pending migrations to the database.
+   *
+   * The applied migrations are read with a single query. Each pending
+   * migration is performed in its own transaction together with its
+   * schema version record.
+   *
+   * @param connection The connection to the database. The connection must not
+   *  be in the middle of a transaction.
+   * @param logger The stream into which the logging reports are printed.
+   * @return The number of migrations applied.
+   * @throws SQLException The migration failed, or an applied migration has
+   *  different checksum than its definition.
+   */
+  public int migrate(Connection connection, java.io.PrintStream logger)
+    throws SQLException {
+    final boolean autoCommit = connection.getAutoCommit();
+    connection.setAutoCommit(true);
+    try {
+      Map<Integer, String> applied = getAppliedMigrations(connection);
+      int result = 0;
+      for (Migration migration : getMigrations()) {
+        String checksum = applied.get(migration.getVersion());
+        if (checksum == null) {
+          applyMigration(connection, migration);
+          result++;
+          if (logger != null) {
+            logger.printf(
+              "Migration %d applied: %s%n",
+              migration.getVersion(),
+              migration.getDescription()
+            );
+          }
+        } else {
+          verifyChecksum(migration, checksum);
+        }
+      }
+      return result;
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  /**
+   * Verify the checksum of an applied migration.
+   * @param migration The migration definition.
+   * @param checksum The checksum recorded when the migration was applied.
+   * @throws SQLException The applied migration has different checksum than
+   *  its definition.
+   */
+  private static void verifyChecksum(Migration migration, String checksum)
+    throws SQLException {
+    if (!checksum.equals(migration.getChecksum())) {
+      throw new SQLException(
+        String.format(
+          "Migration %d checksum mismatch: applied %s, defined %s",
+          migration.getVersion(),
+          checksum,
+          migration.getChecksum()
+        )
+      );
+    }
+  }
+
+  /**
+   * Test whether the database has pending migrations.
+   *
+   * The test performs a single query without creating the schema version
+   * table, or acquiring any lock. The checksums of the applied migrations are
+   * verified against their definitions.
+   *
+   * @param connection The connection to the database.
+   * @return True, if and only if any migration has not been applied.
+   * @throws SQLException The operation failed due SQL exception, or an applied
+   *  migration has different checksum than its definition.
+   */
+  public boolean hasPendingMigrations(Connection connection)
+    throws SQLException {
+    Map<Integer, String> applied = getAppliedMigrations(connection, false);
+    boolean result = false;
+    for (Migration migration : getMigrations()) {
+      String checksum = applied.get(migration.getVersion());
+      if (checksum == null) {
+        result = true;
+      } else {
+        verifyChecksum(migration, checksum);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Apply the pending migrations to the database while holding an advisory
+   * lock.
+   *
+   * Only one session at a time holding the lock performs the migrations.
+   * The other sessions poll the applied migrations until either all
+   * migrations have been applied, they get the lock, or the timeout expires.
+   * No session waits for the lock, or any lock taken by the migrations.
+   *
+   * @param connection The connection to the database.
+   * @param logger The stream into which the logging reports are printed.
+   * @param lockKey The key of the advisory lock guarding the migrations.
+   * @param timeoutMillis The maximal time in milliseconds spent waiting for
+   *  the other session to complete migrations.
+   * @param pollMillis The interval in milliseconds between the polls.
+   * @return The number of migrations applied by this session.
+   * @throws SQLTimeoutException The migrations were not completed within the
+   *  timeout.
+   * @throws SQLException The migration failed.
+   */
+  public int migrate(
+    Connection connection,
+    java.io.PrintStream logger,
+    long lockKey,
+    long timeoutMillis,
+    long pollMillis
+  ) throws SQLException {
+    final long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+    while (hasPendingMigrations(connection)) {
+      Optional<AdvisoryLock> lock = AdvisoryLock.tryAcquire(
+        connection,
+        lockKey
+      );
+      if (lock.isPresent()) {
+        try {
+          return migrate(connection, logger);
+        } finally {
+          lock.get().close();
+        }
+      } else if (System.nanoTime() - deadline >= 0) {
+        throw new SQLTimeoutException(
+          "Timed out waiting for the migrations of another session"
+        );
+      }
+      if (logger != null) {
+        logger.printf("Waiting for the migrations of another session%n");
+      }
+      try {
+        Thread.sleep(pollMillis);
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new SQLException("Interrupted waiting for the migrations", ie);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Apply a single migration.
+   *
+   * A transactional migration is performed in a transaction. The statements
+   * of a non-transactional migration are committed one at a time, and the
+   * migration is recorded after the last statement. An index left invalid by
+   * a failed concurrent index creation is removed, so the retry of the
+   * migration builds the index again.
+   *
+   * @param connection The connection to the database.
+   * @param migration The applied migration.
+   * @throws SQLException The migration failed. The transaction is rolled back.
+   */
+  protected void applyMigration(Connection connection, Migration migration)
+    throws SQLException {
+    if (!migration.isTransactional()) {
+      try (Statement statement = connection.createStatement()) {
+        for (String sql : migration.getStatements()) {
+          try {
+            statement.execute(sql);
+          } catch (SQLException sqle) {
+            removeInvalidIndex(statement, sql, sqle);
+            throw sqle;
+          }
+        }
+      }
+      recordMigration(connection, migration);
+      return;
+    }
+    connection.setAutoCommit(false);
+    try {
+      try (Statement statement = connection.createStatement()) {
+        for (String sql : migration.getStatements()) {
+          statement.execute(sql);
+        }
+      }
+      recordMigration(connection, migration);
+      connection.commit();
+    } catch (SQLException sqle) {
+      connection.rollback();
+      throw sqle;
+    } finally {
+      connection.setAutoCommit(true);
+    }
+  }
+
+  /**
+   * Remove the index a failed concurrent index creation left behind.
+   * @param statement The statement performing the removal.
+   * @param sql The failed statement.
+   * @param failure The failure of the statement. A failure of the removal is
+   *  added to it as suppressed.
+   */
+  private static void removeInvalidIndex(
+    Statement statement,
+    String sql,
+    SQLException failure
+  ) {
+    List<String> names = new ArrayList<>(1);
+    if (
+      SqlClassifier.classify(sql, names) == SqlClassifier.Kind.CREATE_INDEX &&
+      !names.isEmpty()
+    ) {
+      try {
+        statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + names.get(0));
+      } catch (SQLException sqle) {
+        failure.addSuppressed(sqle);
+      }
+    }
+  }
+
+  /**
+   * Record an applied migration into the schema version table.
+   * @param connection The connection to the database.
+   * @param migration The applied migration.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private static void recordMigration(
+    Connection connection,
+    Migration migration
+  ) throws SQLException {
+    try (
+      PreparedStatement record = connection.prepareStatement(
+        "INSERT INTO " +
+        SCHEMA_VERSION_TABLE +
+        " (version, description, checksum) VALUES (?, ?, ?)"
+      )
+    ) {
+      record.setInt(1, migration.getVersion());
+      record.setString(2, migration.getDescription());
+      record.setString(3, migration.getChecksum());
+      record.executeUpdate();
+    }
   }
 
   /**
@@ -686,101 +1554,300 @@ public class CreateDatabase {
     return this.tableInitializations;
   }
 
+  /**
+   * The phases of the database creation in the order of execution.
+   */
+  public static enum Phase {
+    /**
+     * The table creations.
+     */
+    TABLES,
+    /**
+     * The table initializations.
+     */
+    INITIALIZATIONS,
+    /**
+     * The view creations.
+     */
+    VIEWS,
+  }
+
+  /**
+   * The progress of the database creation.
+   * @param phase The current phase.
+   * @param completed The number of the committed statements of the current
+   *  phase.
+   */
+  public static record Progress(Phase phase, int completed) {}
+
+  /**
+   * The default number of the statements executed as a single batch.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 100;
+
+  /**
+   * The number of the statements executed as a single batch.
+   */
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+  /**
+   * The progress of the database creation. The next creation resumes from
+   * the progress.
+   */
+  private Progress progress = new Progress(Phase.TABLES, 0);
+
+  /**
+   * Get the number of the statements executed as a single batch.
+   * @return The chunk size.
+   */
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Set the number of the statements executed as a single batch.
+   * @param chunkSize The chunk size.
+   * @return This database creator.
+   * @throws IllegalArgumentException The chunk size was not positive.
+   */
+  public CreateDatabase setChunkSize(int chunkSize)
+    throws IllegalArgumentException {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Invalid chunk size");
+    }
+    this.chunkSize = chunkSize;
+    return this;
+  }
+
+  /**
+   * Get the progress of the database creation.
+   * @return The phase and the number of its statements committed.
+   */
+  public synchronized Progress getProgress() {
+    return progress;
+  }
+
+  /**
+   * Reset the progress, so the next creation starts from the beginning.
+   */
+  public synchronized void resetProgress() {
+    progress = new Progress(Phase.TABLES, 0);
+  }
+
+  /**
+   * Get the statements of a phase.
+   * @param phase The phase.
+   * @return The list of the statements of the phase.
+   */
+  public List<String> getStatements(Phase phase) {
+    return switch (phase) {
+      case TABLES -> getTables();
+      case INITIALIZATIONS -> getTableInitializations();
+      case VIEWS -> getViews();
+    };
+  }
+
   /**
    * Create database to the given data source.
    * @param dataSource The data source into which the database will be created.
    * @return True, if and only if the creation of the database succeeded.
+   * @see #createDatabase(Connection, java.io.PrintStream)
    */
   public boolean createDatabase(DataSource dataSource) {
-    List<String> rollback = new ArrayList<>();
     try (Connection connection = dataSource.getConnection()) {
-      final Statement statement = connection.createStatement();
-      final AtomicBoolean isBatch = new AtomicBoolean(
-        connection.getMetaData().supportsBatchUpdates()
-      );
-      final AtomicReference<Exception> exception = new AtomicReference<Exception>(
-        null
-      );
-      Consumer<? super String> executor = executeStatement(
-        statement,
-        isBatch,
-        exception
-      );
-      getTables().forEach(executor);
-      if (exception.get() != null) throw exception.get(); else if (
-        isBatch.get()
-      ) {
-        statement.executeBatch();
-      }
-      getTableInitializations().forEach(executor);
-      if (exception.get() != null) throw exception.get(); else if (
-        isBatch.get()
-      ) {
-        statement.executeBatch();
-      }
-      getViews().forEach(executor);
-      if (exception.get() != null) {
-        throw exception.get();
-      }
-      if (isBatch.get()) {
-        statement.executeBatch();
-      }
+      createDatabase(connection, null);
       return true;
-    } catch (Exception e) {
-      // Exception occured. Rollback.
-      rollback.forEach((String sql) -> {
-        try (Connection connection = dataSource.getConnection()) {
-          Statement statement = connection.createStatement();
-          statement.executeUpdate(sql);
-        } catch (SQLException sqle) {
-          //TODO: Debut telling rollback failed.
-        }
-      });
+    } catch (SQLException sqle) {
+      System.err.printf("Creating database failed: %s%n", sqle.getMessage());
       return false;
     }
   }
 
   /**
-   * Get the consumer excecuting the statement given to it as SQL string.
-   *
-   * The created consumer would would impolement following details:
-   *
-   * As long the batch mode is possible, the statement is added to the batch
-   * list of the statement. If the bactching failes, the batch mode is set to
-   * false.
+   * Create database using the given connection.
    *
-   * If any error occurs, or the given exception is set to non-null value, the
-   * rest of the statements are ignored.
+   * Each phase is performed in its own transaction. The statements of a
+   * phase are executed in batches of the chunk size, and each batch is
+   * guarded by a savepoint. When a batch fails, the batch is rolled back to
+   * its savepoint, the preceding batches of the phase are committed, and the
+   * failed statement is reported. The next creation resumes from the failed
+   * batch.
    *
-   * @param statement The statement executing the statement.
-   * @param isBatch The atomic boolean determining whether the batch execution is used or not.
-   * @param exception The atomic exception used to determine the exception of the current execution.
-   * @return The SQL string consumer consuming a SQL String and executing it.
-   */
-  private Consumer<? super String> executeStatement(
-    final Statement statement,
-    final AtomicBoolean isBatch,
-    final AtomicReference<Exception> exception
-  ) {
-    return tableSql -> {
-      if (exception.get() == null) {
-        if (isBatch.get()) {
-          try {
-            // Executing the batch.
-            statement.addBatch(tableSql);
-          } catch (SQLException e) {
-            // Batch execution was not accepted
-            isBatch.set(false);
-            exception.set(e);
-          }
-        } else {
-          try {
-            statement.execute(tableSql);
-          } catch (SQLException e) {
-            exception.set(e);
+   * @param connection The connection to the database. The connection must not
+   *  be in the middle of a transaction.
+   * @param logger The stream into which the logging reports are printed.
+   * @throws FailedStatementException A statement failed.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public synchronized void createDatabase(
+    Connection connection,
+    java.io.PrintStream logger
+  ) throws FailedStatementException, SQLException {
+    final boolean autoCommit = connection.getAutoCommit();
+    final boolean batch = connection.getMetaData().supportsBatchUpdates();
+    connection.setAutoCommit(false);
+    try {
+      for (Phase phase : Phase.values()) {
+        if (phase.compareTo(progress.phase()) >= 0) {
+          createPhase(connection, logger, phase, batch);
+        }
+      }
+    } finally {
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  /**
+   * Perform a phase of the database creation in a transaction.
+   * @param connection The connection to the database in manual commit mode.
+   * @param logger The stream into which the logging reports are printed.
+   * @param phase The performed phase.
+   * @param batch Does the connection support batches.
+   * @throws FailedStatementException A statement failed.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  private void createPhase(
+    Connection connection,
+    java.io.PrintStream logger,
+    Phase phase,
+    boolean batch
+  ) throws FailedStatementException, SQLException {
+    final List<String> statements = getStatements(phase);
+    final int start = phase == progress.phase() ? progress.completed() : 0;
+    int completed = start;
+    try (Statement statement = connection.createStatement()) {
+      while (completed < statements.size()) {
+        final int end = Math.min(completed + chunkSize, statements.size());
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+          executeChunk(statement, phase, statements, completed, end, batch);
+          connection.releaseSavepoint(savepoint);
+        } catch (FailedStatementException failure) {
+          connection.rollback(savepoint);
+          connection.commit();
+          progress = new Progress(phase, completed);
+          if (logger != null) {
+            logger.printf(
+              "%s: committed %d of %d statements before failure%n",
+              phase,
+              completed,
+              statements.size()
+            );
           }
+          throw failure;
         }
+        completed = end;
       }
-    };
+      connection.commit();
+    } catch (FailedStatementException failure) {
+      throw failure;
+    } catch (SQLException sqle) {
+      connection.rollback();
+      throw sqle;
+    }
+    progress = phase.ordinal() + 1 < Phase.values().length
+      ? new Progress(Phase.values()[phase.ordinal() + 1], 0)
+      : new Progress(phase, completed);
+    if (logger != null) {
+      logger.printf(
+        "%s: committed %d statements%n",
+        phase,
+        completed - start
+      );
+    }
+  }
+
+  /**
+   * Execute a chunk of statements.
+   * @param statement The statement executing the SQL.
+   * @param phase The phase of the statements.
+   * @param statements The statements of the phase.
+   * @param start The index of the first statement of the chunk.
+   * @param end The index following the last statement of the chunk.
+   * @param batch Are the statements executed as a batch.
+   * @throws FailedStatementException A statement failed.
+   */
+  private static void executeChunk(
+    Statement statement,
+    Phase phase,
+    List<String> statements,
+    int start,
+    int end,
+    boolean batch
+  ) throws FailedStatementException {
+    int current = start;
+    try {
+      if (batch) {
+        for (int i = start; i < end; i++) {
+          statement.addBatch(statements.get(i));
+        }
+        try {
+          statement.executeBatch();
+        } finally {
+          statement.clearBatch();
+        }
+      } else {
+        for (; current < end; current++) {
+          statement.execute(statements.get(current));
+        }
+      }
+    } catch (BatchUpdateException bue) {
+      // The first statement without a successful update count failed.
+      final int[] counts = bue.getUpdateCounts();
+      int failed = 0;
+      while (
+        counts != null &&
+        failed < counts.length &&
+        counts[failed] != Statement.EXECUTE_FAILED
+      ) {
+        failed++;
+      }
+      current = Math.min(start + failed, end - 1);
+      throw new FailedStatementException(
+        phase,
+        current,
+        statements.get(current),
+        bue.getNextException() == null ? bue : bue.getNextException()
+      );
+    } catch (SQLException sqle) {
+      throw new FailedStatementException(
+        phase,
+        current,
+        statements.get(current),
+        sqle
+      );
+    }
+  }
+
+  /**
+   * Create database to the given data source using concurrent connections.
+   *
+   * The table and view creations are performed in the order of their
+   * dependencies, and the independent creations are performed concurrently
+   * using at most the given number of connections. The table
+   * initializations are performed after all creations in their given order
+   * using a single connection.
+   *
+   * @param dataSource The data source into which the database will be created.
+   * @param connections The maximal number of concurrent connections.
+   * @throws IllegalArgumentException The number of connections was not
+   *  positive.
+   * @throws SQLException Any statement failed. The statements completed before
+   *  the failure are not rolled back.
+   * @see SchemaPlan
+   */
+  public void createDatabaseConcurrently(DataSource dataSource, int connections)
+    throws IllegalArgumentException, SQLException {
+    List<String> creations = new ArrayList<>(getTables());
+    creations.addAll(getViews());
+    SchemaPlan.create(creations).execute(dataSource, connections);
+    try (
+      Connection connection = dataSource.getConnection();
+      Statement statement = connection.createStatement()
+    ) {
+      for (String sql : getTableInitializations()) {
+        statement.execute(sql);
+      }
+    }
   }
 }
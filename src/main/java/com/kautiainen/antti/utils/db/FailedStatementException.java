@@ -0,0 +1,81 @@
+package com.kautiainen.antti.utils.db;
+
+import java.sql.SQLException;
+
+/**
+ * The exception reporting the statement of the database creation which
+ * failed.
+ */
+public class FailedStatementException extends SQLException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The phase of the failed statement.
+   */
+  private final CreateDatabase.Phase phase;
+
+  /**
+   * The index of the failed statement within its phase.
+   */
+  private final int index;
+
+  /**
+   * The failed statement.
+   */
+  private final String statement;
+
+  /**
+   * Create a new failed statement exception.
+   * @param phase The phase of the failed statement.
+   * @param index The index of the failed statement within its phase.
+   * @param statement The failed statement.
+   * @param cause The exception the statement caused.
+   */
+  public FailedStatementException(
+    CreateDatabase.Phase phase,
+    int index,
+    String statement,
+    SQLException cause
+  ) {
+    super(
+      String.format(
+        "%s statement %d failed: %s: %s",
+        phase,
+        index,
+        statement,
+        cause.getMessage()
+      ),
+      cause.getSQLState(),
+      cause.getErrorCode(),
+      cause
+    );
+    this.phase = phase;
+    this.index = index;
+    this.statement = statement;
+  }
+
+  /**
+   * Get the phase of the failed statement.
+   * @return The phase of the failed statement.
+   */
+  public CreateDatabase.Phase getPhase() {
+    return phase;
+  }
+
+  /**
+   * Get the index of the failed statement.
+   * @return The index of the failed statement within its phase.
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * Get the failed statement.
+   * @return The SQL of the failed statement.
+   */
+  public String getStatement() {
+    return statement;
+  }
+}
@@ -0,0 +1,430 @@
+package com.kautiainen.antti.utils.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The immutable model of a select query.
+ *
+ * The query consists of the select list, the from list, the where
+ * conditions, the grouping columns, the having conditions, and the ordering
+ * columns. The SQL of the query is rendered once when the query is built.
+ * The conditions may contain the parameter placeholders, in which case the
+ * SQL is a prepared statement template.
+ */
+public final class Query {
+
+  /**
+   * The direction of an ordering.
+   */
+  public static enum Direction {
+    /**
+     * The ascending order.
+     */
+    ASC,
+    /**
+     * The descending order.
+     */
+    DESC,
+  }
+
+  /**
+   * The ordering by a single column.
+   * @param column The ordering column.
+   * @param direction The direction of the ordering. An undefined direction
+   *  uses the default direction of the database.
+   */
+  public static record Order(String column, Direction direction) {
+    /**
+     * Create a new ordering.
+     * @param column The ordering column.
+     * @param direction The direction of the ordering.
+     * @throws IllegalArgumentException The column was undefined.
+     */
+    public Order {
+      if (column == null) {
+        throw new IllegalArgumentException("Invalid ordering column");
+      }
+    }
+
+    @Override
+    public String toString() {
+      return direction == null ? column : column + " " + direction.name();
+    }
+  }
+
+  /**
+   * The select list.
+   */
+  private final List<String> columns;
+
+  /**
+   * The from list.
+   */
+  private final List<String> from;
+
+  /**
+   * The conditions of the where clause.
+   */
+  private final List<String> where;
+
+  /**
+   * The grouping columns.
+   */
+  private final List<String> groupBy;
+
+  /**
+   * The conditions of the having clause.
+   */
+  private final List<String> having;
+
+  /**
+   * The orderings.
+   */
+  private final List<Order> orderBy;
+
+  /**
+   * The rendered SQL of the query.
+   */
+  private final String sql;
+
+  /**
+   * Create a new query from the builder.
+   * @param builder The builder of the query.
+   */
+  private Query(Builder builder) {
+    this.columns = List.copyOf(builder.columns);
+    this.from = List.copyOf(builder.from);
+    this.where = List.copyOf(builder.where);
+    this.groupBy = List.copyOf(builder.groupBy);
+    this.having = List.copyOf(builder.having);
+    this.orderBy = List.copyOf(builder.orderBy);
+    this.sql = render();
+  }
+
+  /**
+   * Create a new query builder.
+   * @return The builder of an empty query.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Get the select list.
+   * @return The list of the selected expressions. An empty list selects
+   *  all columns.
+   */
+  public List<String> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Get the from list.
+   * @return The list of the queried tables.
+   */
+  public List<String> getFrom() {
+    return from;
+  }
+
+  /**
+   * Get the where conditions.
+   * @return The list of the conditions all rows must fulfil.
+   */
+  public List<String> getWhere() {
+    return where;
+  }
+
+  /**
+   * Get the grouping.
+   * @return The list of the grouping expressions.
+   */
+  public List<String> getGroupBy() {
+    return groupBy;
+  }
+
+  /**
+   * Get the having conditions.
+   * @return The list of the conditions all groups must fulfil.
+   */
+  public List<String> getHaving() {
+    return having;
+  }
+
+  /**
+   * Get the ordering.
+   * @return The list of the orderings in the order of precedence.
+   */
+  public List<Order> getOrderBy() {
+    return orderBy;
+  }
+
+  /**
+   * Get the SQL of the query.
+   * @return The SQL select statement.
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  @Override
+  public String toString() {
+    return sql;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof Query query && sql.equals(query.sql);
+  }
+
+  @Override
+  public int hashCode() {
+    return sql.hashCode();
+  }
+
+  /**
+   * Render the SQL of the query.
+   * @return The SQL select statement.
+   */
+  private String render() {
+    StringBuilder result = new StringBuilder("SELECT ");
+    if (columns.isEmpty()) {
+      result.append("*");
+    } else {
+      join(result, columns, ", ");
+    }
+    appendClause(result, " FROM ", from, ", ");
+    appendConditions(result, " WHERE ", where);
+    appendClause(result, " GROUP BY ", groupBy, ", ");
+    appendConditions(result, " HAVING ", having);
+    appendClause(result, " ORDER BY ", orderBy, ", ");
+    return result.toString();
+  }
+
+  /**
+   * Append a clause, if it has any entries.
+   * @param result The builder of the SQL.
+   * @param keyword The keyword starting the clause with the surrounding
+   *  spaces.
+   * @param entries The entries of the clause.
+   * @param delimiter The delimiter of the entries.
+   */
+  private static void appendClause(
+    StringBuilder result,
+    String keyword,
+    List<?> entries,
+    String delimiter
+  ) {
+    if (!entries.isEmpty()) {
+      result.append(keyword);
+      join(result, entries, delimiter);
+    }
+  }
+
+  /**
+   * Append a conjunction of the conditions, if there is any condition. The
+   * conditions of a conjunction are parenthesized to keep their precedence.
+   * @param result The builder of the SQL.
+   * @param keyword The keyword starting the clause with the surrounding
+   *  spaces.
+   * @param conditions The conditions of the clause.
+   */
+  private static void appendConditions(
+    StringBuilder result,
+    String keyword,
+    List<String> conditions
+  ) {
+    if (conditions.size() == 1) {
+      result.append(keyword).append(conditions.get(0));
+    } else if (!conditions.isEmpty()) {
+      result.append(keyword);
+      for (int i = 0; i < conditions.size(); i++) {
+        if (i > 0) {
+          result.append(" AND ");
+        }
+        result.append('(').append(conditions.get(i)).append(')');
+      }
+    }
+  }
+
+  /**
+   * Append the entries separated with the delimiter.
+   * @param result The builder of the SQL.
+   * @param entries The appended entries.
+   * @param delimiter The delimiter of the entries.
+   */
+  private static void join(
+    StringBuilder result,
+    List<?> entries,
+    String delimiter
+  ) {
+    for (int i = 0; i < entries.size(); i++) {
+      if (i > 0) {
+        result.append(delimiter);
+      }
+      result.append(entries.get(i));
+    }
+  }
+
+  /**
+   * The builder of the queries.
+   */
+  public static final class Builder {
+
+    /**
+     * The select list.
+     */
+    private final List<String> columns = new ArrayList<>();
+
+    /**
+     * The from list.
+     */
+    private final List<String> from = new ArrayList<>();
+
+    /**
+     * The conditions of the where clause.
+     */
+    private final List<String> where = new ArrayList<>();
+
+    /**
+     * The grouping columns.
+     */
+    private final List<String> groupBy = new ArrayList<>();
+
+    /**
+     * The conditions of the having clause.
+     */
+    private final List<String> having = new ArrayList<>();
+
+    /**
+     * The orderings.
+     */
+    private final List<Order> orderBy = new ArrayList<>();
+
+    /**
+     * Create a new builder of an empty query.
+     */
+    private Builder() {}
+
+    /**
+     * Add the expressions to the select list.
+     * @param expressions The selected expressions.
+     * @return This builder.
+     * @throws IllegalArgumentException Any expression was undefined.
+     */
+    public Builder select(String... expressions)
+      throws IllegalArgumentException {
+      return addAll(columns, expressions);
+    }
+
+    /**
+     * Add the expressions to the select list.
+     * @param expressions The selected expressions.
+     * @return This builder.
+     * @throws IllegalArgumentException Any expression was undefined.
+     */
+    public Builder select(List<String> expressions)
+      throws IllegalArgumentException {
+      return addAll(columns, expressions.toArray(new String[0]));
+    }
+
+    /**
+     * Add the tables to the from list.
+     * @param tables The queried tables.
+     * @return This builder.
+     * @throws IllegalArgumentException Any table was undefined.
+     */
+    public Builder from(String... tables) throws IllegalArgumentException {
+      return addAll(from, tables);
+    }
+
+    /**
+     * Add the tables to the from list.
+     * @param tables The queried tables.
+     * @return This builder.
+     * @throws IllegalArgumentException Any table was undefined.
+     */
+    public Builder from(List<String> tables) throws IllegalArgumentException {
+      return addAll(from, tables.toArray(new String[0]));
+    }
+
+    /**
+     * Add a condition to the where clause.
+     * @param condition The condition all rows must fulfil.
+     * @return This builder.
+     * @throws IllegalArgumentException The condition was undefined.
+     */
+    public Builder where(String condition) throws IllegalArgumentException {
+      return addAll(where, condition);
+    }
+
+    /**
+     * Add the expressions to the grouping.
+     * @param expressions The grouping expressions.
+     * @return This builder.
+     * @throws IllegalArgumentException Any expression was undefined.
+     */
+    public Builder groupBy(String... expressions)
+      throws IllegalArgumentException {
+      return addAll(groupBy, expressions);
+    }
+
+    /**
+     * Add a condition to the having clause.
+     * @param condition The condition all groups must fulfil.
+     * @return This builder.
+     * @throws IllegalArgumentException The condition was undefined.
+     */
+    public Builder having(String condition) throws IllegalArgumentException {
+      return addAll(having, condition);
+    }
+
+    /**
+     * Add an ordering with the default direction.
+     * @param column The ordering column.
+     * @return This builder.
+     * @throws IllegalArgumentException The column was undefined.
+     */
+    public Builder orderBy(String column) throws IllegalArgumentException {
+      return orderBy(column, null);
+    }
+
+    /**
+     * Add an ordering.
+     * @param column The ordering column.
+     * @param direction The direction of the ordering.
+     * @return This builder.
+     * @throws IllegalArgumentException The column was undefined.
+     */
+    public Builder orderBy(String column, Direction direction)
+      throws IllegalArgumentException {
+      orderBy.add(new Order(column, direction));
+      return this;
+    }
+
+    /**
+     * Build the query.
+     * @return The immutable query with the current content of the builder.
+     */
+    public Query build() {
+      return new Query(this);
+    }
+
+    /**
+     * Add the entries to the list.
+     * @param target The list to which the entries are added.
+     * @param entries The added entries.
+     * @return This builder.
+     * @throws IllegalArgumentException Any entry was undefined.
+     */
+    private Builder addAll(List<String> target, String... entries)
+      throws IllegalArgumentException {
+      if (entries == null || Arrays.asList(entries).contains(null)) {
+        throw new IllegalArgumentException("Undefined query element");
+      }
+      target.addAll(Arrays.asList(entries));
+      return this;
+    }
+  }
+}
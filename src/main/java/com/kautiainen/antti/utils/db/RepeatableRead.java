@@ -0,0 +1,103 @@
+package com.kautiainen.antti.utils.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * The reads of a consistent snapshot of the database.
+ *
+ * The read is performed in a single repeatable read transaction, and the
+ * queries of the read stream their rows through a cursor fetching the rows
+ * in chunks, so the memory used does not depend on the number of the rows.
+ */
+public final class RepeatableRead {
+
+  /**
+   * The number of rows fetched at a time by the streamed queries.
+   */
+  public static final int FETCH_SIZE = 10_000;
+
+  /**
+   * A read performed within the transaction.
+   * @param <RESULT> The type of the result of the read.
+   */
+  @FunctionalInterface
+  public static interface Read<RESULT> {
+    /**
+     * Perform the read.
+     * @param connection The connection in the transaction of the read.
+     * @return The result of the read.
+     * @throws SQLException The operation failed due SQL exception.
+     */
+    public RESULT read(Connection connection) throws SQLException;
+  }
+
+  /**
+   * The repeatable read has only static methods.
+   */
+  private RepeatableRead() {}
+
+  /**
+   * Perform a read in a single repeatable read transaction. The autocommit
+   * mode and the isolation level of the connection are restored afterwards.
+   * @param <RESULT> The type of the result of the read.
+   * @param connection The connection to the database.
+   * @param read The performed read.
+   * @return The result of the read.
+   * @throws SQLException The operation failed due SQL exception. The
+   *  transaction is rolled back.
+   */
+  public static <RESULT> RESULT read(
+    Connection connection,
+    Read<? extends RESULT> read
+  ) throws SQLException {
+    final boolean autoCommit = connection.getAutoCommit();
+    final int isolation = connection.getTransactionIsolation();
+    // The driver only uses a cursor within a transaction.
+    connection.setAutoCommit(false);
+    connection.setTransactionIsolation(
+      Connection.TRANSACTION_REPEATABLE_READ
+    );
+    try {
+      RESULT result = read.read(connection);
+      connection.commit();
+      return result;
+    } catch (SQLException sqle) {
+      connection.rollback();
+      throw sqle;
+    } finally {
+      connection.setTransactionIsolation(isolation);
+      connection.setAutoCommit(autoCommit);
+    }
+  }
+
+  /**
+   * Execute a query fetching the rows in chunks.
+   * @param connection The connection outside the autocommit mode.
+   * @param sql The query.
+   * @param parameters The parameters of the query.
+   * @return The result set of the query. Closing the result set closes the
+   *  statement.
+   * @throws SQLException The operation failed due SQL exception.
+   */
+  public static ResultSet stream(
+    Connection connection,
+    String sql,
+    Object... parameters
+  ) throws SQLException {
+    PreparedStatement query = connection.prepareStatement(sql);
+    try {
+      query.setFetchSize(FETCH_SIZE);
+      for (int i = 0; i < parameters.length; i++) {
+        query.setObject(i + 1, parameters[i]);
+      }
+      query.closeOnCompletion();
+      return query.executeQuery();
+    } catch (SQLException sqle) {
+      query.close();
+      throw sqle;
+    }
+  }
+}
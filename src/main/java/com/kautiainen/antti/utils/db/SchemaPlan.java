@@ -0,0 +1,287 @@
+package com.kautiainen.antti.utils.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+/**
+ * The dependency graph of the schema creation statements.
+ *
+ * The statements are given in an order, in which they could be performed
+ * sequentially. A table creation depends on the earlier statements creating
+ * the tables its foreign keys refer to. A view or an index creation depends on
+ * the earlier statements creating any name it refers to. Any other statement
+ * is a barrier depending on all earlier statements, and all later statements
+ * depend on it.
+ *
+ * The statements without a dependency between them may be performed
+ * concurrently.
+ */
+public final class SchemaPlan {
+
+  /**
+   * A single statement of the plan.
+   * @param index The index of the statement in the original order.
+   * @param sql The statement.
+   * @param dependencies The ascending indexes of the statements which must be
+   *  performed before this statement.
+   */
+  public static record Step(int index, String sql, List<Integer> dependencies) {
+    /**
+     * Create a new step.
+     * @param index The index of the statement.
+     * @param sql The statement.
+     * @param dependencies The indexes of the dependencies.
+     */
+    public Step {
+      dependencies = List.copyOf(dependencies);
+    }
+  }
+
+  /**
+   * The steps in the original order of the statements.
+   */
+  private final List<Step> steps;
+
+  /**
+   * The number of created schema threads.
+   */
+  private static final AtomicInteger threadCount = new AtomicInteger();
+
+  /**
+   * Create a new plan.
+   * @param steps The steps of the plan.
+   */
+  private SchemaPlan(List<Step> steps) {
+    this.steps = Collections.unmodifiableList(steps);
+  }
+
+  /**
+   * Create the plan of the statements.
+   * @param statements The statements in a valid sequential order.
+   * @return The plan of the statements.
+   * @throws IllegalArgumentException The statements or any statement was
+   *  undefined.
+   */
+  public static SchemaPlan create(List<String> statements)
+    throws IllegalArgumentException {
+    if (statements == null || statements.contains(null)) {
+      throw new IllegalArgumentException("Invalid schema statements");
+    }
+    List<Step> result = new ArrayList<>(statements.size());
+    Map<String, Integer> creators = new HashMap<>();
+    int barrier = -1;
+    for (int index = 0; index < statements.size(); index++) {
+      final String sql = statements.get(index);
+      final List<String> names = new ArrayList<>(1);
+      final SqlClassifier.Kind kind = SqlClassifier.classify(sql, names);
+      final TreeSet<Integer> dependencies = new TreeSet<>();
+      switch (kind) {
+        case CREATE_TABLE, CREATE_VIEW, CREATE_INDEX -> {
+          if (barrier >= 0) {
+            dependencies.add(barrier);
+          }
+          for (String name : SqlClassifier.getReferences(sql)) {
+            Integer creator = creators.get(normalize(name));
+            if (creator != null) {
+              dependencies.add(creator);
+            }
+          }
+          for (String name : names) {
+            // A replacement of an earlier definition follows it.
+            Integer creator = creators.put(normalize(name), index);
+            if (creator != null) {
+              dependencies.add(creator);
+            }
+          }
+        }
+        default -> {
+          for (int earlier = barrier + 1; earlier < index; earlier++) {
+            dependencies.add(earlier);
+          }
+          if (barrier >= 0) {
+            dependencies.add(barrier);
+          }
+          barrier = index;
+        }
+      }
+      result.add(new Step(index, sql, new ArrayList<>(dependencies)));
+    }
+    return new SchemaPlan(result);
+  }
+
+  /**
+   * Normalize a name for the comparison. The unquoted names are case
+   * insensitive.
+   * @param name The normalized name.
+   * @return The normalized name.
+   */
+  private static String normalize(String name) {
+    return name.indexOf('"') < 0 ? name.toLowerCase(Locale.ROOT) : name;
+  }
+
+  /**
+   * Get the steps of the plan.
+   * @return The steps in the original order of the statements.
+   */
+  public List<Step> getSteps() {
+    return steps;
+  }
+
+  /**
+   * Get the number of the sequential rounds needed, if every step whose
+   * dependencies are complete is performed concurrently.
+   * @return The length of the longest dependency chain.
+   */
+  public int getDepth() {
+    int[] depth = new int[steps.size()];
+    int result = 0;
+    for (Step step : steps) {
+      int current = 1;
+      for (int dependency : step.dependencies()) {
+        current = Math.max(current, depth[dependency] + 1);
+      }
+      depth[step.index()] = current;
+      result = Math.max(result, current);
+    }
+    return result;
+  }
+
+  /**
+   * Perform the statements of the plan concurrently.
+   *
+   * Each statement is performed in its own auto committed transaction with a
+   * connection of the data source, and at most the given number of statements
+   * is performed at the same time. A statement is started once all its
+   * dependencies have completed. After a failure no new statement is started,
+   * and the statements in progress are allowed to complete.
+   *
+   * @param dataSource The data source of the connections.
+   * @param connections The maximal number of concurrent connections.
+   * @throws IllegalArgumentException The number of connections was not
+   *  positive.
+   * @throws SQLException Any statement failed. The exception reports the
+   *  failed statement.
+   */
+  public void execute(DataSource dataSource, int connections)
+    throws IllegalArgumentException, SQLException {
+    if (connections < 1) {
+      throw new IllegalArgumentException("Invalid number of connections");
+    } else if (steps.isEmpty()) {
+      return;
+    }
+    final int[] pending = new int[steps.size()];
+    final List<List<Integer>> dependents = new ArrayList<>(steps.size());
+    for (Step step : steps) {
+      dependents.add(new ArrayList<>());
+      pending[step.index()] = step.dependencies().size();
+      for (int dependency : step.dependencies()) {
+        dependents.get(dependency).add(step.index());
+      }
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(
+      Math.min(connections, steps.size()),
+      runnable -> {
+        Thread thread = new Thread(
+          runnable,
+          "schema-creator-" + threadCount.incrementAndGet()
+        );
+        thread.setDaemon(true);
+        return thread;
+      }
+    );
+    CompletionService<Integer> completion = new ExecutorCompletionService<>(
+      executor
+    );
+    SQLException failure = null;
+    try {
+      int running = 0;
+      for (Step step : steps) {
+        if (pending[step.index()] == 0) {
+          submit(completion, dataSource, step);
+          running++;
+        }
+      }
+      while (running > 0) {
+        Future<Integer> done = completion.take();
+        running--;
+        try {
+          int index = done.get();
+          if (failure == null) {
+            for (int dependent : dependents.get(index)) {
+              if (--pending[dependent] == 0) {
+                submit(completion, dataSource, steps.get(dependent));
+                running++;
+              }
+            }
+          }
+        } catch (ExecutionException ee) {
+          SQLException cause = ee.getCause() instanceof SQLException sqle
+            ? sqle
+            : new SQLException("Schema statement failed", ee.getCause());
+          if (failure == null) {
+            failure = cause;
+          } else {
+            failure.addSuppressed(cause);
+          }
+        }
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      failure = new SQLException("Interrupted creating the schema", ie);
+    } finally {
+      executor.shutdownNow();
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Submit a step for execution.
+   * @param completion The completion service performing the step.
+   * @param dataSource The data source of the connections.
+   * @param step The performed step.
+   */
+  private static void submit(
+    CompletionService<Integer> completion,
+    DataSource dataSource,
+    Step step
+  ) {
+    completion.submit(() -> {
+      try (
+        Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()
+      ) {
+        statement.execute(step.sql());
+      } catch (SQLException sqle) {
+        throw new SQLException(
+          String.format(
+            "Schema statement %d failed: %s",
+            step.index(),
+            step.sql()
+          ),
+          sqle.getSQLState(),
+          sqle.getErrorCode(),
+          sqle
+        );
+      }
+      return step.index();
+    });
+  }
+}
@@ -0,0 +1,629 @@
+package com.kautiainen.antti.utils.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The single pass classifier of the SQL statements.
+ *
+ * The classifier recognizes the table and view creations and removals, and
+ * the inserts, and extracts the names of the tables and views the statement
+ * targets. The statement is scanned once from the start to the end without
+ * backtracking, so the classification takes linear time in the length of the
+ * statement.
+ *
+ * The remainder of a recognized statement is not parsed, but it must consist
+ * of complete tokens with balanced parentheses, and it may only be followed by
+ * a single semicolon. The quoted identifiers, the string literals, the dollar
+ * quoted strings, and the comments are skipped as whole tokens.
+ */
+public final class SqlClassifier {
+
+  /**
+   * The kinds of the classified statements.
+   */
+  public static enum Kind {
+    /**
+     * The statement creates a table.
+     */
+    CREATE_TABLE,
+    /**
+     * The statement drops one or more tables.
+     */
+    DROP_TABLE,
+    /**
+     * The statement creates a view or a materialized view.
+     */
+    CREATE_VIEW,
+    /**
+     * The statement drops one or more views or materialized views.
+     */
+    DROP_VIEW,
+    /**
+     * The statement creates an index.
+     */
+    CREATE_INDEX,
+    /**
+     * The statement inserts rows into a table.
+     */
+    INSERT,
+    /**
+     * The statement is not recognized, or it is malformed.
+     */
+    OTHER,
+  }
+
+  /**
+   * The token type of the end of the statement.
+   */
+  private static final int END = 0;
+
+  /**
+   * The token type of an unquoted word.
+   */
+  private static final int WORD = 1;
+
+  /**
+   * The token type of a quoted identifier.
+   */
+  private static final int QUOTED = 2;
+
+  /**
+   * The token type of a string or a numeric literal.
+   */
+  private static final int LITERAL = 3;
+
+  /**
+   * The token type of a single character symbol.
+   */
+  private static final int SYMBOL = 4;
+
+  /**
+   * The token type of an unterminated quote or comment.
+   */
+  private static final int INVALID = 5;
+
+  /**
+   * The tokenizer of a single SQL statement.
+   */
+  private static final class Tokenizer {
+
+    /**
+     * The tokenized statement.
+     */
+    private final String sql;
+
+    /**
+     * The position following the current token.
+     */
+    private int position = 0;
+
+    /**
+     * The type of the current token.
+     */
+    private int type = END;
+
+    /**
+     * The start position of the current token.
+     */
+    private int start = 0;
+
+    /**
+     * The end position of the current token.
+     */
+    private int end = 0;
+
+    /**
+     * Create a new tokenizer of the statement.
+     * @param sql The tokenized statement.
+     */
+    Tokenizer(String sql) {
+      this.sql = sql;
+    }
+
+    /**
+     * Move to the next token.
+     * @return The type of the next token.
+     */
+    int next() {
+      if (!skipWhitespaceAndComments()) {
+        return token(INVALID, position, sql.length());
+      }
+      final int length = sql.length();
+      final int first = position;
+      if (first >= length) {
+        return token(END, first, first);
+      }
+      char c = sql.charAt(first);
+      int current = first + 1;
+      if (Character.isLetter(c) || c == '_') {
+        while (current < length && isWordPart(sql.charAt(current))) {
+          current++;
+        }
+        return token(WORD, first, current);
+      } else if (c == '"') {
+        int close = skipQuoted(current, '"');
+        return close < 0
+          ? token(INVALID, first, length)
+          : token(QUOTED, first, close);
+      } else if (c == '\'') {
+        int close = skipQuoted(current, '\'');
+        return close < 0
+          ? token(INVALID, first, length)
+          : token(LITERAL, first, close);
+      } else if (Character.isDigit(c)) {
+        while (
+          current < length &&
+          (Character.isLetterOrDigit(sql.charAt(current)) ||
+            sql.charAt(current) == '.')
+        ) {
+          current++;
+        }
+        return token(LITERAL, first, current);
+      } else if (c == '$') {
+        int tagEnd = current;
+        while (tagEnd < length && isWordPart(sql.charAt(tagEnd))) {
+          if (sql.charAt(tagEnd) == '$') {
+            break;
+          }
+          tagEnd++;
+        }
+        if (tagEnd < length && sql.charAt(tagEnd) == '$') {
+          // Dollar quoted string ending with the same tag.
+          String tag = sql.substring(first, tagEnd + 1);
+          int close = sql.indexOf(tag, tagEnd + 1);
+          return close < 0
+            ? token(INVALID, first, length)
+            : token(LITERAL, first, close + tag.length());
+        }
+      }
+      return token(SYMBOL, first, current);
+    }
+
+    /**
+     * Set the current token.
+     * @param tokenType The type of the token.
+     * @param tokenStart The start position of the token.
+     * @param tokenEnd The end position of the token.
+     * @return The type of the token.
+     */
+    private int token(int tokenType, int tokenStart, int tokenEnd) {
+      this.type = tokenType;
+      this.start = tokenStart;
+      this.end = tokenEnd;
+      this.position = tokenEnd;
+      return tokenType;
+    }
+
+    /**
+     * Skip the quoted token content. The doubled quote is an escaped quote.
+     * @param from The position following the opening quote.
+     * @param quote The quote character.
+     * @return The position following the closing quote, or -1, if the quote
+     *  is not closed.
+     */
+    private int skipQuoted(int from, char quote) {
+      final int length = sql.length();
+      int current = from;
+      while (current < length) {
+        if (sql.charAt(current++) == quote) {
+          if (current < length && sql.charAt(current) == quote) {
+            current++;
+          } else {
+            return current;
+          }
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Skip the whitespace and the comments.
+     * @return True, if and only if all skipped comments were terminated.
+     */
+    private boolean skipWhitespaceAndComments() {
+      final int length = sql.length();
+      while (position < length) {
+        char c = sql.charAt(position);
+        if (Character.isWhitespace(c)) {
+          position++;
+        } else if (
+          c == '-' && position + 1 < length && sql.charAt(position + 1) == '-'
+        ) {
+          while (position < length && sql.charAt(position) != '\n') {
+            position++;
+          }
+        } else if (
+          c == '/' && position + 1 < length && sql.charAt(position + 1) == '*'
+        ) {
+          // The block comments nest.
+          int depth = 1;
+          position += 2;
+          while (depth > 0) {
+            if (position + 1 >= length) {
+              position = length;
+              return false;
+            } else if (
+              sql.charAt(position) == '*' && sql.charAt(position + 1) == '/'
+            ) {
+              depth--;
+              position += 2;
+            } else if (
+              sql.charAt(position) == '/' && sql.charAt(position + 1) == '*'
+            ) {
+              depth++;
+              position += 2;
+            } else {
+              position++;
+            }
+          }
+        } else {
+          break;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Test whether the current token is the given keyword.
+     * @param keyword The keyword in upper case.
+     * @return True, if and only if the current token is the keyword ignoring
+     *  the case.
+     */
+    boolean is(String keyword) {
+      return (
+        type == WORD &&
+        end - start == keyword.length() &&
+        sql.regionMatches(true, start, keyword, 0, keyword.length())
+      );
+    }
+
+    /**
+     * Test whether the current token is the given symbol.
+     * @param symbol The symbol.
+     * @return True, if and only if the current token is the symbol.
+     */
+    boolean is(char symbol) {
+      return type == SYMBOL && sql.charAt(start) == symbol;
+    }
+
+    /**
+     * Skip the current token, if it is the given keyword.
+     * @param keyword The keyword in upper case.
+     * @return True, if and only if the keyword was skipped.
+     */
+    boolean accept(String keyword) {
+      if (is(keyword)) {
+        next();
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Skip the keywords, if the current token starts the keyword sequence.
+     * @param keywords The keywords in upper case.
+     * @return True, if and only if either the current token did not start the
+     *  sequence, or the whole sequence was skipped.
+     */
+    boolean acceptAll(String... keywords) {
+      if (!accept(keywords[0])) {
+        return true;
+      }
+      for (int i = 1; i < keywords.length; i++) {
+        if (!accept(keywords[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Skip a possibly schema qualified name.
+     * @param names The list into which the name is added as written, or an
+     *  undefined value, if the name is not collected.
+     * @return True, if and only if the current token started a name.
+     */
+    boolean acceptName(List<String> names) {
+      if (type != WORD && type != QUOTED) {
+        return false;
+      }
+      final int nameStart = start;
+      int nameEnd = end;
+      next();
+      while (is('.')) {
+        if (next() != WORD && type != QUOTED) {
+          return false;
+        }
+        nameEnd = end;
+        next();
+      }
+      if (names != null) {
+        names.add(sql.substring(nameStart, nameEnd));
+      }
+      return true;
+    }
+
+    /**
+     * Skip the remainder of the statement.
+     * @return True, if and only if the remainder consisted of valid tokens with
+     *  balanced parentheses, and it was followed by at most one semicolon.
+     */
+    boolean acceptRemainder() {
+      int depth = 0;
+      while (type != END) {
+        if (type == INVALID) {
+          return false;
+        } else if (is('(')) {
+          depth++;
+        } else if (is(')')) {
+          if (--depth < 0) {
+            return false;
+          }
+        } else if (is(';')) {
+          return depth == 0 && next() == END;
+        }
+        next();
+      }
+      return depth == 0;
+    }
+  }
+
+  /**
+   * The classifier has only static methods.
+   */
+  private SqlClassifier() {}
+
+  /**
+   * Test whether a character continues an unquoted word.
+   * @param c The tested character.
+   * @return True, if and only if the character is a letter, a digit, an
+   *  underscore, or a dollar sign.
+   */
+  private static boolean isWordPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  /**
+   * Classify a SQL statement.
+   * @param sql The classified statement.
+   * @return The kind of the statement. An undefined statement is of kind
+   *  {@link Kind#OTHER}.
+   */
+  public static Kind classify(String sql) {
+    return classify(sql, null);
+  }
+
+  /**
+   * Get the names of the tables or views the statement creates, drops, or
+   * inserts into.
+   * @param sql The statement.
+   * @return The names as written in the statement. An unrecognized statement
+   *  has no names.
+   */
+  public static List<String> getNames(String sql) {
+    List<String> names = new ArrayList<>(1);
+    return classify(sql, names) == Kind.OTHER
+      ? Collections.emptyList()
+      : Collections.unmodifiableList(names);
+  }
+
+  /**
+   * Get the names the statement refers to.
+   *
+   * The references of a table creation are the tables following the
+   * <code>REFERENCES</code> keywords of its foreign keys. The references of
+   * any other statement are all names appearing in the statement, including
+   * the column names and the keywords, so the caller must match them against
+   * the known names.
+   *
+   * @param sql The statement.
+   * @return The referred names as written in the statement in the order of
+   *  appearance.
+   */
+  public static List<String> getReferences(String sql) {
+    if (sql == null) {
+      return Collections.emptyList();
+    }
+    final boolean foreignKeysOnly = classify(sql) == Kind.CREATE_TABLE;
+    List<String> result = new ArrayList<>();
+    Tokenizer tokens = new Tokenizer(sql);
+    tokens.next();
+    while (tokens.type != END && tokens.type != INVALID) {
+      if (foreignKeysOnly) {
+        if (!tokens.accept("REFERENCES") || !tokens.acceptName(result)) {
+          tokens.next();
+        }
+      } else if (!tokens.acceptName(result)) {
+        tokens.next();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Classify a SQL statement.
+   * @param sql The classified statement.
+   * @param names The list into which the names of the targets of the statement
+   *  are added, or an undefined value, if the names are not collected.
+   * @return The kind of the statement.
+   */
+  public static Kind classify(String sql, List<String> names) {
+    if (sql == null) {
+      return Kind.OTHER;
+    }
+    Tokenizer tokens = new Tokenizer(sql);
+    tokens.next();
+    Kind result;
+    if (tokens.accept("CREATE")) {
+      result = classifyCreate(tokens, names);
+    } else if (tokens.accept("DROP")) {
+      result = classifyDrop(tokens, names);
+    } else if (tokens.accept("INSERT")) {
+      result = classifyInsert(tokens, names);
+    } else {
+      result = Kind.OTHER;
+    }
+    return result != Kind.OTHER && tokens.acceptRemainder() ? result : Kind.OTHER;
+  }
+
+  /**
+   * Classify a statement following the create keyword.
+   * @param tokens The tokens of the statement.
+   * @param names The collected names, or an undefined value.
+   * @return The kind of the statement.
+   */
+  private static Kind classifyCreate(Tokenizer tokens, List<String> names) {
+    if (tokens.accept("UNIQUE") || tokens.is("INDEX")) {
+      return classifyCreateIndex(tokens, names);
+    } else if (!tokens.acceptAll("OR", "REPLACE")) {
+      return Kind.OTHER;
+    }
+    if (tokens.accept("GLOBAL") || tokens.accept("LOCAL")) {
+      if (!(tokens.accept("TEMPORARY") || tokens.accept("TEMP"))) {
+        return Kind.OTHER;
+      }
+    } else if (!(tokens.accept("TEMPORARY") || tokens.accept("TEMP"))) {
+      tokens.accept("UNLOGGED");
+    }
+    if (tokens.accept("TABLE")) {
+      if (
+        tokens.acceptAll("IF", "NOT", "EXISTS") &&
+        tokens.acceptName(names) &&
+        (tokens.is('(') || tokens.is("AS") || tokens.is("PARTITION"))
+      ) {
+        return Kind.CREATE_TABLE;
+      }
+    } else {
+      if (!tokens.accept("RECURSIVE")) {
+        tokens.accept("MATERIALIZED");
+      }
+      if (
+        tokens.accept("VIEW") &&
+        tokens.acceptAll("IF", "NOT", "EXISTS") &&
+        tokens.acceptName(names) &&
+        skipParenthesized(tokens) &&
+        tokens.accept("AS") &&
+        (tokens.is("SELECT") ||
+          tokens.is("WITH") ||
+          tokens.is("VALUES") ||
+          tokens.is('('))
+      ) {
+        return Kind.CREATE_VIEW;
+      }
+    }
+    return Kind.OTHER;
+  }
+
+  /**
+   * Classify an index creation following the create keyword and the optional
+   * unique keyword.
+   * @param tokens The tokens of the statement.
+   * @param names The collected names, or an undefined value. The name of an
+   *  unnamed index is not collected.
+   * @return The kind of the statement.
+   */
+  private static Kind classifyCreateIndex(
+    Tokenizer tokens,
+    List<String> names
+  ) {
+    if (!tokens.accept("INDEX")) {
+      return Kind.OTHER;
+    }
+    tokens.accept("CONCURRENTLY");
+    if (
+      !tokens.acceptAll("IF", "NOT", "EXISTS") ||
+      !(tokens.is("ON") || tokens.acceptName(names)) ||
+      !tokens.accept("ON")
+    ) {
+      return Kind.OTHER;
+    }
+    tokens.accept("ONLY");
+    return tokens.acceptName(null) && (tokens.is('(') || tokens.is("USING"))
+      ? Kind.CREATE_INDEX
+      : Kind.OTHER;
+  }
+
+  /**
+   * Classify a statement following the drop keyword.
+   * @param tokens The tokens of the statement.
+   * @param names The collected names, or an undefined value.
+   * @return The kind of the statement.
+   */
+  private static Kind classifyDrop(Tokenizer tokens, List<String> names) {
+    Kind result;
+    if (tokens.accept("TABLE")) {
+      result = Kind.DROP_TABLE;
+    } else if (tokens.accept("VIEW")) {
+      result = Kind.DROP_VIEW;
+    } else if (tokens.accept("MATERIALIZED") && tokens.accept("VIEW")) {
+      result = Kind.DROP_VIEW;
+    } else {
+      return Kind.OTHER;
+    }
+    if (!tokens.acceptAll("IF", "EXISTS") || !tokens.acceptName(names)) {
+      return Kind.OTHER;
+    }
+    while (tokens.is(',')) {
+      tokens.next();
+      if (!tokens.acceptName(names)) {
+        return Kind.OTHER;
+      }
+    }
+    if (!tokens.accept("CASCADE")) {
+      tokens.accept("RESTRICT");
+    }
+    return tokens.type == END || tokens.is(';')
+      ? result
+      : Kind.OTHER;
+  }
+
+  /**
+   * Classify a statement following the insert keyword.
+   * @param tokens The tokens of the statement.
+   * @param names The collected names, or an undefined value.
+   * @return The kind of the statement.
+   */
+  private static Kind classifyInsert(Tokenizer tokens, List<String> names) {
+    if (
+      tokens.accept("INTO") &&
+      tokens.acceptName(names) &&
+      (!tokens.accept("AS") || tokens.acceptName(null)) &&
+      skipParenthesized(tokens) &&
+      (tokens.is("VALUES") ||
+        tokens.is("SELECT") ||
+        tokens.is("WITH") ||
+        tokens.is("DEFAULT") ||
+        tokens.is("OVERRIDING") ||
+        tokens.is('('))
+    ) {
+      return Kind.INSERT;
+    }
+    return Kind.OTHER;
+  }
+
+  /**
+   * Skip an optional parenthesized token list.
+   * @param tokens The tokens of the statement.
+   * @return True, if and only if the current token did not start a
+   *  parenthesized list, or the whole list was skipped.
+   */
+  private static boolean skipParenthesized(Tokenizer tokens) {
+    if (!tokens.is('(')) {
+      return true;
+    }
+    int depth = 0;
+    do {
+      if (tokens.type == END || tokens.type == INVALID) {
+        return false;
+      } else if (tokens.is('(')) {
+        depth++;
+      } else if (tokens.is(')')) {
+        depth--;
+      }
+      tokens.next();
+    } while (depth > 0);
+    return true;
+  }
+}
@@ -0,0 +1,325 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * Testing the request handling of the character API without a database.
+ */
+public class CharacterApiTest {
+
+  /**
+   * The servlet output failing the writes after it has been closed.
+   */
+  private static class RecordingOutput extends ServletOutputStream {
+
+    /**
+     * The written bytes.
+     */
+    final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+    /**
+     * Was the output closed.
+     */
+    boolean closed = false;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (closed) {
+        throw new IOException("Stream closed");
+      }
+      written.write(b);
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener listener) {}
+  }
+
+  /**
+   * The importer writing the batches without a database.
+   */
+  private static class StubImporter extends CharacterImporter {
+
+    StubImporter(int batchSize) {
+      super(
+        null,
+        new ReferenceData(null, null),
+        event -> {},
+        new ObjectMapper(),
+        batchSize,
+        1,
+        false
+      );
+    }
+
+    @Override
+    protected List<Integer> write(List<CharacterSheet> batch) {
+      List<Integer> ids = new ArrayList<>();
+      for (int i = 0; i < batch.size(); i++) {
+        ids.add(i + 1);
+      }
+      return ids;
+    }
+  }
+
+  /**
+   * The repository with a fixed change marker counting the reads of the
+   * characters.
+   */
+  private static class StubRepository extends CharacterRepository {
+
+    /**
+     * The change marker of the characters.
+     */
+    final ChangeMarker marker = new ChangeMarker(2, 5, 2);
+
+    /**
+     * The number of the reads of the characters.
+     */
+    int reads = 0;
+
+    StubRepository() {
+      super(null, null);
+    }
+
+    @Override
+    public ChangeMarker findChangeMarker() {
+      return marker;
+    }
+
+    @Override
+    public List<Summary> findAll() {
+      reads++;
+      return List.of(
+        new Summary((short) 1, "Paul", "Frank", 3),
+        new Summary((short) 2, "Jessica", "Frank", 2)
+      );
+    }
+  }
+
+  /**
+   * Create a conditional GET request.
+   * @param ifNoneMatch The value of the <code>If-None-Match</code> header,
+   *  or an undefined value.
+   * @param statuses The list into which the response statuses are added.
+   * @return The web request of the request and its response.
+   */
+  private ServletWebRequest conditionalGet(
+    String ifNoneMatch,
+    List<Integer> statuses
+  ) {
+    HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] { HttpServletRequest.class },
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getMethod":
+            return "GET";
+          case "getHeader":
+            return "If-None-Match".equals(args[0]) ? ifNoneMatch : null;
+          case "getHeaders":
+            return Collections.enumeration(
+              "If-None-Match".equals(args[0]) && ifNoneMatch != null
+                ? List.of(ifNoneMatch)
+                : List.<String>of()
+            );
+          case "getDateHeader":
+            return -1L;
+          default:
+            return null;
+        }
+      }
+    );
+    HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] { HttpServletResponse.class },
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getStatus":
+            return statuses.isEmpty() ? 200 : statuses.get(statuses.size() - 1);
+          case "setStatus":
+            statuses.add((Integer) args[0]);
+            return null;
+          default:
+            return null;
+        }
+      }
+    );
+    return new ServletWebRequest(request, response);
+  }
+
+  @Test
+  public void testListNotModified() throws Exception {
+    StubRepository repository = new StubRepository();
+    CharacterApi api = new CharacterApi(
+      repository,
+      null,
+      null,
+      null,
+      null,
+      new ObjectMapper()
+    );
+    final String etag = CharacterApi.getListETag(repository.marker);
+    assertEquals("W/\"2-5-2\"", etag);
+
+    List<Integer> statuses = new ArrayList<>();
+    ResponseEntity<List<CharacterRepository.Summary>> result = api.list(
+      conditionalGet(null, statuses)
+    );
+    assertEquals(200, result.getStatusCode().value());
+    assertEquals(etag, result.getHeaders().getETag());
+    assertEquals(2, result.getBody().size());
+    assertEquals(1, repository.reads);
+
+    statuses.clear();
+    assertNull(api.list(conditionalGet(etag, statuses)));
+    assertEquals(List.of(304), statuses);
+    // The characters are not read for an unchanged list.
+    assertEquals(1, repository.reads);
+
+    statuses.clear();
+    result = api.list(conditionalGet("W/\"2-4-2\"", statuses));
+    assertEquals(200, result.getStatusCode().value());
+    assertEquals(2, repository.reads);
+  }
+
+  @Test
+  public void testImportProgress() throws IOException {
+    final StringBuilder body = new StringBuilder();
+    for (int i = 0; i < 5; i++) {
+      body.append("{\"name\":\"Character ").append(i);
+      body.append("\",\"creator\":\"Frank\"}\n");
+    }
+    final ByteArrayInputStream data = new ByteArrayInputStream(
+      body.toString().getBytes(StandardCharsets.UTF_8)
+    );
+    final ServletInputStream input = new ServletInputStream() {
+      @Override
+      public int read() {
+        return data.read();
+      }
+
+      @Override
+      public boolean isFinished() {
+        return data.available() == 0;
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setReadListener(ReadListener listener) {}
+    };
+    HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] { HttpServletRequest.class },
+      (proxy, method, args) -> {
+        if (method.getName().equals("getContentType")) {
+          return "application/x-ndjson";
+        } else if (method.getName().equals("getInputStream")) {
+          return input;
+        }
+        return null;
+      }
+    );
+    final RecordingOutput output = new RecordingOutput();
+    final List<Integer> statuses = new ArrayList<>();
+    HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] { HttpServletResponse.class },
+      (proxy, method, args) -> {
+        if (method.getName().equals("getOutputStream")) {
+          return output;
+        } else if (method.getName().equals("setStatus")) {
+          statuses.add((Integer) args[0]);
+        }
+        return null;
+      }
+    );
+    ObjectMapper mapper = new ObjectMapper();
+    new CharacterApi(null, null, null, new StubImporter(2), null, mapper)
+      .importCharacters(request, response);
+
+    assertTrue(statuses.isEmpty());
+    String[] lines = output.written
+      .toString(StandardCharsets.UTF_8)
+      .split("\n");
+    // Two full batches of the five records, and the final batch.
+    assertEquals(3, lines.length);
+    for (int i = 0; i < lines.length; i++) {
+      JsonNode progress = mapper.readTree(lines[i]);
+      assertEquals(i + 1, progress.get("batch").asInt());
+      assertEquals(i == lines.length - 1, progress.get("done").asBoolean());
+    }
+    assertEquals(5, mapper.readTree(lines[2]).get("imported").asLong());
+    assertFalse(output.closed);
+  }
+
+  @Test
+  public void testMatchedVersions() {
+    final short id = 7;
+    assertEquals("\"7-3\"", CharacterApi.getETag(id, 3));
+    assertEquals(
+      List.of(3),
+      CharacterApi.getMatchedVersions(id, CharacterApi.getETag(id, 3))
+    );
+    assertEquals(
+      List.of(3, 5),
+      CharacterApi.getMatchedVersions(id, "\"7-3\", \"8-4\",\"7-5\"")
+    );
+    assertNull(CharacterApi.getMatchedVersions(id, "\"7-3\", *"));
+    // The weak entity tags never match.
+    assertEquals(List.of(), CharacterApi.getMatchedVersions(id, "W/\"7-3\""));
+    assertEquals(
+      List.of(),
+      CharacterApi.getMatchedVersions(id, "\"7-x\", \"7-\", \"7-03\"")
+    );
+  }
+
+  @Test
+  public void testAcceptsGzip() {
+    assertFalse(CharacterApi.acceptsGzip(null));
+    assertFalse(CharacterApi.acceptsGzip("identity"));
+    assertTrue(CharacterApi.acceptsGzip("deflate, gzip"));
+    assertTrue(CharacterApi.acceptsGzip("gzip;q=0.5, br"));
+    assertFalse(CharacterApi.acceptsGzip("gzip;q=0, br"));
+    assertFalse(CharacterApi.acceptsGzip("gzip; q=0.000"));
+    assertTrue(CharacterApi.acceptsGzip("*"));
+    assertFalse(CharacterApi.acceptsGzip("*, gzip;q=0"));
+    assertFalse(CharacterApi.acceptsGzip("br, *;q=0"));
+  }
+}
@@ -0,0 +1,263 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the character cache over a repository without a database.
+ */
+public class CharacterCacheTest {
+
+  /**
+   * The repository creating the characters without a database.
+   */
+  private static class StubRepository extends CharacterRepository {
+
+    /**
+     * The number of loads performed.
+     */
+    final AtomicInteger loads = new AtomicInteger();
+
+    /**
+     * The version of the characters in the stub database.
+     */
+    final AtomicInteger version = new AtomicInteger(1);
+
+    /**
+     * The latch the loads wait for before completing.
+     */
+    final CountDownLatch release;
+
+    StubRepository() {
+      this(new CountDownLatch(0));
+    }
+
+    StubRepository(CountDownLatch release) {
+      super(null, null);
+      this.release = release;
+    }
+
+    @Override
+    public Optional<CharacterSheet> find(short id) throws SQLException {
+      loads.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException ie) {
+        throw new SQLException(ie);
+      }
+      return id < 0
+        ? Optional.empty()
+        : Optional.of(
+          new CharacterSheet(
+            id,
+            "Paul",
+            "Frank",
+            version.get(),
+            List.of(),
+            List.of(),
+            List.of()
+          )
+        );
+    }
+
+    @Override
+    public Optional<Integer> findVersion(short id) {
+      return id < 0 ? Optional.empty() : Optional.of(version.get());
+    }
+  }
+
+  @Test
+  public void testReadThrough() throws SQLException {
+    StubRepository repository = new StubRepository();
+    CharacterCache cache = new CharacterCache(
+      repository,
+      new SimpleMeterRegistry(),
+      2,
+      60_000L
+    );
+    assertEquals("Paul", cache.get((short) 1).get().name());
+    assertEquals("Paul", cache.get((short) 1).get().name());
+    assertEquals(1, repository.loads.get());
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertTrue(cache.get((short) -1).isEmpty());
+    assertTrue(cache.getCached((short) -1).isEmpty());
+  }
+
+  @Test
+  public void testEvictionAndInvalidation() throws SQLException {
+    StubRepository repository = new StubRepository();
+    CharacterCache cache = new CharacterCache(
+      repository,
+      new SimpleMeterRegistry(),
+      2,
+      60_000L
+    );
+    cache.get((short) 1);
+    cache.get((short) 2);
+    cache.get((short) 1);
+    cache.get((short) 3);
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+    assertTrue(cache.getCached((short) 2).isEmpty());
+    assertTrue(cache.getCached((short) 1).isPresent());
+
+    cache.onCharacterChanged(new CharacterChangedEvent((short) 1));
+    assertTrue(cache.getCached((short) 1).isEmpty());
+  }
+
+  @Test
+  public void testValidation() throws SQLException {
+    StubRepository repository = new StubRepository();
+    CharacterCache cache = new CharacterCache(
+      repository,
+      new SimpleMeterRegistry(),
+      2,
+      60_000L,
+      0L
+    );
+    cache.get((short) 1);
+    assertEquals(1, cache.get((short) 1).get().version());
+    assertEquals(1, repository.loads.get());
+    assertEquals(1, cache.getHits());
+
+    // Changed by another instance without a change event.
+    repository.version.set(2);
+    assertEquals(2, cache.get((short) 1).get().version());
+    assertEquals(2, repository.loads.get());
+    assertEquals(1, cache.getStale());
+  }
+
+  @Test
+  public void testExpiration() throws SQLException {
+    StubRepository repository = new StubRepository();
+    CharacterCache cache = new CharacterCache(
+      repository,
+      new SimpleMeterRegistry(),
+      2,
+      0L
+    );
+    cache.get((short) 1);
+    cache.get((short) 1);
+    assertEquals(2, repository.loads.get());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  @Test
+  public void testConcurrentReadsShareLoad() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    StubRepository repository = new StubRepository(release);
+    CharacterCache cache = new CharacterCache(
+      repository,
+      new SimpleMeterRegistry(),
+      2,
+      60_000L
+    );
+    ExecutorService executor = Executors.newFixedThreadPool(6);
+    List<Future<Optional<CharacterSheet>>> reads = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      reads.add(executor.submit(() -> cache.get((short) 1)));
+    }
+    await(() -> cache.getSharedLoads() >= 5);
+    release.countDown();
+    for (Future<Optional<CharacterSheet>> read : reads) {
+      assertEquals("Paul", read.get().get().name());
+    }
+    executor.shutdown();
+    assertEquals(1, repository.loads.get());
+  }
+
+  @Test
+  public void testReadAfterInvalidationStartsNewLoad() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    StubRepository repository = new StubRepository(release);
+    CharacterCache cache = new CharacterCache(
+      repository,
+      new SimpleMeterRegistry(),
+      2,
+      60_000L
+    );
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    Future<Optional<CharacterSheet>> before = executor.submit(() ->
+      cache.get((short) 1)
+    );
+    await(() -> repository.loads.get() == 1);
+    repository.version.set(2);
+    cache.invalidate((short) 1);
+    Future<Optional<CharacterSheet>> after = executor.submit(() ->
+      cache.get((short) 1)
+    );
+    await(() -> repository.loads.get() == 2);
+    release.countDown();
+    assertEquals(2, after.get().get().version());
+    before.get();
+    executor.shutdown();
+    assertEquals(0, cache.getSharedLoads());
+  }
+
+  @Test
+  public void testFailedLoadCompletesSharedLoads() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    SingleFlight<Short, String> loads = new SingleFlight<>();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    Future<String> first = executor.submit(() ->
+      loads.load(
+        (short) 1,
+        key -> {
+          loading.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException ie) {
+            throw new SQLException(ie);
+          }
+          throw new AssertionError("Load failed");
+        }
+      )
+    );
+    loading.await();
+    Future<String> shared = executor.submit(() ->
+      loads.load((short) 1, key -> "Loaded")
+    );
+    await(() -> loads.getShared() == 1);
+    release.countDown();
+    for (Future<String> load : List.of(first, shared)) {
+      ExecutionException failure = assertThrows(
+        ExecutionException.class,
+        () -> load.get(10, TimeUnit.SECONDS)
+      );
+      assertTrue(failure.getCause() instanceof AssertionError);
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Wait until a condition holds.
+   * @param condition The awaited condition.
+   * @throws InterruptedException The waiting was interrupted.
+   */
+  private static void await(BooleanSupplier condition)
+    throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() - deadline < 0, "Timed out waiting");
+      Thread.sleep(1);
+    }
+  }
+}
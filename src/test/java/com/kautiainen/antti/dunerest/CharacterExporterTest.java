@@ -0,0 +1,125 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.zip.GZIPInputStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the export query and the streaming of the characters.
+ */
+public class CharacterExporterTest {
+
+  @Test
+  public void testQuery() {
+    assertEquals(
+      "SELECT c.name AS name, c.creator AS creator" +
+      ", (SELECT value FROM character_skills WHERE cid = c.id AND sid = 1)" +
+      " AS \"Battle\"" +
+      ", (SELECT value FROM character_drives WHERE cid = c.id AND did = 2)" +
+      " AS \"The \"\"Faith\"\"\"" +
+      " FROM characters c ORDER BY c.id",
+      CharacterExporter
+        .getQuery(
+          new ReferenceData.Snapshot(
+            ReferenceDictionary.EMPTY,
+            ReferenceDictionary.of(null, "Battle"),
+            ReferenceDictionary.of(null, null, "The \"Faith\"")
+          )
+        )
+        .getSql()
+    );
+  }
+
+  /**
+   * The output recording the flushes and the closing.
+   */
+  private static class RecordingOutput extends ByteArrayOutputStream {
+
+    /**
+     * The size of the output at the last flush.
+     */
+    int flushed = -1;
+
+    /**
+     * Was the output closed.
+     */
+    boolean closed = false;
+
+    @Override
+    public void flush() {
+      flushed = size();
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  @Test
+  public void testExportStreams() throws Exception {
+    final StringBuilder csv = new StringBuilder("name,creator,Battle\n");
+    for (int i = 0; i < 2000; i++) {
+      csv.append("Character ").append(i).append(",Frank,").append(i % 9);
+      csv.append('\n');
+    }
+    Connection connection = (Connection) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] { Connection.class },
+      (proxy, method, args) -> null
+    );
+    DataSource dataSource = (DataSource) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] { DataSource.class },
+      (proxy, method, args) ->
+        "getConnection".equals(method.getName()) ? connection : null
+    );
+    CharacterExporter exporter = new CharacterExporter(
+      dataSource,
+      new ReferenceData(null, null),
+      512
+    ) {
+      @Override
+      protected long copy(Connection source, String query, OutputStream out)
+        throws IOException {
+        // The COPY writes the CSV in small chunks.
+        byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < data.length; offset += 100) {
+          out.write(data, offset, Math.min(100, data.length - offset));
+        }
+        return 2000;
+      }
+    };
+
+    RecordingOutput plain = new RecordingOutput();
+    assertEquals(2000, exporter.export(plain, false));
+    assertEquals(csv.toString(), plain.toString(StandardCharsets.UTF_8));
+    assertEquals(plain.size(), plain.flushed);
+    assertFalse(plain.closed);
+
+    RecordingOutput compressed = new RecordingOutput();
+    assertEquals(2000, exporter.export(compressed, true));
+    assertEquals(compressed.size(), compressed.flushed);
+    assertFalse(compressed.closed);
+    try (
+      GZIPInputStream in = new GZIPInputStream(
+        new ByteArrayInputStream(compressed.toByteArray())
+      )
+    ) {
+      assertEquals(
+        csv.toString(),
+        new String(in.readAllBytes(), StandardCharsets.UTF_8)
+      );
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kautiainen.antti.dunerest.CharacterImporter.Format;
+import com.kautiainen.antti.dunerest.CharacterImporter.Progress;
+import com.kautiainen.antti.dunerest.CharacterSheet.Rating;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the character importer without a database.
+ */
+public class CharacterImporterTest {
+
+  /**
+   * The reference data with fixed dictionaries.
+   */
+  private static class StubReferenceData extends ReferenceData {
+
+    StubReferenceData() {
+      super(null, null);
+    }
+
+    @Override
+    public Snapshot get() {
+      return new Snapshot(
+        ReferenceDictionary.EMPTY,
+        ReferenceDictionary.of(null, "Battle", "Communicate"),
+        ReferenceDictionary.of(null, "Duty", "Faith")
+      );
+    }
+  }
+
+  /**
+   * The importer collecting the written batches.
+   */
+  private static class StubImporter extends CharacterImporter {
+
+    /**
+     * The written batches.
+     */
+    final List<List<CharacterSheet>> batches = new ArrayList<>();
+
+    /**
+     * The name of the character whose batch fails.
+     */
+    final String failing;
+
+    StubImporter(int batchSize, String failing) {
+      super(
+        null,
+        new StubReferenceData(),
+        event -> {},
+        new ObjectMapper(),
+        batchSize,
+        1,
+        false
+      );
+      this.failing = failing;
+    }
+
+    @Override
+    protected List<Integer> write(List<CharacterSheet> batch)
+      throws SQLException {
+      if (batch.stream().anyMatch(c -> c.name().equals(failing))) {
+        throw new SQLException("Duplicate " + failing);
+      }
+      batches.add(batch);
+      List<Integer> ids = new ArrayList<>();
+      for (int i = 0; i < batch.size(); i++) {
+        ids.add(ids.size() + 1);
+      }
+      return ids;
+    }
+  }
+
+  private static InputStream stream(String data) {
+    return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testJsonBatches() throws IOException {
+    StubImporter importer = new StubImporter(2, null);
+    List<Progress> progress = new ArrayList<>();
+    Progress result = importer
+      .importCharacters(
+        stream(
+          "{\"name\":\"Paul\",\"creator\":\"Frank\"," +
+          "\"skills\":{\"battle\":6},\"drives\":{\"Duty\":7}}\n" +
+          "\n" +
+          "{\"name\":\"Jessica\",\"creator\":\"Frank\"}\n" +
+          "{\"name\":\"Duncan\",\"creator\":\"Frank\"," +
+          "\"skills\":{\"Swimming\":1}}\n" +
+          "not json\n" +
+          "{\"name\":\"Gurney\",\"creator\":\"Frank\"}\n"
+        ),
+        Format.NDJSON,
+        progress::add
+      )
+      .get();
+    assertEquals(3, progress.size());
+    assertTrue(result.done());
+    assertEquals(5, result.records());
+    assertEquals(3, result.imported());
+    assertEquals(2, result.failed());
+    assertEquals(2, progress.get(1).errors().size());
+    assertTrue(progress.get(1).errors().get(0).contains("Record 3"));
+    assertEquals(2, importer.batches.size());
+    CharacterSheet paul = importer.batches.get(0).get(0);
+    assertEquals(List.of(new Rating((short) 1, (short) 6)), paul.skills());
+    assertEquals(List.of(new Rating((short) 1, (short) 7)), paul.drives());
+  }
+
+  @Test
+  public void testCsv() throws IOException {
+    StubImporter importer = new StubImporter(10, null);
+    Progress result = importer
+      .importCharacters(
+        stream(
+          "name,creator,Communicate,Faith\n" +
+          "\"Atreides, Paul\",Frank,5,\n" +
+          "Jessica,Frank,x,4\n" +
+          "Duncan,,1,2\n"
+        ),
+        Format.CSV,
+        progress -> {}
+      )
+      .get();
+    assertEquals(1, result.imported());
+    assertEquals(2, result.failed());
+    CharacterSheet paul = importer.batches.get(0).get(0);
+    assertEquals("Atreides, Paul", paul.name());
+    assertEquals(List.of(new Rating((short) 2, (short) 5)), paul.skills());
+    assertTrue(paul.drives().isEmpty());
+    assertThrows(
+      IOException.class,
+      () ->
+        importer.importCharacters(
+          stream("name,creator,Swimming\n"),
+          Format.CSV,
+          progress -> {}
+        )
+    );
+  }
+
+  @Test
+  public void testFailedBatchContinues() throws IOException {
+    StubImporter importer = new StubImporter(1, "Jessica");
+    Progress result = importer
+      .importCharacters(
+        stream(
+          "{\"name\":\"Paul\",\"creator\":\"Frank\"}\n" +
+          "{\"name\":\"Jessica\",\"creator\":\"Frank\"}\n" +
+          "{\"name\":\"Duncan\",\"creator\":\"Frank\"}\n"
+        ),
+        Format.NDJSON,
+        progress -> {}
+      )
+      .get();
+    assertEquals(2, result.imported());
+    assertEquals(1, result.failed());
+    assertFalse(importer.batches.isEmpty());
+  }
+}
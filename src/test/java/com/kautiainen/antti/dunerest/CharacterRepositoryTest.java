@@ -0,0 +1,229 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kautiainen.antti.dunerest.CharacterSheet.DriveStatement;
+import com.kautiainen.antti.dunerest.CharacterSheet.Rating;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the character repository without a database.
+ */
+public class CharacterRepositoryTest {
+
+  /**
+   * The function building a JSON object.
+   */
+  private static final String BUILD_OBJECT = "jsonb_build_object(";
+
+  /**
+   * The shape of a scalar value.
+   */
+  private static final String SCALAR = "scalar";
+
+  /**
+   * Test the sheet document built by the database has the same keys and
+   * structure as the JSON of the character sheet.
+   */
+  @Test
+  public void testSheetDocumentMatchesCharacterSheet() {
+    JsonNode json = new ObjectMapper()
+      .valueToTree(
+        new CharacterSheet(
+          (short) 1,
+          "Paul",
+          "Frank",
+          2,
+          List.of(new Rating((short) 3, (short) 6)),
+          List.of(new Rating((short) 4, (short) 7)),
+          List.of(new DriveStatement((short) 4, "I must not fear"))
+        )
+      );
+    Object expected = getShape(json);
+    Object actual = getShape(
+      CharacterRepository.SHEET_EXPRESSION,
+      CharacterRepository.SHEET_EXPRESSION.indexOf(BUILD_OBJECT)
+    );
+    assertEquals(expected, actual);
+    assertEquals(
+      List.of(Map.of("driveId", SCALAR, "statement", SCALAR)),
+      ((Map<?, ?>) actual).get("statements")
+    );
+  }
+
+  /**
+   * Get the shape of a JSON value. An object is a map from its keys to the
+   * shapes of its values, and an array is a list of the shape of its first
+   * element.
+   * @param json The JSON value.
+   * @return The shape of the value.
+   */
+  private static Object getShape(JsonNode json) {
+    if (json.isObject()) {
+      Map<String, Object> result = new TreeMap<>();
+      Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        result.put(field.getKey(), getShape(field.getValue()));
+      }
+      return result;
+    } else if (json.isArray()) {
+      return List.of(getShape(json.get(0)));
+    }
+    return SCALAR;
+  }
+
+  /**
+   * Test the queries of a character aggregate are performed in a single
+   * repeatable read transaction.
+   */
+  @Test
+  public void testFindReadsSingleTransaction() throws SQLException {
+    final ClassLoader loader = getClass().getClassLoader();
+    final List<String> calls = new ArrayList<>();
+    final boolean[] autoCommit = { true };
+    Connection connection = (Connection) Proxy.newProxyInstance(
+      loader,
+      new Class<?>[] { Connection.class },
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getAutoCommit":
+            return autoCommit[0];
+          case "getTransactionIsolation":
+            return Connection.TRANSACTION_READ_COMMITTED;
+          case "setAutoCommit":
+            autoCommit[0] = (Boolean) args[0];
+            calls.add("setAutoCommit " + args[0]);
+            return null;
+          case "prepareStatement":
+            final boolean character = ((String) args[0]).startsWith(
+                "SELECT id, name"
+              );
+            final boolean[] read = { false };
+            final ResultSet rows = (ResultSet) Proxy.newProxyInstance(
+              loader,
+              new Class<?>[] { ResultSet.class },
+              (result, resultMethod, resultArgs) -> {
+                switch (resultMethod.getName()) {
+                  case "next":
+                    boolean next = character && !read[0];
+                    read[0] = true;
+                    return next;
+                  case "getString":
+                    return "Paul";
+                  case "getInt":
+                    return 3;
+                  default:
+                    return null;
+                }
+              }
+            );
+            return Proxy.newProxyInstance(
+              loader,
+              new Class<?>[] { PreparedStatement.class },
+              (statement, statementMethod, statementArgs) -> {
+                if ("executeQuery".equals(statementMethod.getName())) {
+                  calls.add("query autoCommit " + autoCommit[0]);
+                  return rows;
+                }
+                return null;
+              }
+            );
+          default:
+            calls.add(
+              args == null ? method.getName() : method.getName() + " " + args[0]
+            );
+            return null;
+        }
+      }
+    );
+
+    CharacterSheet paul = new CharacterRepository(null, null)
+      .find(connection, (short) 1)
+      .get();
+    assertEquals(3, paul.version());
+    assertEquals(
+      List.of(
+        "setAutoCommit false",
+        "setTransactionIsolation " + Connection.TRANSACTION_REPEATABLE_READ,
+        "query autoCommit false",
+        "query autoCommit false",
+        "query autoCommit false",
+        "query autoCommit false",
+        "commit",
+        "setTransactionIsolation " + Connection.TRANSACTION_READ_COMMITTED,
+        "setAutoCommit true"
+      ),
+      calls
+    );
+  }
+
+  /**
+   * Get the shape of the object built by the SQL function call. A value
+   * aggregating objects with <code>jsonb_agg</code> is an array.
+   * @param sql The SQL expression.
+   * @param start The index of the function call.
+   * @return The shape of the built object.
+   */
+  private static Object getShape(String sql, int start) {
+    List<String> arguments = getArguments(sql, start + BUILD_OBJECT.length());
+    Map<String, Object> result = new TreeMap<>();
+    for (int i = 0; i + 1 < arguments.size(); i += 2) {
+      String key = arguments.get(i).trim();
+      assertEquals('\'', key.charAt(0), "Key is not a literal: " + key);
+      String value = arguments.get(i + 1);
+      int nested = value.indexOf(BUILD_OBJECT);
+      result.put(
+        key.substring(1, key.length() - 1),
+        nested < 0
+          ? SCALAR
+          : value.contains("jsonb_agg(")
+            ? List.of(getShape(value, nested))
+            : getShape(value, nested)
+      );
+    }
+    return result;
+  }
+
+  /**
+   * Split the arguments of a function call at the top level commas.
+   * @param sql The SQL expression.
+   * @param start The index following the opening parenthesis of the call.
+   * @return The list of the arguments.
+   */
+  private static List<String> getArguments(String sql, int start) {
+    List<String> result = new ArrayList<>();
+    int depth = 0;
+    boolean quoted = false;
+    int begin = start;
+    for (int i = start; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (quoted) {
+        continue;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')' && depth-- == 0) {
+        result.add(sql.substring(begin, i));
+        return result;
+      } else if (c == ',' && depth == 0) {
+        result.add(sql.substring(begin, i));
+        begin = i + 1;
+      }
+    }
+    throw new IllegalArgumentException("Unterminated function call");
+  }
+}
@@ -0,0 +1,73 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kautiainen.antti.dunerest.CharacterStore.Match;
+import com.kautiainen.antti.dunerest.CharacterStore.Snapshot;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the packed character store without a database.
+ */
+public class CharacterStoreTest {
+
+  private static Snapshot createSnapshot() {
+    return new CharacterStore.Builder(6, 2, 2)
+      .character(1, "Paul")
+      .skill(1, 1, 6)
+      .drive(1, 1, 7)
+      .character(2, "Jessica")
+      .skill(2, 1, 5)
+      .drive(2, 1, 8)
+      .character(3, "Duncan")
+      .skill(3, 1, 8)
+      .drive(3, 2, 8)
+      .character(5, "Gurney")
+      .skill(5, 1, 200)
+      .drive(5, 1, 4)
+      .character(6, "Thufir")
+      .skill(6, 1, 4)
+      .drive(6, 1, 4)
+      .skill(7, 1, 8)
+      .build();
+  }
+
+  @Test
+  public void testValues() {
+    Snapshot snapshot = createSnapshot();
+    assertEquals(7, snapshot.getCapacity());
+    assertEquals("Duncan", snapshot.getName(3));
+    assertEquals(null, snapshot.getName(4));
+    assertEquals(6, snapshot.getSkill(1, 1));
+    assertEquals(Byte.MAX_VALUE, snapshot.getSkill(5, 1));
+    assertEquals(CharacterStore.NO_VALUE, snapshot.getDrive(3, 1));
+    assertEquals(CharacterStore.NO_VALUE, snapshot.getSkill(4, 1));
+    assertEquals(CharacterStore.NO_VALUE, snapshot.getSkill(1, 3));
+  }
+
+  @Test
+  public void testBest() {
+    Snapshot snapshot = createSnapshot();
+    assertEquals(
+      List.of(
+        new Match((short) 5, "Gurney", 127, 4),
+        new Match((short) 1, "Paul", 6, 7),
+        new Match((short) 2, "Jessica", 5, 8)
+      ),
+      snapshot.best(1, 1, 3)
+    );
+    assertEquals(4, snapshot.best(1, 1, 10).size());
+    assertEquals(
+      List.of(new Match((short) 2, "Jessica", 5, 8)),
+      snapshot.best(1, 1, 1, 2, 4)
+    );
+    assertEquals(
+      List.of(new Match((short) 3, "Duncan", 8, 8)),
+      snapshot.best(1, 2, 5)
+    );
+    assertTrue(snapshot.best(2, 1, 5).isEmpty());
+    assertTrue(snapshot.best(9, 1, 5).isEmpty());
+  }
+}
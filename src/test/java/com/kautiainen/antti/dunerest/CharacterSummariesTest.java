@@ -0,0 +1,93 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kautiainen.antti.utils.db.CreateDatabase.ViewDefinition;
+import com.kautiainen.antti.utils.db.SqlClassifier;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the character summaries without a database.
+ */
+public class CharacterSummariesTest {
+
+  /**
+   * Test the summary view is a materialized view refreshed concurrently.
+   */
+  @Test
+  public void testView() {
+    ViewDefinition view = new Database().getCharacterSummariesView();
+    assertTrue(view.isMaterialized());
+    assertEquals(2, view.getCreateCommands().size());
+    assertEquals(
+      SqlClassifier.Kind.CREATE_VIEW,
+      SqlClassifier.classify(view.getCreateCommands().get(0))
+    );
+    assertEquals(
+      SqlClassifier.Kind.CREATE_INDEX,
+      SqlClassifier.classify(view.getCreateCommands().get(1))
+    );
+    assertEquals(
+      "REFRESH MATERIALIZED VIEW CONCURRENTLY character_summaries",
+      view.getRefreshView()
+    );
+  }
+
+  /**
+   * Test the refresh waits for the quiet period, but not longer than the
+   * maximal delay.
+   */
+  @Test
+  public void testDebounce() {
+    CharacterSummaries summaries = new CharacterSummaries(
+      null,
+      new Database(),
+      100,
+      1000
+    );
+    final long start = System.nanoTime();
+    final long ms = TimeUnit.MILLISECONDS.toNanos(1);
+    assertFalse(summaries.isRefreshDue(start + 10_000 * ms));
+    summaries.onCharacterChanged(new CharacterChangedEvent((short) 1));
+    assertFalse(summaries.isRefreshDue(start + 50 * ms));
+    assertTrue(summaries.isRefreshDue(System.nanoTime() + 150 * ms));
+    for (int i = 0; i < 3; i++) {
+      summaries.onCharacterChanged(new CharacterChangedEvent((short) 1));
+    }
+    assertFalse(summaries.isRefreshDue(System.nanoTime() + 50 * ms));
+    assertTrue(summaries.isRefreshDue(start + 1100 * ms));
+  }
+
+  /**
+   * Test a failed refresh keeps the changes pending.
+   */
+  @Test
+  public void testFailedRefreshRetries() {
+    final AtomicInteger refreshes = new AtomicInteger();
+    CharacterSummaries summaries = new CharacterSummaries(
+      null,
+      new Database(),
+      0,
+      1000
+    ) {
+      @Override
+      public void refresh() throws SQLException {
+        if (refreshes.incrementAndGet() == 1) {
+          throw new SQLException("Refresh failed");
+        }
+      }
+    };
+    summaries.onCharacterChanged(new CharacterChangedEvent((short) 1));
+    summaries.refreshIfDue();
+    assertEquals(1, refreshes.get());
+    assertTrue(summaries.isRefreshDue(System.nanoTime()));
+    summaries.refreshIfDue();
+    assertEquals(2, refreshes.get());
+    assertFalse(summaries.isRefreshDue(System.nanoTime()));
+  }
+}
@@ -0,0 +1,101 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kautiainen.antti.dunerest.PartyAnalyzer.Analysis;
+import com.kautiainen.antti.dunerest.PartyAnalyzer.Candidate;
+import com.kautiainen.antti.dunerest.PartyAnalyzer.Party;
+import com.kautiainen.antti.dunerest.PartyAnalyzer.Recommendation;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the party analysis without a database.
+ */
+public class PartyAnalyzerTest {
+
+  private static final SkillTestOdds ODDS = new SkillTestOdds();
+
+  private static final ReferenceData.Snapshot REFERENCE =
+    new ReferenceData.Snapshot(
+      ReferenceDictionary.EMPTY,
+      ReferenceDictionary.of(null, "Battle", "Communicate"),
+      ReferenceDictionary.of(null, "Duty", "Faith")
+    );
+
+  @Test
+  public void testRanking() {
+    Party party = Party
+      .builder(1, "Arrakis")
+      .character(1, "Paul")
+      .character(2, "Jessica")
+      .character(4, "Duncan")
+      .skill(1, 1, 6)
+      .drive(1, 1, 7)
+      .skill(2, 1, 5)
+      .skill(2, 2, 8)
+      .drive(2, 1, 8)
+      .drive(2, 2, 6)
+      .skill(4, 1, 8)
+      .drive(4, 1, 8)
+      .skill(3, 1, 8)
+      .build();
+    assertEquals(3, party.size());
+    assertEquals(CharacterStore.NO_VALUE, party.getDrive(0, 2));
+    Analysis analysis = new PartyAnalyzer(ODDS, 256)
+      .analyze(party, REFERENCE, 2, 2, false, 2);
+    assertEquals(3, analysis.characters());
+    assertEquals(4, analysis.recommendations().size());
+    Recommendation battleDuty = analysis.recommendations().get(0);
+    assertEquals("Battle", battleDuty.skill());
+    assertEquals("Duty", battleDuty.drive());
+    assertEquals(2, battleDuty.candidates().size());
+    Candidate best = battleDuty.candidates().get(0);
+    assertEquals(4, best.id());
+    assertEquals(16, best.target());
+    assertEquals(ODDS.getSuccess(16, 1, 2, 2), best.success());
+    // Paul and Jessica have equal odds, and Paul is earlier in the party.
+    assertEquals(1, battleDuty.candidates().get(1).id());
+    Recommendation communicateFaith = analysis.recommendations().get(3);
+    assertEquals(1, communicateFaith.candidates().size());
+    assertEquals("Jessica", communicateFaith.candidates().get(0).name());
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> Party.builder(1, "Arrakis").character(2, "Paul").character(1, "")
+    );
+  }
+
+  @Test
+  public void testParallelMatchesSequential() {
+    Random random = new Random(42L);
+    Party.Builder builder = Party.builder(2, "Roster");
+    for (int id = 1; id <= 5000; id++) {
+      builder.character(id, "NPC " + id);
+      for (int rating = 1; rating <= 2; rating++) {
+        if (random.nextInt(10) > 0) {
+          builder.skill(id, rating, 4 + random.nextInt(5));
+        }
+        if (random.nextInt(10) > 0) {
+          builder.drive(id, rating, 4 + random.nextInt(5));
+        }
+      }
+    }
+    Party party = builder.build();
+    Analysis sequential = new PartyAnalyzer(ODDS, Integer.MAX_VALUE)
+      .analyze(party, REFERENCE, 3, 3, true, 10);
+    Analysis parallel = new PartyAnalyzer(ODDS, 1)
+      .analyze(party, REFERENCE, 3, 3, true, 10);
+    assertEquals(sequential, parallel);
+    for (Recommendation recommendation : parallel.recommendations()) {
+      assertEquals(10, recommendation.candidates().size());
+      for (int i = 1; i < 10; i++) {
+        assertTrue(
+          recommendation.candidates().get(i - 1).success() >=
+          recommendation.candidates().get(i).success()
+        );
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.kautiainen.antti.dunerest.PersonRepository.Person;
+import com.kautiainen.antti.dunerest.PersonRepository.PersonMotivation;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the reading of the persons without a database.
+ */
+public class PersonRepositoryTest {
+
+  @Test
+  public void testReadPersons() throws SQLException {
+    List<Person> persons = PersonRepository.readPersons(
+      rows(
+        row(1, "Paul", 2, 6, "I must not fear"),
+        row(1, "Paul", 4, 5, null),
+        row(2, "Jessica", null, null, null),
+        row(3, "Leto", 1, 7, "Duty")
+      )
+    );
+    assertEquals(
+      List.of(
+        new Person(
+          1,
+          "Paul",
+          List.of(
+            new PersonMotivation(2, (short) 6, "I must not fear"),
+            new PersonMotivation(4, (short) 5, null)
+          )
+        ),
+        new Person(2, "Jessica", List.of()),
+        new Person(
+          3,
+          "Leto",
+          List.of(new PersonMotivation(1, (short) 7, "Duty"))
+        )
+      ),
+      persons
+    );
+    assertEquals(List.of(), PersonRepository.readPersons(rows()));
+  }
+
+  /**
+   * Create a row of a person joined with a motivation.
+   * @param id The identifier of the person.
+   * @param name The name of the person.
+   * @param motivationId The identifier of the motivation, or an undefined
+   *  value for a person without motivations.
+   * @param value The value of the motivation.
+   * @param statement The statement of the motivation.
+   * @return The row as a mapping from the column names to the values.
+   */
+  private static Map<String, Object> row(
+    int id,
+    String name,
+    Integer motivationId,
+    Integer value,
+    String statement
+  ) {
+    Map<String, Object> result = new HashMap<>();
+    result.put("id", id);
+    result.put("name", name);
+    result.put("motivation_id", motivationId);
+    result.put("value", value);
+    result.put("statement", statement);
+    return result;
+  }
+
+  /**
+   * Create a result set of the rows without a database.
+   * @param rows The rows of the result set.
+   * @return The result set of the rows.
+   */
+  @SafeVarargs
+  private static ResultSet rows(Map<String, Object>... rows) {
+    final List<Map<String, Object>> data = Arrays.asList(rows);
+    final int[] index = { -1 };
+    final boolean[] wasNull = { false };
+    return (ResultSet) Proxy.newProxyInstance(
+      PersonRepositoryTest.class.getClassLoader(),
+      new Class<?>[] { ResultSet.class },
+      (proxy, method, args) -> {
+        if (method.getName().equals("next")) {
+          return ++index[0] < data.size();
+        } else if (method.getName().equals("wasNull")) {
+          return wasNull[0];
+        }
+        Object value = data.get(index[0]).get((String) args[0]);
+        wasNull[0] = value == null;
+        switch (method.getName()) {
+          case "getInt":
+            return value == null ? 0 : ((Number) value).intValue();
+          case "getShort":
+            return value == null ? (short) 0 : ((Number) value).shortValue();
+          default:
+            return value;
+        }
+      }
+    );
+  }
+}
@@ -0,0 +1,227 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the reference dictionaries and their loading without a database.
+ */
+public class ReferenceDictionaryTest {
+
+  /**
+   * Create a connection to the reference data tables.
+   * @param tables The rows of the identifier, the name, and the description
+   *  of each table.
+   * @param calls The list into which the queries and the transaction calls
+   *  of the connection are added.
+   * @return The connection in the autocommit mode.
+   */
+  private static Connection connection(
+    Map<String, Object[][]> tables,
+    List<String> calls
+  ) {
+    final ClassLoader loader = ReferenceDictionaryTest.class.getClassLoader();
+    final boolean[] autoCommit = { true };
+    return (Connection) Proxy.newProxyInstance(
+      loader,
+      new Class<?>[] { Connection.class },
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getAutoCommit":
+            return autoCommit[0];
+          case "getTransactionIsolation":
+            return Connection.TRANSACTION_READ_COMMITTED;
+          case "createStatement":
+            return Proxy.newProxyInstance(
+              loader,
+              new Class<?>[] { Statement.class },
+              (statement, statementMethod, statementArgs) -> {
+                if (!"executeQuery".equals(statementMethod.getName())) {
+                  return null;
+                }
+                final String sql = (String) statementArgs[0];
+                calls.add(sql + (autoCommit[0] ? "" : " in transaction"));
+                final Object[][] rows = tables.get(
+                  sql.replaceAll(".* FROM (\\w+) .*", "$1")
+                );
+                final int[] row = { -1 };
+                return Proxy.newProxyInstance(
+                  loader,
+                  new Class<?>[] { ResultSet.class },
+                  (result, resultMethod, resultArgs) -> {
+                    switch (resultMethod.getName()) {
+                      case "next":
+                        return ++row[0] < rows.length;
+                      case "getShort":
+                        return ((Number) rows[row[0]][0]).shortValue();
+                      case "getString":
+                        return rows[row[0]][
+                          "name".equals(resultArgs[0]) ? 1 : 2
+                        ];
+                      default:
+                        return null;
+                    }
+                  }
+                );
+              }
+            );
+          case "setAutoCommit":
+            autoCommit[0] = (Boolean) args[0];
+            calls.add("setAutoCommit " + args[0]);
+            return null;
+          default:
+            calls.add(
+              args == null ? method.getName() : method.getName() + " " + args[0]
+            );
+            return null;
+        }
+      }
+    );
+  }
+
+  @Test
+  public void testLoad() throws SQLException {
+    List<String> calls = new ArrayList<>();
+    ReferenceDictionary skills = ReferenceDictionary.load(
+      connection(
+        Map.of(
+          "skills",
+          new Object[][] {
+            { 1, "Battle", "Fighting" },
+            { 3, "Communicate", null },
+            { 40, "Move", "Moving" },
+            { -2, "Negative", null },
+          }
+        ),
+        calls
+      ),
+      "skills"
+    );
+    assertEquals(
+      List.of("SELECT id, name, description FROM skills ORDER BY id"),
+      calls
+    );
+    // The identifiers beyond the initial capacity grow the arrays.
+    assertEquals(40, skills.getMaxId());
+    assertEquals("Battle", skills.getName(1));
+    assertEquals("Fighting", skills.getDescription(1));
+    assertNull(skills.getDescription(3));
+    assertEquals("Moving", skills.getDescription(40));
+    assertEquals(
+      ReferenceDictionary.EMPTY,
+      ReferenceDictionary.load(
+        connection(Map.of("skills", new Object[][] {}), new ArrayList<>()),
+        "skills"
+      )
+    );
+  }
+
+  @Test
+  public void testSparseIdentifiers() throws SQLException {
+    ReferenceDictionary drives = ReferenceDictionary.load(
+      connection(
+        Map.of(
+          "drives",
+          new Object[][] { { 2, "Duty", null }, { 20, "Truth", null } }
+        ),
+        new ArrayList<>()
+      ),
+      "drives"
+    );
+    assertFalse(drives.contains(-1));
+    assertFalse(drives.contains(0));
+    assertFalse(drives.contains(1));
+    assertTrue(drives.contains(2));
+    assertFalse(drives.contains(3));
+    assertFalse(drives.contains(19));
+    assertTrue(drives.contains(20));
+    assertFalse(drives.contains(21));
+    assertNull(drives.getName(19));
+    assertNull(drives.getName(21));
+
+    assertEquals(2, drives.getId("Duty"));
+    assertEquals(20, drives.getId("tRUTH"));
+    assertEquals(-1, drives.getId("Faith"));
+    assertEquals(-1, drives.getId(null));
+    String[] names = new String[21];
+    names[2] = "Duty";
+    names[20] = "Truth";
+    assertEquals(ReferenceDictionary.of(names), drives);
+  }
+
+  @Test
+  public void testOf() {
+    ReferenceDictionary skills = ReferenceDictionary.of(
+      null,
+      "Battle",
+      null,
+      "Communicate"
+    );
+    assertEquals(3, skills.getMaxId());
+    assertFalse(skills.contains(0));
+    assertTrue(skills.contains(1));
+    assertFalse(skills.contains(2));
+    assertTrue(skills.contains(3));
+    assertEquals(3, skills.getId("communicate"));
+    assertEquals(-1, skills.getId("Move"));
+    assertEquals(-1, ReferenceDictionary.EMPTY.getMaxId());
+    assertFalse(ReferenceDictionary.EMPTY.contains(0));
+    assertEquals(-1, ReferenceDictionary.EMPTY.getId("Battle"));
+  }
+
+  @Test
+  public void testRefreshReadsSingleTransaction() {
+    final List<String> calls = new ArrayList<>();
+    final Connection connection = connection(
+      Map.of(
+        "motivations",
+        new Object[][] { { 1, "Duty", null } },
+        "skills",
+        new Object[][] { { 1, "Battle", null } },
+        "drives",
+        new Object[][] { { 1, "Faith", null } }
+      ),
+      calls
+    );
+    ReferenceData data = new ReferenceData(
+      (DataSource) Proxy.newProxyInstance(
+        getClass().getClassLoader(),
+        new Class<?>[] { DataSource.class },
+        (proxy, method, args) ->
+          "getConnection".equals(method.getName()) ? connection : null
+      ),
+      null
+    );
+    assertTrue(data.refresh());
+    assertEquals(1, data.getSkills().getId("Battle"));
+    assertEquals(
+      List.of(
+        "setAutoCommit false",
+        "setTransactionIsolation " + Connection.TRANSACTION_REPEATABLE_READ,
+        "SELECT id, name, description FROM motivations ORDER BY id" +
+        " in transaction",
+        "SELECT id, name, description FROM skills ORDER BY id in transaction",
+        "SELECT id, name, description FROM drives ORDER BY id in transaction",
+        "commit",
+        "setTransactionIsolation " + Connection.TRANSACTION_READ_COMMITTED,
+        "setAutoCommit true",
+        "close"
+      ),
+      calls
+    );
+    assertFalse(data.refresh());
+  }
+}
@@ -0,0 +1,89 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the skill test probabilities against the enumerated outcomes.
+ */
+public class SkillTestOddsTest {
+
+  private static final SkillTestOdds ODDS = new SkillTestOdds();
+
+  /**
+   * Compute the probability of the success by enumerating all rolls.
+   * @param target The target number.
+   * @param crit The critical number.
+   * @param dice The size of the pool.
+   * @param difficulty The difficulty.
+   * @return The probability of the success.
+   */
+  private static double enumerate(
+    int target,
+    int crit,
+    int dice,
+    int difficulty
+  ) {
+    int outcomes = (int) Math.pow(SkillTestOdds.SIDES, dice);
+    int passed = 0;
+    for (int roll = 0; roll < outcomes; roll++) {
+      int successes = 0;
+      for (int i = 0, rest = roll; i < dice; i++) {
+        int face = rest % SkillTestOdds.SIDES + 1;
+        rest /= SkillTestOdds.SIDES;
+        successes += face <= crit ? 2 : face <= target ? 1 : 0;
+      }
+      if (successes >= difficulty) {
+        passed++;
+      }
+    }
+    return (double) passed / outcomes;
+  }
+
+  @Test
+  public void testAgainstEnumeration() {
+    for (int dice = 2; dice <= 3; dice++) {
+      for (int target = 1; target <= 20; target += 3) {
+        for (int crit = 1; crit <= target; crit += 2) {
+          for (int difficulty = 0; difficulty <= 5; difficulty++) {
+            assertEquals(
+              enumerate(target, crit, dice, difficulty),
+              ODDS.getSuccess(target, crit, dice, difficulty),
+              1e-12
+            );
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testKnownValues() {
+    assertEquals(0.75, ODDS.getSuccess(10, 1, 2, 1), 1e-12);
+    assertEquals(1.0, ODDS.getSuccess(20, 1, 5, 5), 1e-12);
+    assertEquals(1.0, ODDS.getSuccess(7, 3, 4, 0), 1e-12);
+    assertEquals(ODDS.getSuccess(5, 5, 3, 4), ODDS.getSuccess(5, 9, 3, 4));
+    assertEquals(ODDS.getSuccess(20, 1, 2, 2), ODDS.getSuccess(25, 1, 2, 2));
+    assertEquals(1.0 - 0.95 * 0.95, ODDS.getComplication(2), 1e-12);
+    assertEquals(1.0 - 0.75 * 0.75 * 0.75, ODDS.getCritical(5, 3), 1e-12);
+    assertEquals(16, SkillTestOdds.getTarget(8, 8));
+    assertEquals(20, SkillTestOdds.getTarget(15, 8));
+    assertEquals(6, SkillTestOdds.getCritical(6, true));
+    assertEquals(1, SkillTestOdds.getCritical(6, false));
+  }
+
+  @Test
+  public void testInvalidArguments() {
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> ODDS.getSuccess(10, 1, 1, 1)
+    );
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> ODDS.getSuccess(10, 1, 2, 6)
+    );
+    assertThrows(IllegalArgumentException.class, () -> ODDS.getComplication(6));
+  }
+}
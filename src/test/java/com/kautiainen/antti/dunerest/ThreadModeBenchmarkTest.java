@@ -0,0 +1,141 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.kautiainen.antti.utils.db.BoundedDataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Benchmark comparing the request throughput of the platform threads and the
+ * virtual threads.
+ *
+ * The requests perform blocking round-trips on connections of a bounded data
+ * source over a simulated database, and further blocking work after the
+ * connection has been released. The benchmark is run only when the system
+ * property <code>benchmark</code> is <code>true</code>:
+ * <code>mvn test -Dtest=ThreadModeBenchmarkTest -Dbenchmark=true</code>
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ThreadModeBenchmarkTest {
+
+  /**
+   * The number of simulated requests.
+   */
+  private static final int REQUESTS = 20_000;
+
+  /**
+   * The number of threads of the Tomcat default platform thread pool.
+   */
+  private static final int PLATFORM_THREADS = 200;
+
+  /**
+   * The number of pooled connections.
+   */
+  private static final int CONNECTIONS = 100;
+
+  /**
+   * The number of blocking round-trips performed by a request.
+   */
+  private static final int ROUND_TRIPS = 3;
+
+  /**
+   * The latency in milliseconds of a single round-trip.
+   */
+  private static final long LATENCY = 2L;
+
+  /**
+   * The latency in milliseconds of the blocking work of a request without a
+   * connection, such as writing the response to a slow client.
+   */
+  private static final long CLIENT_LATENCY = 10L;
+
+  /**
+   * The simulated database data source.
+   * @return The data source returning connections without a database.
+   */
+  private DataSource simulatedDataSource() {
+    Connection connection = (Connection) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] { Connection.class },
+      (proxy, method, args) -> null
+    );
+    return (DataSource) Proxy.newProxyInstance(
+      getClass().getClassLoader(),
+      new Class<?>[] { DataSource.class },
+      (proxy, method, args) ->
+        "getConnection".equals(method.getName()) ? connection : null
+    );
+  }
+
+  /**
+   * Run the simulated requests with the executor.
+   * @param name The name of the thread mode.
+   * @param executor The executor running the requests.
+   * @param dataSource The data source of the requests.
+   * @return The throughput as requests per second.
+   * @throws InterruptedException The benchmark was interrupted.
+   */
+  private double run(String name, ExecutorService executor, DataSource dataSource)
+    throws InterruptedException {
+    final AtomicInteger completed = new AtomicInteger();
+    final long start = System.nanoTime();
+    for (int i = 0; i < REQUESTS; i++) {
+      executor.execute(() -> {
+        try {
+          // The connection is released before the response is sent.
+          Connection connection = dataSource.getConnection();
+          try {
+            for (int trip = 0; trip < ROUND_TRIPS; trip++) {
+              Thread.sleep(LATENCY);
+            }
+          } finally {
+            connection.close();
+          }
+          Thread.sleep(CLIENT_LATENCY);
+          completed.incrementAndGet();
+        } catch (Exception e) {
+          // The failed request is not counted.
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.MINUTES);
+    final double seconds = (System.nanoTime() - start) / 1e9;
+    final double throughput = completed.get() / seconds;
+    System.out.printf(
+      "%-9s %6d requests in %6.2f s: %10.1f requests/s%n",
+      name,
+      completed.get(),
+      seconds,
+      throughput
+    );
+    assertEquals(REQUESTS, completed.get());
+    return throughput;
+  }
+
+  @Test
+  public void compareThreadModes() throws InterruptedException {
+    Optional<ExecutorService> virtual = VirtualThreadConfiguration.newVirtualThreadExecutor();
+    assumeTrue(virtual.isPresent(), "Virtual threads require Java 21");
+    run(
+      "platform",
+      Executors.newFixedThreadPool(PLATFORM_THREADS),
+      new BoundedDataSource(simulatedDataSource(), CONNECTIONS, 60_000L)
+    );
+    run(
+      "virtual",
+      virtual.get(),
+      new BoundedDataSource(simulatedDataSource(), CONNECTIONS, 60_000L)
+    );
+  }
+}
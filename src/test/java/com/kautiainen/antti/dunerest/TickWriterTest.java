@@ -0,0 +1,387 @@
+package com.kautiainen.antti.dunerest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the tick writer over a data source without a database.
+ */
+public class TickWriterTest {
+
+  /**
+   * An insert performed by the stub database.
+   * @param rows The number of the inserted ticks.
+   * @param thread The thread performing the insert.
+   */
+  private static record Insert(int rows, Thread thread) {}
+
+  /**
+   * The data source recording the inserts of the ticks.
+   */
+  private static class StubDatabase {
+
+    /**
+     * The performed inserts.
+     */
+    final List<Insert> inserts = new ArrayList<>();
+
+    /**
+     * The statements executed without parameters.
+     */
+    final List<String> statements = new ArrayList<>();
+
+    /**
+     * The number of the commits.
+     */
+    int commits = 0;
+
+    /**
+     * The latch counted down when an insert starts.
+     */
+    final CountDownLatch started = new CountDownLatch(1);
+
+    /**
+     * The latch the inserts wait for, or an undefined value, if the inserts
+     * do not wait.
+     */
+    volatile CountDownLatch gate = null;
+
+    /**
+     * Get the number of the inserted ticks.
+     * @return The total number of the inserted rows.
+     */
+    synchronized int rows() {
+      return inserts.stream().mapToInt(Insert::rows).sum();
+    }
+
+    /**
+     * Perform an insert, waiting for the gate. The interrupts do not stop the
+     * wait.
+     * @param sql The insert.
+     * @return The number of the inserted ticks.
+     */
+    int insert(String sql) {
+      final CountDownLatch wait = gate;
+      started.countDown();
+      boolean interrupted = false;
+      while (wait != null && wait.getCount() > 0) {
+        try {
+          wait.await();
+        } catch (InterruptedException ie) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      final int rows = sql.length() - sql.replace("?", "").length();
+      synchronized (this) {
+        inserts.add(new Insert(rows, Thread.currentThread()));
+      }
+      return rows;
+    }
+
+    /**
+     * Create the data source of the database.
+     * @return The data source.
+     */
+    DataSource dataSource() {
+      final ClassLoader loader = getClass().getClassLoader();
+      final Connection connection = (Connection) Proxy.newProxyInstance(
+        loader,
+        new Class<?>[] { Connection.class },
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "prepareStatement":
+              final String sql = (String) args[0];
+              return Proxy.newProxyInstance(
+                loader,
+                new Class<?>[] { PreparedStatement.class },
+                (statement, statementMethod, statementArgs) ->
+                  "executeUpdate".equals(statementMethod.getName())
+                    ? insert(sql)
+                    : null
+              );
+            case "createStatement":
+              return Proxy.newProxyInstance(
+                loader,
+                new Class<?>[] { Statement.class },
+                (statement, statementMethod, statementArgs) -> {
+                  if ("execute".equals(statementMethod.getName())) {
+                    synchronized (this) {
+                      statements.add((String) statementArgs[0]);
+                    }
+                    return false;
+                  }
+                  return null;
+                }
+              );
+            case "commit":
+              synchronized (this) {
+                commits++;
+              }
+              return null;
+            default:
+              return null;
+          }
+        }
+      );
+      return (DataSource) Proxy.newProxyInstance(
+        loader,
+        new Class<?>[] { DataSource.class },
+        (proxy, method, args) ->
+          "getConnection".equals(method.getName()) ? connection : null
+      );
+    }
+  }
+
+  /**
+   * Create a started tick writer.
+   * @param database The stub database.
+   * @param durability The durability mode.
+   * @param batchSize The batch size.
+   * @param flushInterval The flush interval in milliseconds.
+   * @param commitTimeout The commit timeout in milliseconds.
+   * @return The started writer.
+   */
+  private static TickWriter start(
+    StubDatabase database,
+    TickWriter.Durability durability,
+    int batchSize,
+    long flushInterval,
+    long commitTimeout
+  ) {
+    TickWriter writer = new TickWriter(
+      database.dataSource(),
+      new SimpleMeterRegistry(),
+      durability,
+      batchSize,
+      flushInterval,
+      100,
+      commitTimeout
+    );
+    writer.afterPropertiesSet();
+    return writer;
+  }
+
+  @Test
+  public void testFlushAtBatchSize() throws Exception {
+    StubDatabase database = new StubDatabase();
+    TickWriter writer = start(
+      database,
+      TickWriter.Durability.GROUP_COMMIT,
+      3,
+      60_000,
+      60_000
+    );
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      List<Future<?>> records = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        records.add(
+          executor.submit(() -> {
+            writer.record();
+            return null;
+          })
+        );
+      }
+      // The flush interval is far longer than the wait.
+      for (Future<?> record : records) {
+        record.get(10, TimeUnit.SECONDS);
+      }
+      assertEquals(1, database.inserts.size());
+      assertEquals(3, database.inserts.get(0).rows());
+      assertEquals(1, database.commits);
+    } finally {
+      executor.shutdownNow();
+      writer.destroy();
+    }
+  }
+
+  @Test
+  public void testFlushAtInterval() throws Exception {
+    StubDatabase database = new StubDatabase();
+    TickWriter writer = start(
+      database,
+      TickWriter.Durability.GROUP_COMMIT,
+      100,
+      50,
+      60_000
+    );
+    try {
+      final long start = System.nanoTime();
+      writer.record();
+      assertTrue(
+        System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50),
+        "Flushed before the flush interval"
+      );
+      assertEquals(1, database.inserts.size());
+      assertEquals(1, database.inserts.get(0).rows());
+      assertEquals(1, database.commits);
+    } finally {
+      writer.destroy();
+    }
+  }
+
+  @Test
+  public void testCommitTimeout() throws Exception {
+    StubDatabase database = new StubDatabase();
+    database.gate = new CountDownLatch(1);
+    TickWriter writer = start(
+      database,
+      TickWriter.Durability.GROUP_COMMIT,
+      1,
+      60_000,
+      100
+    );
+    try {
+      assertThrows(SQLTimeoutException.class, writer::record);
+      assertEquals(0, database.commits);
+    } finally {
+      database.gate.countDown();
+      writer.destroy();
+    }
+    assertEquals(1, database.rows());
+  }
+
+  @Test
+  public void testAsyncDoesNotWait() throws Exception {
+    StubDatabase database = new StubDatabase();
+    database.gate = new CountDownLatch(1);
+    TickWriter writer = start(
+      database,
+      TickWriter.Durability.ASYNC,
+      1,
+      60_000,
+      60_000
+    );
+    try {
+      writer.record();
+      assertTrue(database.started.await(10, TimeUnit.SECONDS));
+      // The second tick is buffered without waiting for the blocked flush.
+      writer.record();
+      assertEquals(0, database.commits);
+    } finally {
+      database.gate.countDown();
+      writer.destroy();
+    }
+    assertEquals(2, database.rows());
+    assertEquals(
+      List.of(
+        "SET LOCAL synchronous_commit TO OFF",
+        "SET LOCAL synchronous_commit TO OFF"
+      ),
+      database.statements
+    );
+  }
+
+  @Test
+  public void testImmediate() throws Exception {
+    StubDatabase database = new StubDatabase();
+    TickWriter writer = start(
+      database,
+      TickWriter.Durability.IMMEDIATE,
+      100,
+      60_000,
+      60_000
+    );
+    try {
+      writer.record();
+      writer.record();
+      assertEquals(
+        List.of(
+          new Insert(1, Thread.currentThread()),
+          new Insert(1, Thread.currentThread())
+        ),
+        database.inserts
+      );
+      // The single inserts are committed by the autocommit.
+      assertEquals(0, database.commits);
+    } finally {
+      writer.destroy();
+    }
+  }
+
+  @Test
+  public void testShutdownFlushesBufferedTicks() throws Exception {
+    StubDatabase database = new StubDatabase();
+    final CountDownLatch gate = new CountDownLatch(1);
+    database.gate = gate;
+    TickWriter writer = start(
+      database,
+      TickWriter.Durability.ASYNC,
+      2,
+      60_000,
+      60_000
+    );
+    Thread destroyer = new Thread(() -> {
+      try {
+        writer.destroy();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    try {
+      writer.record();
+      writer.record();
+      assertTrue(database.started.await(10, TimeUnit.SECONDS));
+      // The flusher waits for the first batch while these are buffered.
+      database.gate = null;
+      writer.record();
+      writer.record();
+      writer.record();
+      destroyer.start();
+      await(() -> destroyer.getState() == Thread.State.TIMED_WAITING);
+
+      // The recording thread finding the writer stopped drains the buffer.
+      writer.flushRemaining();
+      assertEquals(
+        List.of(
+          new Insert(2, Thread.currentThread()),
+          new Insert(1, Thread.currentThread())
+        ),
+        database.inserts
+      );
+      gate.countDown();
+      destroyer.join(TimeUnit.SECONDS.toMillis(10));
+      assertFalse(destroyer.isAlive());
+      assertEquals(5, database.rows());
+      assertEquals(3, database.commits);
+    } finally {
+      gate.countDown();
+    }
+  }
+
+  /**
+   * Wait until a condition holds.
+   * @param condition The awaited condition.
+   * @throws InterruptedException The wait was interrupted.
+   */
+  private static void await(BooleanSupplier condition)
+    throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.nanoTime() - deadline < 0, "Timed out waiting");
+      Thread.sleep(1);
+    }
+  }
+}
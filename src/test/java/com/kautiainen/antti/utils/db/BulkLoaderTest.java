@@ -0,0 +1,128 @@
+package com.kautiainen.antti.utils.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the CSV parsing and the multi-row insert fallback of the bulk
+ * loader.
+ */
+public class BulkLoaderTest {
+
+  @Test
+  public void testReadRecord() throws IOException {
+    BufferedReader reader = new BufferedReader(
+      new StringReader(
+        "name,creator\r\n\"Paul \"\"Muad'Dib\"\"\",\"Frank,\nHerbert\"\n,\"\"\n"
+      )
+    );
+    assertEquals(
+      Arrays.asList("name", "creator"),
+      BulkLoader.readRecord(reader)
+    );
+    assertEquals(
+      Arrays.asList("Paul \"Muad'Dib\"", "Frank,\nHerbert"),
+      BulkLoader.readRecord(reader)
+    );
+    assertEquals(Arrays.asList(null, ""), BulkLoader.readRecord(reader));
+    assertNull(BulkLoader.readRecord(reader));
+    assertThrows(
+      IOException.class,
+      () ->
+        BulkLoader.readRecord(new BufferedReader(new StringReader("\"open")))
+    );
+  }
+
+  @Test
+  public void testInsertFallback() throws IOException, SQLException {
+    List<String> statements = new ArrayList<>();
+    List<Object> parameters = new ArrayList<>();
+    StringBuilder csv = new StringBuilder("name,creator\n");
+    for (int i = 0; i < 5; i++) {
+      csv.append("Character ").append(i).append(",Frank\n");
+    }
+    csv.append("\n");
+    long loaded = BulkLoader.insert(
+      recordingConnection(statements, parameters),
+      "seed_characters",
+      Arrays.asList("name", "creator"),
+      new StringReader(csv.toString()),
+      2
+    );
+    assertEquals(5, loaded);
+    assertEquals(
+      Arrays.asList(
+        "INSERT INTO seed_characters (name, creator) VALUES (?, ?), (?, ?)",
+        "INSERT INTO seed_characters (name, creator) VALUES (?, ?), (?, ?)",
+        "INSERT INTO seed_characters (name, creator) VALUES (?, ?)"
+      ),
+      statements
+    );
+    assertEquals(10, parameters.size());
+    assertEquals("Character 4", parameters.get(8));
+    assertThrows(
+      IOException.class,
+      () ->
+        BulkLoader.insert(
+          recordingConnection(statements, parameters),
+          "seed_characters",
+          Arrays.asList("name", "creator"),
+          new StringReader("name,creator\nPaul\n"),
+          2
+        )
+    );
+  }
+
+  /**
+   * Create a connection recording the prepared statements and their
+   * parameters.
+   * @param statements The list into which the prepared SQL is added.
+   * @param parameters The list into which the parameter values are added.
+   * @return The connection without a database.
+   */
+  private static Connection recordingConnection(
+    List<String> statements,
+    List<Object> parameters
+  ) {
+    final ClassLoader loader = BulkLoaderTest.class.getClassLoader();
+    return (Connection) Proxy.newProxyInstance(
+      loader,
+      new Class<?>[] { Connection.class },
+      (proxy, method, args) -> {
+        if (!method.getName().equals("prepareStatement")) {
+          return null;
+        }
+        String sql = (String) args[0];
+        statements.add(sql);
+        return Proxy.newProxyInstance(
+          loader,
+          new Class<?>[] { PreparedStatement.class },
+          (statement, statementMethod, statementArgs) -> {
+            switch (statementMethod.getName()) {
+              case "setString":
+                parameters.add(statementArgs[1]);
+                return null;
+              case "executeUpdate":
+                return (int) sql.chars().filter(c -> c == '(').count() - 1;
+              default:
+                return null;
+            }
+          }
+        );
+      }
+    );
+  }
+}
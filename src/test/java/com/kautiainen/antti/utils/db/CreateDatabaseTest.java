@@ -0,0 +1,345 @@
+package com.kautiainen.antti.utils.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.kautiainen.antti.utils.db.CreateDatabase.IndexDefinition;
+import com.kautiainen.antti.utils.db.CreateDatabase.Migration;
+import com.kautiainen.antti.utils.db.CreateDatabase.Phase;
+import com.kautiainen.antti.utils.db.CreateDatabase.Progress;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the database creator without a database connection.
+ */
+public class CreateDatabaseTest {
+
+  /**
+   * Test the checksum of a migration depends only on its statements.
+   */
+  @Test
+  public void testMigrationChecksum() {
+    Migration first = Migration.create(
+      1,
+      "First",
+      Arrays.asList("CREATE TABLE a (id int)", "CREATE TABLE b (id int)")
+    );
+    Migration same = Migration.create(
+      2,
+      "Same statements",
+      Arrays.asList("CREATE TABLE a (id int)", "CREATE TABLE b (id int)")
+    );
+    Migration joined = Migration.create(
+      3,
+      "Joined statements",
+      Arrays.asList("CREATE TABLE a (id int)CREATE TABLE b (id int)")
+    );
+    assertEquals(first.getChecksum(), same.getChecksum());
+    assertNotEquals(first.getChecksum(), joined.getChecksum());
+    assertEquals(8, first.getChecksum().length());
+  }
+
+  /**
+   * Test the migrations must be added in the ascending version order.
+   */
+  @Test
+  public void testMigrationOrder() {
+    CreateDatabase creator = new CreateDatabase()
+      .addMigration(Migration.create(1, "First", Arrays.asList()))
+      .addMigration(Migration.create(3, "Third", Arrays.asList()));
+    assertEquals(2, creator.getMigrations().size());
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> creator.addMigration(Migration.create(2, "Second", Arrays.asList()))
+    );
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> Migration.create(0, "Zero", Arrays.asList())
+    );
+  }
+
+  /**
+   * Test the pending migration check verifies the checksums of the applied
+   * migrations.
+   */
+  @Test
+  public void testPendingMigrationsVerifyChecksums() throws Exception {
+    Migration first = Migration.create(
+      1,
+      "First",
+      Arrays.asList("CREATE TABLE a (id int)")
+    );
+    Migration second = Migration.create(
+      2,
+      "Second",
+      Arrays.asList("CREATE TABLE b (id int)")
+    );
+    Map<Integer, String> applied = new HashMap<>();
+    CreateDatabase creator = new CreateDatabase() {
+      @Override
+      protected Map<Integer, String> getAppliedMigrations(
+        Connection connection,
+        boolean create
+      ) {
+        return applied;
+      }
+    }
+      .addMigration(first)
+      .addMigration(second);
+    applied.put(1, first.getChecksum());
+    assertTrue(creator.hasPendingMigrations(null));
+    applied.put(2, second.getChecksum());
+    assertFalse(creator.hasPendingMigrations(null));
+    applied.put(1, second.getChecksum());
+    assertThrows(SQLException.class, () -> creator.hasPendingMigrations(null));
+  }
+
+  /**
+   * Test the index definitions render concurrent, covering, and partial
+   * index creations.
+   */
+  @Test
+  public void testIndexDefinition() {
+    assertEquals(
+      "CREATE INDEX CONCURRENTLY IF NOT EXISTS t_a_idx ON t (a)",
+      IndexDefinition.create("t_a_idx", "t", "a").getCreateIndex()
+    );
+    IndexDefinition index = IndexDefinition.create(
+      "t_a_b_idx",
+      "t",
+      Arrays.asList("a", "lower(b)"),
+      Arrays.asList("c"),
+      "d IS NOT NULL",
+      true
+    );
+    assertEquals(
+      "CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS t_a_b_idx ON t" +
+      " (a, lower(b)) INCLUDE (c) WHERE d IS NOT NULL",
+      index.getCreateIndex()
+    );
+    assertEquals(
+      "DROP INDEX CONCURRENTLY IF EXISTS t_a_b_idx",
+      index.getRemoveIndex()
+    );
+    assertEquals(
+      SqlClassifier.Kind.CREATE_INDEX,
+      SqlClassifier.classify(index.getCreateIndex())
+    );
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> IndexDefinition.create("t_idx", "t")
+    );
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> IndexDefinition.create("t idx", "t", "a")
+    );
+  }
+
+  /**
+   * Test an index migration is performed outside a transaction, and a
+   * failed index creation removes the invalid index and is not recorded.
+   */
+  @Test
+  public void testIndexMigration() throws Exception {
+    Migration migration = Migration.createIndexes(
+      1,
+      "Indexes",
+      Arrays.asList(
+        IndexDefinition.create("t_a_idx", "t", "a"),
+        IndexDefinition.create("t_b_idx", "t", "fail")
+      )
+    );
+    assertFalse(migration.isTransactional());
+    List<String> executed = new ArrayList<>();
+    AtomicBoolean transaction = new AtomicBoolean(false);
+    final ClassLoader loader = CreateDatabaseTest.class.getClassLoader();
+    Statement statement = (Statement) Proxy.newProxyInstance(
+      loader,
+      new Class<?>[] { Statement.class },
+      (proxy, method, args) -> {
+        if (method.getName().equals("execute")) {
+          if (transaction.get()) {
+            throw new SQLException("In transaction");
+          }
+          executed.add((String) args[0]);
+          if (((String) args[0]).contains("(fail)")) {
+            throw new SQLException("Failed");
+          }
+        }
+        return method.getName().equals("execute") ? false : null;
+      }
+    );
+    Connection connection = (Connection) Proxy.newProxyInstance(
+      loader,
+      new Class<?>[] { Connection.class },
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "setAutoCommit":
+            transaction.set(!(Boolean) args[0]);
+            return null;
+          case "createStatement":
+            return statement;
+          case "prepareStatement":
+            executed.add("RECORD");
+            return Proxy.newProxyInstance(
+              loader,
+              new Class<?>[] { PreparedStatement.class },
+              (p, m, a) -> m.getName().equals("executeUpdate") ? 1 : null
+            );
+          default:
+            return null;
+        }
+      }
+    );
+    CreateDatabase creator = new CreateDatabase();
+    assertThrows(
+      SQLException.class,
+      () -> creator.applyMigration(connection, migration)
+    );
+    assertEquals(
+      Arrays.asList(
+        migration.getStatements().get(0),
+        migration.getStatements().get(1),
+        "DROP INDEX CONCURRENTLY IF EXISTS t_b_idx"
+      ),
+      executed
+    );
+  }
+
+  /**
+   * Test a failed chunk is reported precisely, the preceding chunks are
+   * committed, and the retry resumes from the failed chunk.
+   */
+  @Test
+  public void testChunkedCreationResumes() throws Exception {
+    List<String> inserts = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      inserts.add(
+        "INSERT INTO t (id) VALUES (" + (i == 7 ? "'fail'" : i) + ")"
+      );
+    }
+    CreateDatabase creator = new CreateDatabase(
+      Arrays.asList("CREATE TABLE t (id INT)"),
+      Arrays.asList("CREATE VIEW v AS SELECT id FROM t"),
+      inserts
+    )
+      .setChunkSize(3);
+    List<String> committed = new ArrayList<>();
+    AtomicBoolean failing = new AtomicBoolean(true);
+    Connection connection = transactionalConnection(committed, failing);
+
+    FailedStatementException failure = assertThrows(
+      FailedStatementException.class,
+      () -> creator.createDatabase(connection, null)
+    );
+    assertEquals(Phase.INITIALIZATIONS, failure.getPhase());
+    assertEquals(7, failure.getIndex());
+    assertEquals(inserts.get(7), failure.getStatement());
+    assertEquals(new Progress(Phase.INITIALIZATIONS, 6), creator.getProgress());
+    assertEquals(7, committed.size());
+
+    failing.set(false);
+    creator.createDatabase(connection, null);
+    assertEquals(12, committed.size());
+    assertEquals(inserts.get(6), committed.get(7));
+    assertEquals("CREATE VIEW v AS SELECT id FROM t", committed.get(11));
+  }
+
+  /**
+   * Create a connection executing batches in transactions without a
+   * database. A statement containing <code>fail</code> fails while failing.
+   * @param committed The list into which the committed statements are added.
+   * @param failing Do the failing statements fail.
+   * @return The connection.
+   */
+  private static Connection transactionalConnection(
+    List<String> committed,
+    AtomicBoolean failing
+  ) {
+    final List<String> pending = new ArrayList<>();
+    final List<String> batch = new ArrayList<>();
+    final ClassLoader loader = CreateDatabaseTest.class.getClassLoader();
+    Statement statement = (Statement) Proxy.newProxyInstance(
+      loader,
+      new Class<?>[] { Statement.class },
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "addBatch":
+            batch.add((String) args[0]);
+            return null;
+          case "clearBatch":
+            batch.clear();
+            return null;
+          case "executeBatch":
+            int[] counts = new int[batch.size()];
+            for (int i = 0; i < batch.size(); i++) {
+              if (failing.get() && batch.get(i).contains("fail")) {
+                counts[i] = Statement.EXECUTE_FAILED;
+                throw new BatchUpdateException(
+                  Arrays.copyOf(counts, i + 1)
+                );
+              }
+              pending.add(batch.get(i));
+              counts[i] = 1;
+            }
+            return counts;
+          default:
+            return null;
+        }
+      }
+    );
+    DatabaseMetaData metaData = (DatabaseMetaData) Proxy.newProxyInstance(
+      loader,
+      new Class<?>[] { DatabaseMetaData.class },
+      (proxy, method, args) -> method.getName().equals("supportsBatchUpdates")
+    );
+    return (Connection) Proxy.newProxyInstance(
+      loader,
+      new Class<?>[] { Connection.class },
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getMetaData":
+            return metaData;
+          case "getAutoCommit":
+            return true;
+          case "createStatement":
+            return statement;
+          case "setSavepoint":
+            final int size = pending.size();
+            return Proxy.newProxyInstance(
+              loader,
+              new Class<?>[] { Savepoint.class },
+              (savepoint, savepointMethod, savepointArgs) -> size
+            );
+          case "rollback":
+            int keep = args == null ? 0 : ((Savepoint) args[0]).getSavepointId();
+            pending.subList(keep, pending.size()).clear();
+            return null;
+          case "commit":
+            committed.addAll(pending);
+            pending.clear();
+            return null;
+          default:
+            return null;
+        }
+      }
+    );
+  }
+}
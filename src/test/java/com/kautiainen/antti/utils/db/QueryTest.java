@@ -0,0 +1,75 @@
+package com.kautiainen.antti.utils.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.kautiainen.antti.utils.db.CreateDatabase.ViewDefinition;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the rendering of the queries and the view definitions.
+ */
+public class QueryTest {
+
+  @Test
+  public void testRendering() {
+    Query query = Query
+      .builder()
+      .select("cid", "sum(value) AS total")
+      .from("character_skills")
+      .where("value > ?")
+      .where("cid > 0 OR cid IS NULL")
+      .groupBy("cid")
+      .having("sum(value) > 4")
+      .orderBy("total", Query.Direction.DESC)
+      .orderBy("cid")
+      .build();
+    assertEquals(
+      "SELECT cid, sum(value) AS total FROM character_skills" +
+      " WHERE (value > ?) AND (cid > 0 OR cid IS NULL)" +
+      " GROUP BY cid HAVING sum(value) > 4 ORDER BY total DESC, cid",
+      query.getSql()
+    );
+    assertSame(query.getSql(), query.toString());
+    assertEquals("SELECT *", Query.builder().build().getSql());
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> Query.builder().where(null)
+    );
+  }
+
+  @Test
+  public void testViewDefinition() {
+    ViewDefinition view = ViewDefinition.create(
+      "character_totals",
+      Arrays.asList("cid", "sum(value) AS total"),
+      Arrays.asList("character_skills"),
+      Arrays.asList(
+        "WHERE value > 0",
+        "GROUP BY cid",
+        "HAVING sum(value) > 4",
+        "ORDER BY cid desc"
+      )
+    );
+    assertEquals(
+      "CREATE OR REPLACE VIEW character_totals AS" +
+      " SELECT cid, sum(value) AS total FROM character_skills" +
+      " WHERE value > 0 GROUP BY cid HAVING sum(value) > 4 ORDER BY cid DESC",
+      view.getCreateView()
+    );
+    assertSame(view.getCreateView(), view.getCreateView());
+    assertEquals("DROP VIEW IF EXISTS character_totals", view.getRemoveView());
+    assertEquals("SELECT * FROM character_totals", view.getSelectView());
+    assertThrows(
+      IllegalArgumentException.class,
+      () ->
+        ViewDefinition.create(
+          "character_totals",
+          Arrays.asList("cid"),
+          Arrays.asList("LIMIT 1")
+        )
+    );
+  }
+}
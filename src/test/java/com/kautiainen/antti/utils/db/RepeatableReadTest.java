@@ -0,0 +1,129 @@
+package com.kautiainen.antti.utils.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the repeatable read transactions without a database.
+ */
+public class RepeatableReadTest {
+
+  @Test
+  public void testRead() throws SQLException {
+    List<String> calls = new ArrayList<>();
+    Connection connection = recordingConnection(calls);
+    assertEquals(
+      "Read",
+      RepeatableRead.read(
+        connection,
+        (Connection transaction) -> {
+          calls.add("read");
+          return "Read";
+        }
+      )
+    );
+    assertEquals(
+      Arrays.asList(
+        "setAutoCommit false",
+        "setTransactionIsolation " + Connection.TRANSACTION_REPEATABLE_READ,
+        "read",
+        "commit",
+        "setTransactionIsolation " + Connection.TRANSACTION_READ_COMMITTED,
+        "setAutoCommit true"
+      ),
+      calls
+    );
+
+    calls.clear();
+    assertThrows(
+      SQLException.class,
+      () ->
+        RepeatableRead.read(
+          connection,
+          (Connection transaction) -> {
+            throw new SQLException("Failed");
+          }
+        )
+    );
+    assertEquals("rollback", calls.get(2));
+    assertEquals("setAutoCommit true", calls.get(calls.size() - 1));
+  }
+
+  @Test
+  public void testStream() throws SQLException {
+    List<String> calls = new ArrayList<>();
+    try (
+      ResultSet rows = RepeatableRead.stream(
+        recordingConnection(calls),
+        "SELECT ?",
+        7
+      )
+    ) {
+      assertNull(rows);
+      assertEquals(
+        Arrays.asList(
+          "prepareStatement SELECT ?",
+          "setFetchSize " + RepeatableRead.FETCH_SIZE,
+          "setObject 1",
+          "closeOnCompletion",
+          "executeQuery"
+        ),
+        calls
+      );
+    }
+  }
+
+  /**
+   * Create a connection recording the calls of the connection and its
+   * statements.
+   * @param calls The list into which the calls are added.
+   * @return The connection without a database in the autocommit mode.
+   */
+  private static Connection recordingConnection(List<String> calls) {
+    final ClassLoader loader = RepeatableReadTest.class.getClassLoader();
+    return (Connection) Proxy.newProxyInstance(
+      loader,
+      new Class<?>[] { Connection.class },
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getAutoCommit":
+            return true;
+          case "getTransactionIsolation":
+            return Connection.TRANSACTION_READ_COMMITTED;
+          case "prepareStatement":
+            calls.add("prepareStatement " + args[0]);
+            return Proxy.newProxyInstance(
+              loader,
+              new Class<?>[] { PreparedStatement.class },
+              (statement, statementMethod, statementArgs) -> {
+                if (!statementMethod.getName().equals("close")) {
+                  calls.add(
+                    statementArgs == null
+                      ? statementMethod.getName()
+                      : statementMethod.getName() + " " + statementArgs[0]
+                  );
+                }
+                return null;
+              }
+            );
+          default:
+            calls.add(
+              args == null ? method.getName() : method.getName() + " " + args[0]
+            );
+            return null;
+        }
+      }
+    );
+  }
+}
@@ -0,0 +1,159 @@
+package com.kautiainen.antti.utils.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the dependency graph of the schema creation.
+ */
+public class SchemaPlanTest {
+
+  /**
+   * The schema statements in a valid sequential order.
+   */
+  private static final List<String> STATEMENTS = Arrays.asList(
+    "CREATE TABLE IF NOT EXISTS skills (id SMALLSERIAL PRIMARY KEY, name VARCHAR(40))",
+    "CREATE TABLE IF NOT EXISTS drives (id SMALLSERIAL PRIMARY KEY, name VARCHAR(40))",
+    "CREATE TABLE IF NOT EXISTS characters (id SMALLSERIAL PRIMARY KEY, name VARCHAR(255))",
+    "CREATE TABLE IF NOT EXISTS character_skills (cid SMALLINT REFERENCES Characters(id), sid SMALLINT REFERENCES skills(id), value SMALLINT)",
+    "CREATE INDEX IF NOT EXISTS character_skills_sid_idx ON character_skills (sid)",
+    "CREATE OR REPLACE VIEW skill_totals AS SELECT cid, sum(value) FROM character_skills GROUP BY cid",
+    "ALTER TABLE drives ADD COLUMN description TEXT",
+    "CREATE TABLE IF NOT EXISTS ticks (tick TIMESTAMP)"
+  );
+
+  @Test
+  public void testDependencies() {
+    SchemaPlan plan = SchemaPlan.create(STATEMENTS);
+    List<SchemaPlan.Step> steps = plan.getSteps();
+    assertEquals(List.of(), steps.get(0).dependencies());
+    assertEquals(List.of(), steps.get(2).dependencies());
+    assertEquals(List.of(0, 2), steps.get(3).dependencies());
+    assertEquals(List.of(3), steps.get(4).dependencies());
+    assertEquals(List.of(3), steps.get(5).dependencies());
+    assertEquals(List.of(0, 1, 2, 3, 4, 5), steps.get(6).dependencies());
+    assertEquals(List.of(6), steps.get(7).dependencies());
+    assertEquals(5, plan.getDepth());
+  }
+
+  @Test
+  public void testExecution() throws SQLException {
+    List<String> executed = new CopyOnWriteArrayList<>();
+    SchemaPlan.create(STATEMENTS).execute(recordingDataSource(executed), 3);
+    assertEquals(STATEMENTS.size(), executed.size());
+    for (SchemaPlan.Step step : SchemaPlan.create(STATEMENTS).getSteps()) {
+      for (int dependency : step.dependencies()) {
+        assertTrue(
+          executed.indexOf(STATEMENTS.get(dependency)) <
+          executed.indexOf(step.sql()),
+          step.sql()
+        );
+      }
+    }
+  }
+
+  @Test
+  public void testFailure() {
+    List<String> executed = new CopyOnWriteArrayList<>();
+    List<String> statements = Arrays.asList(
+      "CREATE TABLE a (id INT PRIMARY KEY)",
+      "CREATE TABLE fail (id INT REFERENCES a(id))",
+      "CREATE VIEW v AS SELECT * FROM fail"
+    );
+    SQLException failure = assertThrows(
+      SQLException.class,
+      () ->
+        SchemaPlan
+          .create(statements)
+          .execute(recordingDataSource(executed), 2)
+    );
+    assertTrue(failure.getMessage().contains("Schema statement 1 failed"));
+    assertEquals(List.of(statements.get(0)), executed);
+  }
+
+  /**
+   * Create a data source recording the executed statements. A statement
+   * containing the word <code>fail</code> fails.
+   * @param executed The list into which the executed statements are added.
+   * @return The data source without a database.
+   */
+  private static DataSource recordingDataSource(List<String> executed) {
+    Statement statement = (Statement) Proxy.newProxyInstance(
+      SchemaPlanTest.class.getClassLoader(),
+      new Class<?>[] { Statement.class },
+      (proxy, method, args) -> {
+        if (method.getName().equals("execute")) {
+          String sql = (String) args[0];
+          if (sql.contains(" fail ")) {
+            throw new SQLException("Failed");
+          }
+          Thread.sleep(5);
+          executed.add(sql);
+          return false;
+        }
+        return null;
+      }
+    );
+    Connection connection = (Connection) Proxy.newProxyInstance(
+      SchemaPlanTest.class.getClassLoader(),
+      new Class<?>[] { Connection.class },
+      (proxy, method, args) ->
+        method.getName().equals("createStatement") ? statement : null
+    );
+    return new DataSource() {
+      @Override
+      public Connection getConnection() {
+        return connection;
+      }
+
+      @Override
+      public Connection getConnection(String user, String password) {
+        return connection;
+      }
+
+      @Override
+      public PrintWriter getLogWriter() {
+        return null;
+      }
+
+      @Override
+      public void setLogWriter(PrintWriter out) {}
+
+      @Override
+      public void setLoginTimeout(int seconds) {}
+
+      @Override
+      public int getLoginTimeout() {
+        return 0;
+      }
+
+      @Override
+      public Logger getParentLogger() {
+        return null;
+      }
+
+      @Override
+      public <T> T unwrap(Class<T> iface) {
+        return null;
+      }
+
+      @Override
+      public boolean isWrapperFor(Class<?> iface) {
+        return false;
+      }
+    };
+  }
+}
@@ -0,0 +1,166 @@
+package com.kautiainen.antti.utils.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.kautiainen.antti.utils.db.SqlClassifier.Kind;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the classification of the SQL statements.
+ */
+public class SqlClassifierTest {
+
+  @Test
+  public void testTables() {
+    assertEquals(
+      Kind.CREATE_TABLE,
+      SqlClassifier.classify(
+        "CREATE TABLE IF NOT EXISTS skills (id SMALLSERIAL PRIMARY KEY, name VARCHAR(40) NOT NULL UNIQUE);"
+      )
+    );
+    assertEquals(
+      Kind.CREATE_TABLE,
+      SqlClassifier.classify("create local temp table t AS SELECT 1")
+    );
+    assertEquals(
+      Arrays.asList("public.\"Person\""),
+      SqlClassifier.getNames("CREATE TABLE public.\"Person\" (id int)")
+    );
+    assertEquals(
+      Kind.DROP_TABLE,
+      SqlClassifier.classify("DROP TABLE IF EXISTS a, b CASCADE ;")
+    );
+    assertEquals(
+      Arrays.asList("a", "b"),
+      SqlClassifier.getNames("drop table a, b")
+    );
+    assertEquals(Kind.OTHER, SqlClassifier.classify("CREATE TABLE t"));
+    assertEquals(Kind.OTHER, SqlClassifier.classify("DROP TABLE a b"));
+  }
+
+  @Test
+  public void testViews() {
+    assertEquals(
+      Kind.CREATE_VIEW,
+      SqlClassifier.classify(
+        "CREATE OR REPLACE VIEW totals (cid, total) AS SELECT cid, sum(value) FROM character_skills GROUP BY cid"
+      )
+    );
+    assertEquals(
+      Arrays.asList("summary"),
+      SqlClassifier.getNames(
+        "CREATE MATERIALIZED VIEW IF NOT EXISTS summary AS WITH x AS (SELECT 1) SELECT * FROM x"
+      )
+    );
+    assertEquals(
+      Kind.DROP_VIEW,
+      SqlClassifier.classify("DROP MATERIALIZED VIEW summary")
+    );
+    assertEquals(
+      Kind.OTHER,
+      SqlClassifier.classify("CREATE VIEW v AS DELETE FROM t")
+    );
+  }
+
+  @Test
+  public void testIndexes() {
+    assertEquals(
+      Arrays.asList("ticks_tick_idx"),
+      SqlClassifier.getNames(
+        "CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS ticks_tick_idx ON ticks (tick)"
+      )
+    );
+    assertEquals(
+      Kind.CREATE_INDEX,
+      SqlClassifier.classify("CREATE INDEX ON ONLY ticks USING btree (tick)")
+    );
+    assertEquals(
+      Arrays.asList("a", "b"),
+      SqlClassifier.getReferences(
+        "CREATE TABLE c (aid INT REFERENCES a(id), bid INT REFERENCES b)"
+      )
+    );
+  }
+
+  @Test
+  public void testInserts() {
+    assertEquals(
+      Kind.INSERT,
+      SqlClassifier.classify(
+        "INSERT INTO skills (name) VALUES ('It''s; (not) a statement end')"
+      )
+    );
+    assertEquals(
+      Arrays.asList("motivations"),
+      SqlClassifier.getNames(
+        "INSERT INTO motivations (name) SELECT 'Faith' WHERE NOT EXISTS (SELECT 1 FROM motivations WHERE name = 'Faith')"
+      )
+    );
+    assertEquals(
+      Kind.INSERT,
+      SqlClassifier.classify(
+        "-- comment\nINSERT /* nested /* comment */ */ INTO t DEFAULT VALUES"
+      )
+    );
+    assertEquals(
+      Kind.INSERT,
+      SqlClassifier.classify("INSERT INTO t (body) VALUES ($tag$ ' ; $tag$)")
+    );
+  }
+
+  @Test
+  public void testMalformed() {
+    List<String> malformed = Arrays.asList(
+      null,
+      "",
+      "UPDATE t SET a = 1",
+      "INSERT INTO t VALUES ('unterminated)",
+      "INSERT INTO t VALUES (1)); DROP TABLE t",
+      "INSERT INTO t VALUES (1); DROP TABLE t",
+      "INSERT INTO t VALUES ((1)",
+      "CREATE TABLE t (id int) /* unterminated",
+      "CREATE GLOBAL TABLE t (id int)"
+    );
+    for (String sql : malformed) {
+      assertEquals(Kind.OTHER, SqlClassifier.classify(sql), sql);
+      assertEquals(List.of(), SqlClassifier.getNames(sql), sql);
+    }
+  }
+
+  @Test
+  public void testLinearTime() {
+    StringBuilder sql = new StringBuilder("INSERT INTO t (a) VALUES ");
+    for (int i = 0; i < 100_000; i++) {
+      sql.append(i == 0 ? "" : ", ").append("('x ").append(i).append("')");
+    }
+    assertEquals(Kind.INSERT, SqlClassifier.classify(sql.toString()));
+    sql.append(" 'unterminated");
+    assertEquals(Kind.OTHER, SqlClassifier.classify(sql.toString()));
+  }
+
+  @Test
+  public void testCreateDatabaseValidation() {
+    CreateDatabase creator = new CreateDatabase(
+      Arrays.asList("CREATE TABLE t (id int)", "DROP TABLE IF EXISTS u"),
+      Arrays.asList("CREATE VIEW v AS SELECT id FROM t"),
+      Arrays.asList("INSERT INTO t (id) VALUES (1)")
+    );
+    assertEquals(2, creator.getTables().size());
+    assertThrows(
+      IllegalArgumentException.class,
+      () ->
+        new CreateDatabase(
+          Arrays.asList("CREATE VIEW v AS SELECT 1"),
+          null,
+          null
+        )
+    );
+    assertThrows(
+      IllegalArgumentException.class,
+      () -> new CreateDatabase(null, null, Arrays.asList("DROP TABLE t"))
+    );
+  }
+}